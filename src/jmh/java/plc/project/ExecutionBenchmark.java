@@ -0,0 +1,80 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares running a program with the {@link Interpreter} (on a source
+ * resolved by the {@link Resolver} and on one using scopes), the
+ * {@link ClosureCompiler}, the {@link Vm} and the {@link BytecodeCompiler}, on
+ * a loop and on recursion. Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    private static final String LOOP = "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 10000 DO IF i / 3 * 3 == i DO sum = sum + i; END i = i + 1; END RETURN sum; END";
+    private static final String RECURSION = "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\nDEF main(): Integer DO RETURN fib(20); END";
+
+    @Param({"loop", "recursion"})
+    private String program;
+
+    private Ast.Source source;
+    private Ast.Source unresolved;
+    private ClosureCompiler.Program compiled;
+    private Vm vm;
+    private BytecodeCompiler.Program bytecode;
+
+    @Setup
+    public void setup() {
+        source = new Parser(new Lexer(program.equals("loop") ? LOOP : RECURSION).lex()).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(source);
+        unresolved = new Parser(new Lexer(program.equals("loop") ? LOOP : RECURSION).lex()).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(unresolved);
+        new Resolver().visit(source);
+        compiled = new ClosureCompiler(new plc.project.Scope(null)).compile(source);
+        vm = new VmCompiler(new plc.project.Scope(null)).compile(source);
+        bytecode = new BytecodeCompiler(new plc.project.Scope(null)).compile(source);
+    }
+
+    @Benchmark
+    public Object interpreter() {
+        return new Interpreter(new plc.project.Scope(null)).visit(source).getValue();
+    }
+
+    @Benchmark
+    public Object scopes() {
+        return new Interpreter(new plc.project.Scope(null)).visit(unresolved).getValue();
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return compiled.run().getValue();
+    }
+
+    @Benchmark
+    public Object vm() {
+        return vm.run().getValue();
+    }
+
+    @Benchmark
+    public Object bytecode() {
+        return bytecode.run().getValue();
+    }
+
+}
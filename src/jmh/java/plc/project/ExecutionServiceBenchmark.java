@@ -0,0 +1,74 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the {@link ExecutionService} running a batch of
+ * short scripts, on pools of 1 to 8 platform threads and on the default
+ * executor (virtual threads where available). Run with {@code gradle jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionServiceBenchmark {
+
+    private static final int BATCH = 256;
+    private static final String SCRIPT = "LET calls: Integer = 0;\n" +
+            "DEF fib(n: Integer): Integer DO calls = calls + 1; IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\n" +
+            "DEF main(): Integer DO RETURN fib(12) + calls; END";
+
+    /** The number of platform threads, or 0 for the default executor. */
+    @Param({"1", "2", "4", "8", "0"})
+    private int threads;
+
+    private ExecutionService service;
+
+    @Setup
+    public void setup() {
+        plc.project.Scope parent = new plc.project.Scope(null);
+        service = threads == 0 ? new ExecutionService(parent) : new ExecutionService(parent, Executors.newFixedThreadPool(threads));
+        service.compile(SCRIPT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.close();
+    }
+
+    /**
+     * Runs a batch of scripts, so throughput is in batches per second.
+     */
+    @Benchmark
+    public Object batch() throws Exception {
+        List<Future<Environment.PlcObject>> runs = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            runs.add(service.submit(SCRIPT));
+        }
+        Object result = null;
+        for (Future<Environment.PlcObject> run : runs) {
+            result = ExecutionService.await(run, 1, TimeUnit.MINUTES).getValue();
+        }
+        return result;
+    }
+
+}
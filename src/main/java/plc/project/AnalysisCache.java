@@ -0,0 +1,346 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incrementally re-runs the {@link Analyzer} over successive versions of a
+ * program. Each analyzed field and method is cached along with the globals
+ * and functions it resolved; on the next version, an unchanged field or
+ * method whose dependencies still resolve to the same declarations is reused
+ * instead of being checked again.
+ *
+ * Fields and methods are declared in source order exactly as the Analyzer
+ * does, so reuse never accepts a program the Analyzer would reject (such as
+ * a call to a method that is now defined later). A declaration whose
+ * signature is unchanged keeps its {@link Environment.Variable} or
+ * {@link Environment.Function}, which is what allows its dependents to be
+ * reused when only its body changed.
+ *
+ * AST nodes are treated as immutable once analyzed. Unchanged nodes are
+ * recognized by identity first and by {@link Fingerprint} otherwise, in which
+ * case the cached (analyzed) node is returned in place of the new one.
+ * Every field and method is still fingerprinted on each analysis unless it
+ * is the same node as before, so an analysis costs time proportional to the
+ * size of the program even when nothing has to be checked again.
+ */
+public final class AnalysisCache {
+
+    private final Scope parent;
+    private Scope scope = null;
+    private Map<Ast, Entry> nodes = new IdentityHashMap<>();
+    private Map<String, Entry> fingerprints = new HashMap<>();
+    private Map<String, Environment.Variable> variables = new HashMap<>();
+    private Map<String, Environment.Function> functions = new HashMap<>();
+    private int analyzed = 0;
+
+    public AnalysisCache(Scope parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the Analyzer scope of the last successful analysis.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns the number of fields and methods checked by the last analysis,
+     * the rest having been restored from the cache.
+     */
+    public int getAnalyzed() {
+        return analyzed;
+    }
+
+    /**
+     * Analyzes the given source, returning a source whose fields and methods
+     * are all analyzed. If analysis fails the cache is left unchanged.
+     */
+    public Ast.Source analyze(Ast.Source source) {
+        Analyzer analyzer = new Analyzer(parent);
+        Map<Ast, Entry> nodes = new IdentityHashMap<>();
+        Map<String, Entry> fingerprints = new HashMap<>();
+        Map<String, Environment.Variable> variables = new HashMap<>();
+        Map<String, Environment.Function> functions = new HashMap<>();
+        int analyzed = 0;
+
+        List<Ast.Field> fields = new ArrayList<>();
+        for (Ast.Field field : source.getFields()) {
+            Entry entry = lookup(field);
+            if (entry != null && isValid(entry, analyzer.scope)) {
+                field = (Ast.Field) entry.ast;
+                analyzer.scope.defineVariable(field.getVariable());
+            } else {
+                String fingerprint = entry != null ? entry.fingerprint : Fingerprint.of(field);
+                forget(entry, field);
+                analyzer.visitValue(field);
+                Environment.Variable variable = new Environment.Variable(field.getName(), field.getName(), Environment.getType(field.getTypeName()), Environment.NIL);
+                Environment.Variable previous = this.variables.get(field.getName());
+                if (variable.equals(previous)) {
+                    variable = previous;
+                }
+                field.setVariable(analyzer.scope.defineVariable(variable));
+                entry = new Entry(field, fingerprint, Dependencies.of(field));
+                analyzed++;
+            }
+            variables.put(field.getName(), field.getVariable());
+            nodes.put(field, entry);
+            fingerprints.put(entry.fingerprint, entry);
+            fields.add(field);
+        }
+
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : source.getMethods()) {
+            Entry entry = lookup(method);
+            if (entry != null && isValid(entry, analyzer.scope)) {
+                method = (Ast.Method) entry.ast;
+                analyzer.scope.defineFunction(method.getFunction());
+            } else {
+                String fingerprint = entry != null ? entry.fingerprint : Fingerprint.of(method);
+                forget(entry, method);
+                String key = method.getName() + "/" + method.getParameters().size();
+                Environment.Function function = analyzer.createFunction(method);
+                Environment.Function previous = this.functions.get(key);
+                if (function.equals(previous)) {
+                    function = previous;
+                }
+                method.setFunction(analyzer.scope.defineFunction(function));
+                analyzer.visitBody(method);
+                entry = new Entry(method, fingerprint, Dependencies.of(method));
+                analyzed++;
+            }
+            functions.put(method.getName() + "/" + method.getParameters().size(), method.getFunction());
+            nodes.put(method, entry);
+            fingerprints.put(entry.fingerprint, entry);
+            methods.add(method);
+        }
+
+        analyzer.requireMain();
+
+        this.scope = analyzer.scope;
+        this.nodes = nodes;
+        this.fingerprints = fingerprints;
+        this.variables = variables;
+        this.functions = functions;
+        this.analyzed = analyzed;
+        return new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Returns the cached entry for an unchanged field or method, if any.
+     */
+    private Entry lookup(Ast ast) {
+        Entry entry = nodes.get(ast);
+        if (entry == null) {
+            entry = fingerprints.get(Fingerprint.of(ast));
+        }
+        return entry;
+    }
+
+    /**
+     * Drops an entry whose node is about to be analyzed again, so a failed
+     * analysis cannot leave a partially updated node in the cache.
+     */
+    private void forget(Entry entry, Ast ast) {
+        if (entry != null && entry.ast == ast) {
+            nodes.remove(ast);
+            fingerprints.remove(entry.fingerprint);
+        }
+    }
+
+    /**
+     * Returns true if every dependency of the entry resolves in the given
+     * scope as it did when the entry was analyzed. Variables must be the same
+     * declaration, while functions only need the same signature since calls
+     * are not bound to a particular function object. A method's calls to
+     * itself are skipped, as its own signature is part of its fingerprint and
+     * its function is only defined once the entry is known to be valid.
+     */
+    private static boolean isValid(Entry entry, Scope scope) {
+        String self = entry.ast instanceof Ast.Method ? ((Ast.Method) entry.ast).getName() + "/" + ((Ast.Method) entry.ast).getParameters().size() : null;
+        for (Map.Entry<String, Object> dependency : entry.dependencies.entrySet()) {
+            String name = dependency.getKey();
+            if (name.equals(self) && dependency.getValue() instanceof Environment.Function) {
+                continue;
+            }
+            try {
+                if (dependency.getValue() instanceof Environment.Variable) {
+                    if (scope.lookupVariable(name) != dependency.getValue()) {
+                        return false;
+                    }
+                } else {
+                    int index = name.lastIndexOf('/');
+                    Environment.Function function = scope.lookupFunction(name.substring(0, index), Integer.parseInt(name.substring(index + 1)));
+                    if (!function.equals(dependency.getValue())) {
+                        return false;
+                    }
+                }
+            } catch (RuntimeException e) {
+                return false; //no longer defined
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+
+        private final Ast ast;
+        private final String fingerprint;
+        private final Map<String, Object> dependencies;
+
+        private Entry(Ast ast, String fingerprint, Map<String, Object> dependencies) {
+            this.ast = ast;
+            this.fingerprint = fingerprint;
+            this.dependencies = dependencies;
+        }
+
+    }
+
+    /**
+     * Collects the variables and functions an analyzed field or method
+     * resolves outside of itself, keyed by {@code name} for variables and
+     * {@code name/arity} for functions. Local names are tracked per block so
+     * that parameters and declarations are not mistaken for globals.
+     */
+    private static final class Dependencies implements Ast.Visitor<Void> {
+
+        private final Map<String, Object> dependencies = new LinkedHashMap<>();
+        private final Deque<Set<String>> locals = new ArrayDeque<>();
+
+        private static Map<String, Object> of(Ast ast) {
+            Dependencies visitor = new Dependencies();
+            visitor.visit(ast);
+            return visitor.dependencies;
+        }
+
+        private boolean isLocal(String name) {
+            for (Set<String> block : locals) {
+                if (block.contains(name)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void visitBlock(List<Ast.Stmt> statements, String... names) {
+            locals.push(new HashSet<>(List.of(names)));
+            statements.forEach(this::visit);
+            locals.pop();
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            throw new AssertionError("Dependencies are collected per field and method.");
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            visitBlock(ast.getStatements(), ast.getParameters().toArray(new String[0]));
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            ast.getValue().ifPresent(this::visit);
+            locals.peek().add(ast.getName());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            visit(ast.getCondition());
+            visitBlock(ast.getThenStatements());
+            visitBlock(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            visit(ast.getValue());
+            visitBlock(ast.getStatements(), ast.getName());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            visit(ast.getCondition());
+            visitBlock(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            if (ast.getReceiver().isPresent()) {
+                visit(ast.getReceiver().get());
+            } else if (!isLocal(ast.getName())) {
+                dependencies.put(ast.getName(), ast.getVariable());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            ast.getArguments().forEach(this::visit);
+            if (ast.getReceiver().isPresent()) {
+                visit(ast.getReceiver().get());
+            } else {
+                dependencies.put(ast.getName() + "/" + ast.getArguments().size(), ast.getFunction());
+            }
+            return null;
+        }
+
+    }
+
+}
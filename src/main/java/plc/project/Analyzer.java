@@ -37,6 +37,16 @@ public final class Analyzer implements Ast.Visitor<Void> {
         for(Ast.Method method : methodsList)
             visit(method);
 
+        requireMain();
+
+        return null;
+    }
+
+    /**
+     * Checks that the analyzed source defines a {@code main/0} function
+     * returning {@code Integer}.
+     */
+    void requireMain() {
         Environment.Function main = null;
         try
         {
@@ -48,14 +58,26 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         if(main.getReturnType().getName().compareTo("Integer") != 0)
             throw new RuntimeException("Ast.Source has main, but main is missing correct return type of Integer");
-
-        return null;
     }
 
     @Override
     public Void visit(Ast.Field ast) {
         String typeName = ast.getTypeName();
 
+        visitValue(ast);
+
+        Environment.Variable var = scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(typeName), Environment.NIL);
+        ast.setVariable(var);
+
+        return null;
+    }
+
+    /**
+     * Analyzes the initial value of a field without defining the field itself.
+     */
+    void visitValue(Ast.Field ast) {
+        String typeName = ast.getTypeName();
+
         if(ast.getValue().isPresent()) //Initialized to a value
         {
             visit(ast.getValue().get());
@@ -64,28 +86,41 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
             requireAssignable(Environment.getType(typeName), type); //Same method as requireAssignable, the first has just been changed to a string because it's way easier
         }
+    }
 
-        Environment.Variable var = scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(typeName), Environment.NIL);
-        ast.setVariable(var);
+    @Override
+    public Void visit(Ast.Method ast) {
+        ast.setFunction(scope.defineFunction(createFunction(ast)));
 
+        visitBody(ast);
         return null;
     }
 
-    @Override
-    public Void visit(Ast.Method ast) {
+    /**
+     * Creates the function for a method from its declared types, without
+     * defining it in the current scope.
+     */
+    Environment.Function createFunction(Ast.Method ast) {
         String returnType = "Nil";
         if(ast.getReturnTypeName().isPresent())
         {
             returnType = ast.getReturnTypeName().get();
         }
 
-        List<String> typeNames =  ast.getParameterTypeNames();
-        List<String> parameters = ast.getParameters();
         List<Environment.Type> paramTypes = new ArrayList<Environment.Type>();
-        for(String type : typeNames)
+        for(String type : ast.getParameterTypeNames())
             paramTypes.add(Environment.getType(type));
 
-        ast.setFunction(scope.defineFunction(ast.getName(), ast.getName(), paramTypes,Environment.getType(returnType), args -> Environment.NIL));
+        return new Environment.Function(ast.getName(), ast.getName(), paramTypes, Environment.getType(returnType), args -> Environment.NIL);
+    }
+
+    /**
+     * Analyzes the parameters and statements of a method whose function has
+     * already been defined.
+     */
+    void visitBody(Ast.Method ast) {
+        List<String> typeNames =  ast.getParameterTypeNames();
+        List<String> parameters = ast.getParameters();
 
         method = ast; //Coordinating with the return node
         scope = new Scope(scope); //New Scope
@@ -99,7 +134,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         scope = scope.getParent(); //exiting method scope
         method = null;
-        return null;
     }
 
     @Override
@@ -352,8 +386,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
             //Both comparable and SAME TYPE
             //Result is boolean
 
-            requireAssignable(lhsType, Environment.Type.COMPARABLE);
-            requireAssignable(rhsType, Environment.Type.COMPARABLE);
+            requireAssignable(Environment.Type.COMPARABLE, lhsType);
+            requireAssignable(Environment.Type.COMPARABLE, rhsType);
 
             if(lhsType.getName().compareTo(rhsType.getName()) != 0)
                 throw new RuntimeException("Mismatched comparable types in binary expression");
@@ -417,6 +451,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
             throw new RuntimeException("Unrecognized operator in Ast.Expr.Binary");
         }
 
+        ast.setOperation(BinaryOperation.of(op, lhsType, rhsType));
+
         return null;
     }
 
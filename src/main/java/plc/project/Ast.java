@@ -115,6 +115,8 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Stmt> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
+        private boolean pure = false;
 
         public Method(String name, List<String> parameters, List<Stmt> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -162,6 +164,31 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of slots in the method's frame (including the
+         * parameters), as set by the {@link Resolver}, or -1 if the method has
+         * not been resolved.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        /**
+         * Returns true if the {@link PurityAnalyzer} found the method to be
+         * pure, which is false until it has been analyzed.
+         */
+        public boolean isPure() {
+            return pure;
+        }
+
+        public void setPure(boolean pure) {
+            this.pure = pure;
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Method &&
@@ -222,6 +249,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private final Optional<Expr> value;
             private Environment.Variable variable;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Expr> value) {
                 this(name, Optional.empty(), value);
@@ -256,6 +284,18 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the slot of the variable in its method's frame, as set by the
+             * {@link Resolver}, or -1 if it has not been resolved to a local.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -361,6 +401,7 @@ public abstract class Ast {
             private final String name;
             private final Expr value;
             private final List<Stmt> statements;
+            private int slot = -1;
 
             public For(String name, Expr value, List<Stmt> statements) {
                 this.name = name;
@@ -380,6 +421,18 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns the slot of the variable in its method's frame, as set by the
+             * {@link Resolver}, or -1 if it has not been resolved to a local.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof For &&
@@ -465,12 +518,27 @@ public abstract class Ast {
 
     public static abstract class Expr extends Ast {
 
+        private Range range = null;
+
         public abstract Environment.Type getType();
 
+        /**
+         * Returns the range of values of an {@code Integer} expression, as
+         * set by the {@link RangeAnalyzer}, or null if it was not analyzed.
+         */
+        public Range getRange() {
+            return range;
+        }
+
+        public void setRange(Range range) {
+            this.range = range;
+        }
+
         public static final class Literal extends Expr {
 
             private final Object literal;
             private Environment.Type type = null;
+            private Environment.PlcObject value = null;
 
             public Literal(Object literal) {
                 this.literal = literal;
@@ -492,6 +560,17 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            /**
+             * Returns the object of the literal's value, which is created
+             * once and shared by every evaluation of the literal.
+             */
+            public Environment.PlcObject getValue() {
+                if (value == null) {
+                    value = literal == null ? Environment.NIL : Environment.create(literal);
+                }
+                return value;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Literal &&
@@ -556,6 +635,7 @@ public abstract class Ast {
             private final Expr left;
             private final Expr right;
             private Environment.Type type = null;
+            private BinaryOperation operation = null;
 
             public Binary(String operator, Expr left, Expr right) {
                 this.operator = operator;
@@ -587,6 +667,20 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            /**
+             * Returns the operation selected by the {@link Analyzer}, or null
+             * if the expression has not been analyzed or the operation could
+             * not be specialized to its operand types. As it follows from the
+             * operator and operand types, it is not part of equality.
+             */
+            public BinaryOperation getOperation() {
+                return operation;
+            }
+
+            public void setOperation(BinaryOperation operation) {
+                this.operation = operation;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
@@ -613,10 +707,13 @@ public abstract class Ast {
             private final Optional<Expr> receiver;
             private final String name;
             private Environment.Variable variable = null;
+            private int slot = -1;
+            private final InlineCache inlineCache;
 
             public Access(Optional<Expr> receiver, String name) {
                 this.receiver = receiver;
                 this.name = name;
+                this.inlineCache = receiver.isPresent() ? new InlineCache() : null;
             }
 
             public Optional<Expr> getReceiver() {
@@ -638,6 +735,26 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the slot of the variable in its method's frame, as set by the
+             * {@link Resolver}, or -1 if it has not been resolved to a local.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            /**
+             * Returns the cache of the field an access with a receiver
+             * resolves to, or null if the access has no receiver.
+             */
+            InlineCache getInlineCache() {
+                return inlineCache;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
@@ -668,11 +785,14 @@ public abstract class Ast {
             private final String name;
             private final List<Expr> arguments;
             private Environment.Function function = null;
+            private final CallSite callSite = new CallSite();
+            private final InlineCache inlineCache;
 
             public Function(Optional<Expr> receiver, String name, List<Expr> arguments) {
                 this.receiver = receiver;
                 this.name = name;
                 this.arguments = arguments;
+                this.inlineCache = receiver.isPresent() ? new InlineCache() : null;
             }
 
             public Optional<Expr> getReceiver() {
@@ -698,6 +818,22 @@ public abstract class Ast {
                 this.function = function;
             }
 
+            /**
+             * Returns the cache of the function this call resolves to at
+             * runtime, used by the {@link Interpreter}.
+             */
+            CallSite getCallSite() {
+                return callSite;
+            }
+
+            /**
+             * Returns the cache of the method a call with a receiver resolves
+             * to, or null if the call has no receiver.
+             */
+            InlineCache getInlineCache() {
+                return inlineCache;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getFunction().getReturnType();
@@ -0,0 +1,295 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * The operation performed by a binary expression, specialized to the types
+ * of its operands. The {@link Analyzer} selects an operation for each binary
+ * expression it can prove the operand types of, which lets the
+ * {@link Interpreter} apply it directly instead of dispatching on the
+ * operator and checking the operand values.
+ *
+ * {@code AND} and {@code OR} short circuit, so evaluators must only evaluate
+ * the right operand when needed; {@link #apply} takes both values.
+ *
+ * Integers stored as longs (see {@link Environment.PlcObject#isLong}) are
+ * operated on as longs by {@link #evaluate}, falling back to
+ * {@link java.math.BigInteger} when the result overflows.
+ */
+public enum BinaryOperation {
+
+    AND {
+        @Override
+        public Object apply(Object left, Object right) {
+            return (Boolean) left && (Boolean) right;
+        }
+    },
+    OR {
+        @Override
+        public Object apply(Object left, Object right) {
+            return (Boolean) left || (Boolean) right;
+        }
+    },
+    LESS {
+        @Override
+        public Object apply(Object left, Object right) {
+            return compare(left, right) < 0;
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left < right);
+        }
+    },
+    LESS_EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return compare(left, right) <= 0;
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left <= right);
+        }
+    },
+    GREATER {
+        @Override
+        public Object apply(Object left, Object right) {
+            return compare(left, right) > 0;
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left > right);
+        }
+    },
+    GREATER_EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return compare(left, right) >= 0;
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left >= right);
+        }
+    },
+    EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return left.equals(right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left == right);
+        }
+    },
+    NOT_EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return !left.equals(right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return Environment.create(left != right);
+        }
+    },
+    STRING_CONCAT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((String) left).concat((String) right);
+        }
+    },
+    INTEGER_ADD {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).add((BigInteger) right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            long result = left + right;
+            return ((left ^ result) & (right ^ result)) < 0 ? null : Environment.create(result);
+        }
+    },
+    INTEGER_SUBTRACT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).subtract((BigInteger) right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            long result = left - right;
+            return ((left ^ right) & (left ^ result)) < 0 ? null : Environment.create(result);
+        }
+    },
+    INTEGER_MULTIPLY {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).multiply((BigInteger) right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            long high = Math.multiplyHigh(left, right);
+            long result = left * right;
+            return high == (result >> 63) ? Environment.create(result) : null;
+        }
+    },
+    INTEGER_DIVIDE {
+        @Override
+        public Object apply(Object left, Object right) {
+            if (((BigInteger) right).signum() == 0) {
+                throw new RuntimeException("Divide by zero");
+            }
+            return ((BigInteger) left).divide((BigInteger) right);
+        }
+
+        @Override
+        Environment.PlcObject evaluate(long left, long right) {
+            return right == 0 || (left == Long.MIN_VALUE && right == -1) ? null : Environment.create(left / right);
+        }
+    },
+    DECIMAL_ADD {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).add((BigDecimal) right);
+        }
+    },
+    DECIMAL_SUBTRACT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).subtract((BigDecimal) right);
+        }
+    },
+    DECIMAL_MULTIPLY {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).multiply((BigDecimal) right);
+        }
+    },
+    DECIMAL_DIVIDE {
+        @Override
+        public Object apply(Object left, Object right) {
+            if (((BigDecimal) right).signum() == 0) {
+                throw new RuntimeException("Divide by zero");
+            }
+            return ((BigDecimal) left).divide((BigDecimal) right, RoundingMode.HALF_EVEN);
+        }
+    };
+
+    /**
+     * Applies the operation to the values of its operands.
+     */
+    public abstract Object apply(Object left, Object right);
+
+    /**
+     * Applies the operation to its operands, without creating the
+     * {@link BigInteger} of integers stored as longs when the result also
+     * fits in a long.
+     */
+    public Environment.PlcObject evaluate(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.isLong() && right.isLong()) {
+            Environment.PlcObject result = evaluate(left.getLong(), right.getLong());
+            if (result != null) {
+                return result;
+            }
+        }
+        return Environment.create(apply(left.getValue(), right.getValue()));
+    }
+
+    /**
+     * Applies the operation to integers, returning null if it does not
+     * apply to integers or the result does not fit in a long.
+     */
+    Environment.PlcObject evaluate(long left, long right) {
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object left, Object right) {
+        return ((Comparable<Object>) left).compareTo(right);
+    }
+
+    /**
+     * Applies an operator the {@link Analyzer} did not select an operation
+     * for, selecting it from the classes of the values. As in the generated
+     * Java, {@code +} concatenates if either value is a string. Evaluators
+     * must short circuit {@code AND} and {@code OR} themselves.
+     */
+    public static Environment.PlcObject evaluate(String operator, Environment.PlcObject left, Environment.PlcObject right) {
+        if (operator.equals("+") && (left.getValue() instanceof String || right.getValue() instanceof String)) {
+            return Environment.create(String.valueOf(left.getValue()) + right.getValue());
+        }
+        Environment.Type lhs = typeOf(left.getValue());
+        Environment.Type rhs = typeOf(right.getValue());
+        BinaryOperation operation = of(operator, lhs, rhs);
+        if (operation == null) {
+            throw new RuntimeException("Unsupported operand types for " + operator + ": " + lhs.getName() + " and " + rhs.getName() + ".");
+        }
+        return operation.evaluate(left, right);
+    }
+
+    /**
+     * Returns the type of a runtime value, which unlike the type of its
+     * {@link Environment.PlcObject} is known for primitive values.
+     */
+    private static Environment.Type typeOf(Object value) {
+        if (value instanceof Boolean) {
+            return Environment.Type.BOOLEAN;
+        } else if (value instanceof BigInteger) {
+            return Environment.Type.INTEGER;
+        } else if (value instanceof BigDecimal) {
+            return Environment.Type.DECIMAL;
+        } else if (value instanceof Character) {
+            return Environment.Type.CHARACTER;
+        } else if (value instanceof String) {
+            return Environment.Type.STRING;
+        } else if (value == null) {
+            return Environment.Type.NIL;
+        }
+        return Environment.Type.ANY;
+    }
+
+    /**
+     * Selects the operation for an operator with operands of the given types,
+     * or returns null if it cannot be specialized (such as concatenating a
+     * string with a value of another type).
+     */
+    public static BinaryOperation of(String operator, Environment.Type left, Environment.Type right) {
+        switch (operator) {
+            case "AND": return AND;
+            case "OR": return OR;
+            case "<": return LESS;
+            case "<=": return LESS_EQUAL;
+            case ">": return GREATER;
+            case ">=": return GREATER_EQUAL;
+            case "==": return EQUAL;
+            case "!=": return NOT_EQUAL;
+        }
+        if (operator.equals("+") && left.equals(Environment.Type.STRING) && right.equals(Environment.Type.STRING)) {
+            return STRING_CONCAT;
+        } else if (left.equals(Environment.Type.INTEGER) && right.equals(Environment.Type.INTEGER)) {
+            switch (operator) {
+                case "+": return INTEGER_ADD;
+                case "-": return INTEGER_SUBTRACT;
+                case "*": return INTEGER_MULTIPLY;
+                case "/": return INTEGER_DIVIDE;
+            }
+        } else if (left.equals(Environment.Type.DECIMAL) && right.equals(Environment.Type.DECIMAL)) {
+            switch (operator) {
+                case "+": return DECIMAL_ADD;
+                case "-": return DECIMAL_SUBTRACT;
+                case "*": return DECIMAL_MULTIPLY;
+                case "/": return DECIMAL_DIVIDE;
+            }
+        }
+        return null;
+    }
+
+}
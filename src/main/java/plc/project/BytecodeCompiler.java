@@ -0,0 +1,678 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an analyzed {@link Ast.Source} to JVM bytecode, which is loaded
+ * as a hidden class so it runs without writing or compiling Java source.
+ *
+ * The program is translated as the {@link Generator} translates it: values
+ * have the JVM types of their {@link Environment.Type}s (so {@code Integer}
+ * is an {@code int} and {@code Decimal} a {@code double}), fields are static
+ * fields, and methods are static methods. Functions and variables that are
+ * not defined by the source, such as {@code print}, are called through the
+ * scope as by the {@link Interpreter}, converting values to and from the
+ * interpreter's values ({@link BigInteger}, {@link BigDecimal} and so on,
+ * with {@code null} for {@code NIL}). Values of {@code Any} and other object
+ * types are kept as interpreter values.
+ *
+ * Accessing fields and calling methods of a receiver are not supported.
+ */
+public final class BytecodeCompiler {
+
+    private static final String FUNCTION = "plc/project/Environment$Function";
+    private static final String VARIABLE = "plc/project/Environment$Variable";
+    private static final String PLC_OBJECT = "plc/project/Environment$PlcObject";
+    private static final String SELF = "plc/project/BytecodeCompiler";
+
+    private final Scope scope;
+
+    public BytecodeCompiler(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public Program compile(Ast.Source ast) {
+        ClassWriter writer = new ClassWriter("plc/project/Program", "java/lang/Object");
+        Unit unit = new Unit(writer, ast);
+        byte[] bytes = unit.write();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            Class<?> type = lookup.lookupClass();
+            lookup.findStaticSetter(type, "$functions", Environment.Function[].class).invoke(unit.functions.toArray(new Environment.Function[0]));
+            lookup.findStaticSetter(type, "$variables", Environment.Variable[].class).invoke(unit.variables.toArray(new Environment.Variable[0]));
+            MethodHandle initialize = lookup.findStatic(type, "$init", MethodType.methodType(void.class));
+            MethodHandle main = null;
+            for (Ast.Method method : ast.getMethods()) {
+                if (method.getName().equals("main") && method.getParameters().isEmpty()) {
+                    main = lookup.findStatic(type, method.getFunction().getJvmName(), MethodType.fromMethodDescriptorString(unit.methodDescriptor(method.getFunction()), type.getClassLoader()));
+                }
+            }
+            return new Program(initialize, main);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException("Unable to load the compiled program: " + t.getMessage(), t);
+        }
+    }
+
+    /**
+     * A compiled source, which runs by initializing its fields and invoking
+     * {@code main}.
+     */
+    public static final class Program {
+
+        private final MethodHandle initialize;
+        private final MethodHandle main;
+
+        private Program(MethodHandle initialize, MethodHandle main) {
+            this.initialize = initialize;
+            this.main = main;
+        }
+
+        public Environment.PlcObject run() {
+            try {
+                initialize.invoke();
+                if (main == null) {
+                    throw new RuntimeException("The function main/0 is not defined in this scope.");
+                }
+                return wrap(toValue(main.invoke()));
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new RuntimeException(t);
+            }
+        }
+
+        /**
+         * Converts a boxed JVM value returned by main to an interpreter value.
+         */
+        private static Object toValue(Object value) {
+            if (value instanceof Integer) {
+                return BigInteger.valueOf((Integer) value);
+            } else if (value instanceof Double) {
+                return BigDecimal.valueOf((Double) value);
+            }
+            return value;
+        }
+
+    }
+
+    /**
+     * Calls a function defined outside the source with interpreter values,
+     * which is called by the compiled code.
+     */
+    static Object call(Environment.Function function, Object[] arguments) {
+        List<Environment.PlcObject> values = new ArrayList<>(arguments.length);
+        for (Object argument : arguments) {
+            values.add(wrap(argument));
+        }
+        return unwrap(function.invoke(values));
+    }
+
+    static Environment.PlcObject wrap(Object value) {
+        return value == null ? Environment.NIL : Environment.create(value);
+    }
+
+    static Object unwrap(Environment.PlcObject object) {
+        return object == Environment.NIL ? null : object.getValue();
+    }
+
+    /**
+     * Compiles a source to a single class.
+     */
+    private final class Unit {
+
+        private final ClassWriter writer;
+        private final Ast.Source source;
+        private final Map<Environment.Variable, Ast.Field> fields = new IdentityHashMap<>();
+        private final Map<String, Ast.Field> fieldNames = new HashMap<>();
+        private final Map<String, Ast.Method> methods = new HashMap<>();
+        private final List<Environment.Function> functions = new ArrayList<>();
+        private final List<Environment.Variable> variables = new ArrayList<>();
+
+        private ClassWriter.Code code;
+        private Environment.Function function;
+        private final List<Map<String, Local>> blocks = new ArrayList<>();
+
+        private Unit(ClassWriter writer, Ast.Source source) {
+            this.writer = writer;
+            this.source = source;
+        }
+
+        private byte[] write() {
+            writer.addField(ClassWriter.ACC_STATIC, "$functions", "[L" + FUNCTION + ";");
+            writer.addField(ClassWriter.ACC_STATIC, "$variables", "[L" + VARIABLE + ";");
+            for (Ast.Field field : source.getFields()) {
+                writer.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, field.getVariable().getJvmName(), descriptor(field.getVariable().getType()));
+            }
+            for (Ast.Method method : source.getMethods()) {
+                methods.put(method.getName() + "/" + method.getParameters().size(), method);
+            }
+            code = writer.addMethod(ClassWriter.ACC_STATIC, "$init", "()V");
+            for (Ast.Field field : source.getFields()) {
+                Environment.Type type = field.getVariable().getType();
+                if (field.getValue().isPresent()) {
+                    compile(field.getValue().get(), type);
+                } else {
+                    defaultValue(type);
+                }
+                code.field(ClassWriter.PUTSTATIC, writer.getName(), field.getVariable().getJvmName(), descriptor(type));
+                fields.put(field.getVariable(), field);
+                fieldNames.put(field.getName(), field);
+            }
+            code.op(ClassWriter.RETURN, 0);
+            for (Ast.Method method : source.getMethods()) {
+                compile(method);
+            }
+            return writer.toByteArray();
+        }
+
+        private void compile(Ast.Method method) {
+            function = method.getFunction();
+            code = writer.addMethod(ClassWriter.ACC_STATIC, function.getJvmName(), methodDescriptor(function));
+            blocks.add(new HashMap<>());
+            int index = 0;
+            for (int i = 0; i < method.getParameters().size(); i++) {
+                Environment.Type type = function.getParameterTypes().get(i);
+                blocks.get(0).put(method.getParameters().get(i), new Local(index, type));
+                index += size(type);
+            }
+            compile(method.getStatements());
+            if (code.isReachable()) {
+                Environment.Type type = function.getReturnType();
+                if (type.equals(Environment.Type.NIL)) {
+                    code.op(ClassWriter.RETURN, 0);
+                } else {
+                    defaultValue(type);
+                    code.op(returnOpcode(type), -size(type));
+                }
+            }
+            blocks.clear();
+        }
+
+        private void compileBlock(List<Ast.Stmt> statements) {
+            blocks.add(new HashMap<>());
+            compile(statements);
+            blocks.remove(blocks.size() - 1);
+        }
+
+        private void compile(List<Ast.Stmt> statements) {
+            for (Ast.Stmt statement : statements) {
+                compile(statement);
+            }
+        }
+
+        private void compile(Ast.Stmt ast) {
+            if (ast instanceof Ast.Stmt.Expression) {
+                Ast.Expr expression = ((Ast.Stmt.Expression) ast).getExpression();
+                compile(expression, expression.getType());
+                code.op(size(expression.getType()) == 2 ? ClassWriter.POP2 : ClassWriter.POP, -size(expression.getType()));
+            } else if (ast instanceof Ast.Stmt.Declaration) {
+                Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) ast;
+                Environment.Type type = declaration.getVariable().getType();
+                if (declaration.getValue().isPresent()) {
+                    compile(declaration.getValue().get(), type);
+                } else {
+                    defaultValue(type);
+                }
+                Local local = new Local(code.allocate(size(type)), type);
+                blocks.get(blocks.size() - 1).put(declaration.getName(), local);
+                code.local(storeOpcode(type), local.index);
+            } else if (ast instanceof Ast.Stmt.Assignment) {
+                compileAssignment((Ast.Stmt.Assignment) ast);
+            } else if (ast instanceof Ast.Stmt.If) {
+                Ast.Stmt.If statement = (Ast.Stmt.If) ast;
+                ClassWriter.Label otherwise = new ClassWriter.Label();
+                ClassWriter.Label end = new ClassWriter.Label();
+                compile(statement.getCondition(), Environment.Type.BOOLEAN);
+                code.jump(ClassWriter.IFEQ, otherwise, 1);
+                compileBlock(statement.getThenStatements());
+                if (code.isReachable()) {
+                    code.jump(ClassWriter.GOTO, end, 0);
+                }
+                code.mark(otherwise);
+                compileBlock(statement.getElseStatements());
+                code.mark(end);
+            } else if (ast instanceof Ast.Stmt.For) {
+                compileFor((Ast.Stmt.For) ast);
+            } else if (ast instanceof Ast.Stmt.While) {
+                Ast.Stmt.While statement = (Ast.Stmt.While) ast;
+                ClassWriter.Label condition = new ClassWriter.Label();
+                ClassWriter.Label end = new ClassWriter.Label();
+                code.mark(condition);
+                compile(statement.getCondition(), Environment.Type.BOOLEAN);
+                code.jump(ClassWriter.IFEQ, end, 1);
+                compileBlock(statement.getStatements());
+                if (code.isReachable()) {
+                    code.jump(ClassWriter.GOTO, condition, 0);
+                }
+                code.mark(end);
+            } else if (ast instanceof Ast.Stmt.Return) {
+                Environment.Type type = function.getReturnType();
+                Ast.Expr value = ((Ast.Stmt.Return) ast).getValue();
+                if (type.equals(Environment.Type.NIL)) {
+                    compile(value, value.getType());
+                    code.op(size(value.getType()) == 2 ? ClassWriter.POP2 : ClassWriter.POP, -size(value.getType()));
+                    code.op(ClassWriter.RETURN, 0);
+                } else {
+                    compile(value, type);
+                    code.op(returnOpcode(type), -size(type));
+                }
+            } else {
+                throw new AssertionError(ast.getClass());
+            }
+        }
+
+        private void compileAssignment(Ast.Stmt.Assignment ast) {
+            if (!(ast.getReceiver() instanceof Ast.Expr.Access) || ((Ast.Expr.Access) ast.getReceiver()).getReceiver().isPresent()) {
+                throw new RuntimeException("Assigning to a field of a receiver is not supported by the bytecode compiler.");
+            }
+            Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+            Local local = lookup(access.getName());
+            Ast.Field field = field(access);
+            if (local != null) {
+                compile(ast.getValue(), local.type);
+                code.local(storeOpcode(local.type), local.index);
+            } else if (field != null) {
+                Environment.Type type = field.getVariable().getType();
+                compile(ast.getValue(), type);
+                code.field(ClassWriter.PUTSTATIC, writer.getName(), field.getVariable().getJvmName(), descriptor(type));
+            } else {
+                variable(access.getName());
+                compile(ast.getValue(), Environment.Type.ANY);
+                code.invoke(ClassWriter.INVOKESTATIC, SELF, "wrap", "(Ljava/lang/Object;)L" + PLC_OBJECT + ";");
+                code.invoke(ClassWriter.INVOKEVIRTUAL, VARIABLE, "setValue", "(L" + PLC_OBJECT + ";)V");
+            }
+        }
+
+        /**
+         * Compiles a FOR loop over an iterable of interpreter values, as
+         * returned by a function outside the source.
+         */
+        private void compileFor(Ast.Stmt.For ast) {
+            ClassWriter.Label next = new ClassWriter.Label();
+            ClassWriter.Label end = new ClassWriter.Label();
+            compile(ast.getValue(), ast.getValue().getType());
+            code.type(ClassWriter.CHECKCAST, "java/lang/Iterable");
+            code.invoke(ClassWriter.INVOKEINTERFACE, "java/lang/Iterable", "iterator", "()Ljava/util/Iterator;");
+            int iterator = code.allocate(1);
+            code.local(ClassWriter.ASTORE, iterator);
+            blocks.add(new HashMap<>());
+            Local local = new Local(code.allocate(1), Environment.Type.INTEGER);
+            blocks.get(blocks.size() - 1).put(ast.getName(), local);
+            code.mark(next);
+            code.local(ClassWriter.ALOAD, iterator);
+            code.invoke(ClassWriter.INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+            code.jump(ClassWriter.IFEQ, end, 1);
+            code.local(ClassWriter.ALOAD, iterator);
+            code.invoke(ClassWriter.INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;");
+            code.type(ClassWriter.CHECKCAST, PLC_OBJECT);
+            code.invoke(ClassWriter.INVOKESTATIC, SELF, "unwrap", "(L" + PLC_OBJECT + ";)Ljava/lang/Object;");
+            fromValue(local.type);
+            code.local(ClassWriter.ISTORE, local.index);
+            compileBlock(ast.getStatements());
+            blocks.remove(blocks.size() - 1);
+            if (code.isReachable()) {
+                code.jump(ClassWriter.GOTO, next, 0);
+            }
+            code.mark(end);
+        }
+
+        /**
+         * Compiles an expression, leaving its value on the stack converted to
+         * the given type.
+         */
+        private void compile(Ast.Expr ast, Environment.Type type) {
+            if (ast instanceof Ast.Expr.Literal) {
+                compileLiteral(((Ast.Expr.Literal) ast).getLiteral(), ast.getType());
+            } else if (ast instanceof Ast.Expr.Group) {
+                compile(((Ast.Expr.Group) ast).getExpression(), ast.getType());
+            } else if (ast instanceof Ast.Expr.Binary) {
+                compileBinary((Ast.Expr.Binary) ast);
+            } else if (ast instanceof Ast.Expr.Access) {
+                compileAccess((Ast.Expr.Access) ast);
+            } else if (ast instanceof Ast.Expr.Function) {
+                compileFunction((Ast.Expr.Function) ast);
+            } else {
+                throw new AssertionError(ast.getClass());
+            }
+            convert(ast.getType(), type);
+        }
+
+        private void compileLiteral(Object literal, Environment.Type type) {
+            if (literal == null) {
+                code.op(ClassWriter.ACONST_NULL, 1);
+            } else if (literal instanceof Boolean) {
+                code.iconst((Boolean) literal ? 1 : 0);
+            } else if (literal instanceof Character) {
+                code.iconst((Character) literal);
+            } else if (literal instanceof BigInteger) {
+                if (((BigInteger) literal).bitLength() > 31) {
+                    throw new RuntimeException("The integer " + literal + " does not fit in an int.");
+                }
+                code.iconst(((BigInteger) literal).intValue());
+            } else if (literal instanceof BigDecimal) {
+                code.ldc2(writer.doubleConstant(((BigDecimal) literal).doubleValue()));
+            } else {
+                code.ldc(writer.stringConstant((String) literal));
+            }
+        }
+
+        private void compileBinary(Ast.Expr.Binary ast) {
+            String operator = ast.getOperator();
+            Environment.Type left = ast.getLeft().getType();
+            if (operator.equals("AND") || operator.equals("OR")) {
+                ClassWriter.Label shortCircuit = new ClassWriter.Label();
+                ClassWriter.Label end = new ClassWriter.Label();
+                int opcode = operator.equals("AND") ? ClassWriter.IFEQ : ClassWriter.IFNE;
+                compile(ast.getLeft(), Environment.Type.BOOLEAN);
+                code.jump(opcode, shortCircuit, 1);
+                compile(ast.getRight(), Environment.Type.BOOLEAN);
+                code.jump(opcode, shortCircuit, 1);
+                code.iconst(operator.equals("AND") ? 1 : 0);
+                code.jump(ClassWriter.GOTO, end, 0);
+                code.mark(shortCircuit);
+                code.iconst(operator.equals("AND") ? 0 : 1);
+                code.mark(end);
+            } else if (operator.equals("+") && ast.getType().equals(Environment.Type.STRING)) {
+                code.type(ClassWriter.NEW, "java/lang/StringBuilder");
+                code.op(ClassWriter.DUP, 1);
+                code.invoke(ClassWriter.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+                for (Ast.Expr operand : List.of(ast.getLeft(), ast.getRight())) {
+                    compile(operand, operand.getType());
+                    String descriptor = descriptor(operand.getType());
+                    if (descriptor.startsWith("L") && !descriptor.equals("Ljava/lang/String;")) {
+                        descriptor = "Ljava/lang/Object;";
+                    }
+                    code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + descriptor + ")Ljava/lang/StringBuilder;");
+                }
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+            } else if (ast.getType().equals(Environment.Type.BOOLEAN)) {
+                compileComparison(operator, left, ast.getLeft(), ast.getRight());
+            } else if (left.equals(Environment.Type.DECIMAL)) {
+                compile(ast.getLeft(), left);
+                compile(ast.getRight(), left);
+                code.op(operator.equals("+") ? ClassWriter.DADD : operator.equals("-") ? ClassWriter.DSUB : operator.equals("*") ? ClassWriter.DMUL : ClassWriter.DDIV, -2);
+            } else {
+                compile(ast.getLeft(), left);
+                compile(ast.getRight(), left);
+                if (ast.getRange() != null && !ast.getRange().isInt() && !operator.equals("/")) {
+                    //The RangeAnalyzer could not prove the result fits in an int
+                    String method = operator.equals("+") ? "addExact" : operator.equals("-") ? "subtractExact" : "multiplyExact";
+                    code.invoke(ClassWriter.INVOKESTATIC, "java/lang/Math", method, "(II)I");
+                } else {
+                    code.op(operator.equals("+") ? ClassWriter.IADD : operator.equals("-") ? ClassWriter.ISUB : operator.equals("*") ? ClassWriter.IMUL : ClassWriter.IDIV, -1);
+                }
+            }
+        }
+
+        /**
+         * Compiles a comparison of operands of the same type to a boolean,
+         * comparing objects with {@code equals} and {@code compareTo}.
+         */
+        private void compileComparison(String operator, Environment.Type type, Ast.Expr left, Ast.Expr right) {
+            compile(left, type);
+            compile(right, type);
+            String descriptor = descriptor(type);
+            int opcode = operator.equals("<") ? ClassWriter.IFLT : operator.equals("<=") ? ClassWriter.IFLE
+                    : operator.equals(">") ? ClassWriter.IFGT : operator.equals(">=") ? ClassWriter.IFGE
+                    : operator.equals("==") ? ClassWriter.IFEQ : ClassWriter.IFNE;
+            int pop = 1;
+            if (descriptor.equals("I") || descriptor.equals("C") || descriptor.equals("Z")) {
+                opcode += ClassWriter.IF_ICMPEQ - ClassWriter.IFEQ;
+                pop = 2;
+            } else if (descriptor.equals("D")) {
+                code.op(operator.startsWith("<") ? ClassWriter.DCMPG : ClassWriter.DCMPL, -3);
+            } else if (operator.equals("==") || operator.equals("!=")) {
+                code.invoke(ClassWriter.INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+                opcode = operator.equals("==") ? ClassWriter.IFNE : ClassWriter.IFEQ;
+            } else {
+                code.invoke(ClassWriter.INVOKEINTERFACE, "java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+            }
+            ClassWriter.Label isTrue = new ClassWriter.Label();
+            ClassWriter.Label end = new ClassWriter.Label();
+            code.jump(opcode, isTrue, pop);
+            code.iconst(0);
+            code.jump(ClassWriter.GOTO, end, 0);
+            code.mark(isTrue);
+            code.iconst(1);
+            code.mark(end);
+        }
+
+        private void compileAccess(Ast.Expr.Access ast) {
+            if (ast.getReceiver().isPresent()) {
+                throw new RuntimeException("Accessing a field of a receiver is not supported by the bytecode compiler.");
+            }
+            Local local = lookup(ast.getName());
+            Ast.Field field = field(ast);
+            if (local != null) {
+                code.local(loadOpcode(local.type), local.index);
+                convert(local.type, ast.getType());
+            } else if (field != null) {
+                Environment.Type type = field.getVariable().getType();
+                code.field(ClassWriter.GETSTATIC, writer.getName(), field.getVariable().getJvmName(), descriptor(type));
+                convert(type, ast.getType());
+            } else {
+                variable(ast.getName());
+                code.invoke(ClassWriter.INVOKEVIRTUAL, VARIABLE, "getValue", "()L" + PLC_OBJECT + ";");
+                code.invoke(ClassWriter.INVOKESTATIC, SELF, "unwrap", "(L" + PLC_OBJECT + ";)Ljava/lang/Object;");
+                fromValue(ast.getType());
+            }
+        }
+
+        private void compileFunction(Ast.Expr.Function ast) {
+            if (ast.getReceiver().isPresent()) {
+                throw new RuntimeException("Calling a method of a receiver is not supported by the bytecode compiler.");
+            }
+            List<Ast.Expr> arguments = ast.getArguments();
+            Ast.Method method = methods.get(ast.getName() + "/" + arguments.size());
+            if (method != null) {
+                Environment.Function function = method.getFunction();
+                for (int i = 0; i < arguments.size(); i++) {
+                    compile(arguments.get(i), function.getParameterTypes().get(i));
+                }
+                code.invoke(ClassWriter.INVOKESTATIC, writer.getName(), function.getJvmName(), methodDescriptor(function));
+                if (function.getReturnType().equals(Environment.Type.NIL)) {
+                    code.op(ClassWriter.ACONST_NULL, 1);
+                }
+                convert(function.getReturnType(), ast.getType());
+                return;
+            }
+            Environment.Function function = scope.lookupFunction(ast.getName(), arguments.size());
+            int index = functions.indexOf(function);
+            if (index < 0) {
+                index = functions.size();
+                functions.add(function);
+            }
+            code.field(ClassWriter.GETSTATIC, writer.getName(), "$functions", "[L" + FUNCTION + ";");
+            code.iconst(index);
+            code.op(ClassWriter.AALOAD, -1);
+            code.iconst(arguments.size());
+            code.type(ClassWriter.ANEWARRAY, "java/lang/Object");
+            for (int i = 0; i < arguments.size(); i++) {
+                code.op(ClassWriter.DUP, 1);
+                code.iconst(i);
+                compile(arguments.get(i), Environment.Type.ANY);
+                code.op(ClassWriter.AASTORE, -3);
+            }
+            code.invoke(ClassWriter.INVOKESTATIC, SELF, "call", "(L" + FUNCTION + ";[Ljava/lang/Object;)Ljava/lang/Object;");
+            fromValue(ast.getType());
+        }
+
+        /**
+         * Pushes the variable defined outside the source with the given name.
+         */
+        private void variable(String name) {
+            Environment.Variable variable = scope.lookupVariable(name);
+            int index = variables.indexOf(variable);
+            if (index < 0) {
+                index = variables.size();
+                variables.add(variable);
+            }
+            code.field(ClassWriter.GETSTATIC, writer.getName(), "$variables", "[L" + VARIABLE + ";");
+            code.iconst(index);
+            code.op(ClassWriter.AALOAD, -1);
+        }
+
+        private Local lookup(String name) {
+            for (int i = blocks.size() - 1; i >= 0; i--) {
+                Local local = blocks.get(i).get(name);
+                if (local != null) {
+                    return local;
+                }
+            }
+            return null;
+        }
+
+        private Ast.Field field(Ast.Expr.Access ast) {
+            Ast.Field field = ast.getVariable() != null ? fields.get(ast.getVariable()) : null;
+            return field != null ? field : fieldNames.get(ast.getName());
+        }
+
+        /**
+         * Converts the value on the stack from one type to another, boxing
+         * primitives as interpreter values when converting to an object type.
+         */
+        private void convert(Environment.Type from, Environment.Type to) {
+            String value = descriptor(from);
+            String target = descriptor(to);
+            if (value.equals(target) || !target.startsWith("L")) {
+                return;
+            } else if (value.equals("I")) {
+                code.op(ClassWriter.I2L, 1);
+                code.invoke(ClassWriter.INVOKESTATIC, "java/math/BigInteger", "valueOf", "(J)Ljava/math/BigInteger;");
+            } else if (value.equals("D")) {
+                code.invoke(ClassWriter.INVOKESTATIC, "java/math/BigDecimal", "valueOf", "(D)Ljava/math/BigDecimal;");
+            } else if (value.equals("Z")) {
+                code.invoke(ClassWriter.INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;");
+            } else if (value.equals("C")) {
+                code.invoke(ClassWriter.INVOKESTATIC, "java/lang/Character", "valueOf", "(C)Ljava/lang/Character;");
+            }
+        }
+
+        /**
+         * Converts the interpreter value on the stack to a value of a type.
+         */
+        private void fromValue(Environment.Type type) {
+            switch (descriptor(type)) {
+                case "I":
+                    code.type(ClassWriter.CHECKCAST, "java/math/BigInteger");
+                    code.invoke(ClassWriter.INVOKEVIRTUAL, "java/math/BigInteger", "intValueExact", "()I");
+                    break;
+                case "D":
+                    code.type(ClassWriter.CHECKCAST, "java/math/BigDecimal");
+                    code.invoke(ClassWriter.INVOKEVIRTUAL, "java/math/BigDecimal", "doubleValue", "()D");
+                    break;
+                case "Z":
+                    code.type(ClassWriter.CHECKCAST, "java/lang/Boolean");
+                    code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+                    break;
+                case "C":
+                    code.type(ClassWriter.CHECKCAST, "java/lang/Character");
+                    code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C");
+                    break;
+                case "Ljava/lang/Object;":
+                    break;
+                default:
+                    String descriptor = descriptor(type);
+                    code.type(ClassWriter.CHECKCAST, descriptor.substring(1, descriptor.length() - 1));
+            }
+        }
+
+        private void defaultValue(Environment.Type type) {
+            String descriptor = descriptor(type);
+            if (descriptor.equals("D")) {
+                code.ldc2(writer.doubleConstant(0.0));
+            } else if (descriptor.startsWith("L")) {
+                code.op(ClassWriter.ACONST_NULL, 1);
+            } else {
+                code.iconst(0);
+            }
+        }
+
+        private String methodDescriptor(Environment.Function function) {
+            StringBuilder builder = new StringBuilder("(");
+            for (Environment.Type type : function.getParameterTypes()) {
+                builder.append(descriptor(type));
+            }
+            builder.append(")");
+            return builder.append(function.getReturnType().equals(Environment.Type.NIL) ? "V" : descriptor(function.getReturnType())).toString();
+        }
+
+    }
+
+    /**
+     * A local variable, at an index of the JVM's local variables.
+     */
+    private static final class Local {
+
+        private final int index;
+        private final Environment.Type type;
+
+        private Local(int index, Environment.Type type) {
+            this.index = index;
+            this.type = type;
+        }
+
+    }
+
+    /**
+     * Returns the JVM descriptor of the values of a type, from its JVM name.
+     */
+    private static String descriptor(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "int":
+                return "I";
+            case "double":
+                return "D";
+            case "boolean":
+                return "Z";
+            case "char":
+                return "C";
+            case "String":
+                return "Ljava/lang/String;";
+            case "Comparable":
+                return "Ljava/lang/Comparable;";
+            case "Iterable<Integer>":
+                return "Ljava/lang/Iterable;";
+            default:
+                return "Ljava/lang/Object;";
+        }
+    }
+
+    private static int size(Environment.Type type) {
+        return descriptor(type).equals("D") ? 2 : 1;
+    }
+
+    private static int loadOpcode(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.equals("D") ? ClassWriter.DLOAD : descriptor.startsWith("L") ? ClassWriter.ALOAD : ClassWriter.ILOAD;
+    }
+
+    private static int storeOpcode(Environment.Type type) {
+        return loadOpcode(type) + (ClassWriter.ISTORE - ClassWriter.ILOAD);
+    }
+
+    private static int returnOpcode(Environment.Type type) {
+        String descriptor = descriptor(type);
+        return descriptor.equals("D") ? ClassWriter.DRETURN : descriptor.startsWith("L") ? ClassWriter.ARETURN : ClassWriter.IRETURN;
+    }
+
+}
@@ -0,0 +1,111 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The calls between the methods of an analyzed source. Methods and calls are
+ * keyed by the {@link Environment.Function} the {@link Analyzer} set on them,
+ * so a call is to a method of the source exactly when its function is one of
+ * {@link #getMethods()}; any other function is defined outside the source
+ * (such as {@code print}).
+ *
+ * Calls with a receiver call a method of the receiver's type, which is not
+ * known statically, and are only recorded as unknown calls.
+ */
+public final class CallGraph {
+
+    private final Map<Environment.Function, Ast.Method> methods = new IdentityHashMap<>();
+    private final Map<Environment.Function, Set<Environment.Function>> callees = new IdentityHashMap<>();
+    private final Set<Environment.Function> unknown = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private CallGraph() {}
+
+    public static CallGraph of(Ast.Source source) {
+        CallGraph graph = new CallGraph();
+        for (Ast.Method method : source.getMethods()) {
+            graph.methods.put(method.getFunction(), method);
+        }
+        for (Ast.Method method : source.getMethods()) {
+            Set<Environment.Function> calls = Collections.newSetFromMap(new IdentityHashMap<>());
+            new Calls(calls, () -> graph.unknown.add(method.getFunction())).visit(method);
+            graph.callees.put(method.getFunction(), calls);
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the methods of the source by their functions.
+     */
+    public Map<Environment.Function, Ast.Method> getMethods() {
+        return Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * Returns the functions called by a method without a receiver.
+     */
+    public Set<Environment.Function> getCallees(Environment.Function function) {
+        return Collections.unmodifiableSet(callees.getOrDefault(function, Collections.emptySet()));
+    }
+
+    /**
+     * Returns true if the method calls a method on a receiver.
+     */
+    public boolean hasUnknownCalls(Environment.Function function) {
+        return unknown.contains(function);
+    }
+
+    /**
+     * Returns the methods of the source reachable through calls from the
+     * given functions, including those functions themselves.
+     */
+    public Set<Environment.Function> getReachable(Iterable<Environment.Function> roots) {
+        Set<Environment.Function> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Environment.Function> pending = new ArrayDeque<>();
+        roots.forEach(pending::add);
+        while (!pending.isEmpty()) {
+            Environment.Function function = pending.pop();
+            if (methods.containsKey(function) && reachable.add(function)) {
+                pending.addAll(callees.get(function));
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Returns true if the method may call itself, directly or indirectly.
+     */
+    public boolean isRecursive(Environment.Function function) {
+        return getReachable(getCallees(function)).contains(function);
+    }
+
+    /**
+     * Collects the functions called (without a receiver) in a subtree.
+     */
+    static final class Calls extends Rewriter {
+
+        private final Set<Environment.Function> calls;
+        private final Runnable unknown;
+
+        Calls(Set<Environment.Function> calls, Runnable unknown) {
+            this.calls = calls;
+            this.unknown = unknown;
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Function ast) {
+            if (ast.getReceiver().isPresent()) {
+                unknown.run();
+            } else {
+                calls.add(ast.getFunction());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package plc.project;
+
+/**
+ * The cache of a call without a receiver, kept by its
+ * {@link Ast.Expr.Function}, which saves the {@link Interpreter} looking up
+ * the function through the scope chain on every call.
+ *
+ * The cache holds the function and the scope defining it. A function is
+ * never redefined in its scope, so the cached function is reused for calls
+ * from any scope below the definer in which no scope in between defines a
+ * function of the same name and arity (see {@link Scope#isFunctionVisible}).
+ * This holds across invocations of a method, each of which calls from a new
+ * scope, and is not affected by functions defined elsewhere. Entries are
+ * immutable, so a call site may be shared by interpreters on several
+ * threads.
+ */
+final class CallSite {
+
+    private volatile Entry entry = null;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Returns the function a call from the given scope resolves to.
+     */
+    Environment.Function lookup(Scope scope, String name, int arity) {
+        Entry cached = entry;
+        if (cached != null && scope.isFunctionVisible(cached.definer, cached.key)) {
+            hits++;
+            return cached.function;
+        }
+        misses++;
+        String key = name + "/" + arity;
+        Scope definer = scope.lookupFunctionScope(key);
+        Environment.Function function = definer.lookupFunction(name, arity);
+        entry = new Entry(definer, key, function);
+        return function;
+    }
+
+    /**
+     * Returns the number of calls that used the cached function. Counts are
+     * not synchronized, so they are approximate when shared by threads.
+     */
+    int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of calls that looked up the function.
+     */
+    int getMisses() {
+        return misses;
+    }
+
+    private static final class Entry {
+
+        private final Scope definer;
+        private final String key;
+        private final Environment.Function function;
+
+        private Entry(Scope definer, String key, Environment.Function function) {
+            this.definer = definer;
+            this.key = key;
+            this.function = function;
+        }
+
+    }
+
+}
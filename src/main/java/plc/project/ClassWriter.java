@@ -0,0 +1,431 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a JVM class file, with just what the {@link BytecodeCompiler}
+ * needs: static fields, and methods whose code is built with a {@link Code}.
+ *
+ * Classes are written with version 49 (Java 5), which the JVM verifies by
+ * type inference, so the code needs no stack map frames. The maximum stack
+ * size of each method is computed from the instructions as they are added.
+ */
+final class ClassWriter {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_PRIVATE = 0x0002;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3A;
+    static final int AALOAD = 0x32;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int POP2 = 0x58;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6B;
+    static final int IDIV = 0x6C;
+    static final int DDIV = 0x6F;
+    static final int IXOR = 0x82;
+    static final int I2L = 0x85;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFLT = 0x9B;
+    static final int IFGE = 0x9C;
+    static final int IFGT = 0x9D;
+    static final int IFLE = 0x9E;
+    static final int IF_ICMPEQ = 0x9F;
+    static final int IF_ICMPNE = 0xA0;
+    static final int IF_ICMPLT = 0xA1;
+    static final int IF_ICMPGE = 0xA2;
+    static final int IF_ICMPGT = 0xA3;
+    static final int IF_ICMPLE = 0xA4;
+    static final int GOTO = 0xA7;
+    static final int IRETURN = 0xAC;
+    static final int DRETURN = 0xAF;
+    static final int ARETURN = 0xB0;
+    static final int RETURN = 0xB1;
+    static final int GETSTATIC = 0xB2;
+    static final int PUTSTATIC = 0xB3;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESPECIAL = 0xB7;
+    static final int INVOKESTATIC = 0xB8;
+    static final int INVOKEINTERFACE = 0xB9;
+    static final int NEW = 0xBB;
+    static final int ANEWARRAY = 0xBD;
+    static final int CHECKCAST = 0xC0;
+
+    private static final int VERSION = 49;
+
+    private final String name;
+    private final String superName;
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOutput = new DataOutputStream(pool);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int poolSize = 1;
+    private final List<byte[]> fields = new ArrayList<>();
+    private final List<Code> methods = new ArrayList<>();
+
+    ClassWriter(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void addField(int access, String name, String descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeShort(access);
+            output.writeShort(utf8(name));
+            output.writeShort(utf8(descriptor));
+            output.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * Adds a method, returning the code to add its instructions to.
+     */
+    Code addMethod(int access, String name, String descriptor) {
+        Code code = new Code(access, utf8(name), utf8(descriptor), (access & ACC_STATIC) != 0 ? argumentSize(descriptor) : argumentSize(descriptor) + 1);
+        methods.add(code);
+        return code;
+    }
+
+    byte[] toByteArray() {
+        int codeName = utf8("Code");
+        int thisClass = classConstant(name);
+        int superClass = classConstant(superName);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(0xCAFEBABE);
+            output.writeShort(0);
+            output.writeShort(VERSION);
+            output.writeShort(poolSize);
+            pool.writeTo(output);
+            output.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            output.writeShort(thisClass);
+            output.writeShort(superClass);
+            output.writeShort(0);
+            output.writeShort(fields.size());
+            for (byte[] field : fields) {
+                output.write(field);
+            }
+            output.writeShort(methods.size());
+            for (Code method : methods) {
+                method.write(output, codeName);
+            }
+            output.writeShort(0);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int utf8(String value) {
+        return constant("Utf8:" + value, 1, output -> output.writeUTF(value), 1);
+    }
+
+    int classConstant(String name) {
+        int index = utf8(name);
+        return constant("Class:" + name, 7, output -> output.writeShort(index), 1);
+    }
+
+    int stringConstant(String value) {
+        int index = utf8(value);
+        return constant("String:" + value, 8, output -> output.writeShort(index), 1);
+    }
+
+    int intConstant(int value) {
+        return constant("Integer:" + value, 3, output -> output.writeInt(value), 1);
+    }
+
+    int doubleConstant(double value) {
+        return constant("Double:" + Double.doubleToRawLongBits(value), 6, output -> output.writeDouble(value), 2);
+    }
+
+    private int memberConstant(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classConstant(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("NameAndType:" + name + ":" + descriptor, 12, output -> {
+            output.writeShort(nameIndex);
+            output.writeShort(descriptorIndex);
+        }, 1);
+        return constant(tag + ":" + owner + "." + name + ":" + descriptor, tag, output -> {
+            output.writeShort(ownerIndex);
+            output.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private int constant(String key, int tag, Entry entry, int size) {
+        Integer index = constants.get(key);
+        if (index == null) {
+            index = poolSize;
+            try {
+                poolOutput.writeByte(tag);
+                entry.write(poolOutput);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            poolSize += size;
+            if (poolSize > 0xFFFF) {
+                throw new RuntimeException("Class " + name + " has too many constants.");
+            }
+            constants.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the size of the arguments of a method descriptor in local
+     * variable slots (or stack words).
+     */
+    static int argumentSize(String descriptor) {
+        int size = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            size += c == 'D' || c == 'J' ? 2 : 1;
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+        }
+        return size;
+    }
+
+    static int returnSize(String descriptor) {
+        char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return c == 'V' ? 0 : c == 'D' || c == 'J' ? 2 : 1;
+    }
+
+    @FunctionalInterface
+    private interface Entry {
+
+        void write(DataOutputStream output) throws IOException;
+
+    }
+
+    /**
+     * A position in the code of a method that instructions can branch to.
+     */
+    static final class Label {
+
+        private int position = -1;
+        private int stack = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * The code of a method. Each instruction adjusts the tracked stack size,
+     * and after an instruction that does not continue (a {@code goto},
+     * return or throw), the stack size is restored by marking a label that
+     * has been branched to.
+     */
+    final class Code {
+
+        private final int access;
+        private final int name;
+        private final int descriptor;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+        private boolean reachable = true;
+
+        private Code(int access, int name, int descriptor, int maxLocals) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxLocals = maxLocals;
+        }
+
+        /**
+         * Adds an instruction without operands, which changes the size of the
+         * stack by the given amount.
+         */
+        void op(int opcode, int delta) {
+            bytes.write(opcode);
+            adjust(delta);
+            if (opcode == GOTO || (opcode >= IRETURN && opcode <= RETURN)) {
+                reachable = false;
+            }
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(0x10, 1);
+                bytes.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(0x11, 1);
+                writeShort(value);
+            } else {
+                ldc(intConstant(value));
+            }
+        }
+
+        void ldc(int index) {
+            op(LDC_W, 1);
+            writeShort(index);
+        }
+
+        void ldc2(int index) {
+            op(LDC2_W, 2);
+            writeShort(index);
+        }
+
+        /**
+         * Adds a load or store of a local variable, with an opcode from
+         * {@link #ILOAD} to {@link #ASTORE}.
+         */
+        void local(int opcode, int index) {
+            int size = opcode == DLOAD || opcode == DSTORE ? 2 : 1;
+            maxLocals = Math.max(maxLocals, index + size);
+            if (index > 0xFF) {
+                bytes.write(0xC4); //wide
+                op(opcode, opcode >= ISTORE ? -size : size);
+                writeShort(index);
+            } else {
+                op(opcode, opcode >= ISTORE ? -size : size);
+                bytes.write(index);
+            }
+        }
+
+        /**
+         * Reserves local variable slots, returning the index of the first.
+         */
+        int allocate(int size) {
+            maxLocals += size;
+            return maxLocals - size;
+        }
+
+        void type(int opcode, String type) {
+            op(opcode, opcode == NEW ? 1 : 0);
+            writeShort(classConstant(type));
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            int size = descriptor.equals("D") || descriptor.equals("J") ? 2 : 1;
+            op(opcode, opcode == GETSTATIC ? size : -size);
+            writeShort(memberConstant(9, owner, name, descriptor));
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            int delta = returnSize(descriptor) - argumentSize(descriptor) - (opcode == INVOKESTATIC ? 0 : 1);
+            op(opcode, delta);
+            writeShort(memberConstant(opcode == INVOKEINTERFACE ? 11 : 10, owner, name, descriptor));
+            if (opcode == INVOKEINTERFACE) {
+                bytes.write(argumentSize(descriptor) + 1);
+                bytes.write(0);
+            }
+        }
+
+        /**
+         * Adds a branch to a label, with a {@code goto} or a conditional
+         * branch popping the given number of words.
+         */
+        void jump(int opcode, Label label, int pop) {
+            int position = bytes.size();
+            op(opcode, -pop);
+            label.jumps.add(position);
+            writeShort(0);
+            label.stack = stack;
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+        }
+
+        void mark(Label label) {
+            label.position = bytes.size();
+            if (!reachable) {
+                reachable = label.stack >= 0; //otherwise nothing branches here, and it is dead code between statements
+                stack = Math.max(label.stack, 0);
+            } else {
+                label.stack = stack;
+            }
+            if (!labels.contains(label)) {
+                labels.add(label);
+            }
+        }
+
+        boolean isReachable() {
+            return reachable;
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void writeShort(int value) {
+            bytes.write(value >> 8);
+            bytes.write(value);
+        }
+
+        private void write(DataOutputStream output, int codeName) throws IOException {
+            byte[] code = bytes.toByteArray();
+            for (Label label : labels) {
+                for (int jump : label.jumps) {
+                    int offset = label.position - jump;
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new RuntimeException("Method is too large to compile.");
+                    }
+                    code[jump + 1] = (byte) (offset >> 8);
+                    code[jump + 2] = (byte) offset;
+                }
+            }
+            if (code.length > 0xFFFF) {
+                throw new RuntimeException("Method is too large to compile.");
+            }
+            output.writeShort(access);
+            output.writeShort(name);
+            output.writeShort(descriptor);
+            output.writeShort(1);
+            output.writeShort(codeName);
+            output.writeInt(12 + code.length);
+            output.writeShort(maxStack);
+            output.writeShort(maxLocals);
+            output.writeInt(code.length);
+            output.write(code);
+            output.writeShort(0);
+            output.writeShort(0);
+        }
+
+    }
+
+}
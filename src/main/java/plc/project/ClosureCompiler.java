@@ -0,0 +1,377 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an analyzed {@link Ast.Source} into a tree of executable nodes,
+ * which runs the same program as the {@link Interpreter} without walking the
+ * AST. Everything the interpreter decides on each visit is decided once
+ * while compiling: each binary expression is bound to its
+ * {@link BinaryOperation}, each local to its address in the frame (running
+ * the {@link Resolver} on methods that have not been resolved), each field
+ * to its variable, and each call of a method of the source to the compiled
+ * method.
+ *
+ * Statements return the value of a {@code RETURN} they execute, or
+ * {@code null} to continue with the next statement, so returning does not
+ * throw an exception.
+ */
+public final class ClosureCompiler {
+
+    private final Scope scope;
+    private final Map<String, Method> methods = new HashMap<>();
+
+    public ClosureCompiler(Scope parent) {
+        this(new Scope(parent), true);
+    }
+
+    private ClosureCompiler(Scope scope, boolean print) {
+        this.scope = scope;
+        if (print) {
+            scope.defineFunction("print", 1, args -> {
+                System.out.println(args.get(0).getValue());
+                return Environment.NIL;
+            });
+        }
+    }
+
+    /**
+     * Returns a compiler for code running in an existing scope, such as the
+     * {@link Interpreter}'s, whose globals and functions it uses.
+     */
+    static ClosureCompiler in(Scope scope) {
+        return new ClosureCompiler(scope, false);
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles a source, defining its fields and methods in the scope. The
+     * fields are initialized each time the program is run.
+     */
+    public Program compile(Ast.Source ast) {
+        List<Environment.Variable> fields = new ArrayList<>();
+        List<Expr> values = new ArrayList<>();
+        for (Ast.Field field : ast.getFields()) {
+            values.add(field.getValue().isPresent() ? compile(field.getValue().get()) : frame -> Environment.NIL);
+            scope.defineVariable(field.getName(), Environment.NIL);
+            fields.add(scope.lookupVariable(field.getName()));
+        }
+        List<Ast.Method> compiled = new ArrayList<>();
+        for (Ast.Method method : ast.getMethods()) {
+            if (method.getFrameSize() < 0) {
+                new Resolver().visit(method);
+            }
+            Method target = new Method(method.getFrameSize());
+            methods.put(method.getName() + "/" + method.getParameters().size(), target);
+            scope.defineFunction(method.getName(), method.getParameters().size(), args -> target.invoke(args.toArray(new Environment.PlcObject[0])));
+            compiled.add(method);
+        }
+        for (Ast.Method method : compiled) {
+            methods.get(method.getName() + "/" + method.getParameters().size()).statements = compile(method.getStatements());
+        }
+        return new Program(fields, values, scope);
+    }
+
+    /**
+     * Compiles a resolved method, returning a function invoking it.
+     */
+    java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> compileMethod(Ast.Method ast) {
+        Method method = new Method(ast.getFrameSize());
+        method.statements = compile(ast.getStatements());
+        return args -> method.invoke(args.toArray(new Environment.PlcObject[0]));
+    }
+
+    /**
+     * Compiles statements of a resolved method, returning a function that
+     * executes them on a frame of the method and returns the value of a
+     * {@code RETURN} they execute, or {@code null} if they complete.
+     */
+    java.util.function.Function<Environment.PlcObject[], Environment.PlcObject> compileStatements(List<Ast.Stmt> statements) {
+        Stmt[] compiled = compile(statements);
+        return frame -> execute(compiled, frame);
+    }
+
+    private Stmt[] compile(List<Ast.Stmt> statements) {
+        Stmt[] compiled = new Stmt[statements.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = compile(statements.get(i));
+        }
+        return compiled;
+    }
+
+    private Stmt compile(Ast.Stmt ast) {
+        if (ast instanceof Ast.Stmt.Expression) {
+            Expr expression = compile(((Ast.Stmt.Expression) ast).getExpression());
+            return frame -> {
+                expression.evaluate(frame);
+                return null;
+            };
+        } else if (ast instanceof Ast.Stmt.Declaration) {
+            Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) ast;
+            int slot = declaration.getSlot();
+            if (!declaration.getValue().isPresent()) {
+                return frame -> {
+                    frame[slot] = Environment.NIL;
+                    return null;
+                };
+            }
+            Expr value = compile(declaration.getValue().get());
+            return frame -> {
+                frame[slot] = value.evaluate(frame);
+                return null;
+            };
+        } else if (ast instanceof Ast.Stmt.Assignment) {
+            return compileAssignment((Ast.Stmt.Assignment) ast);
+        } else if (ast instanceof Ast.Stmt.If) {
+            Ast.Stmt.If statement = (Ast.Stmt.If) ast;
+            Expr condition = compile(statement.getCondition());
+            Stmt[] thenStatements = compile(statement.getThenStatements());
+            Stmt[] elseStatements = compile(statement.getElseStatements());
+            return frame -> execute(requireBoolean(condition.evaluate(frame)) ? thenStatements : elseStatements, frame);
+        } else if (ast instanceof Ast.Stmt.For) {
+            Ast.Stmt.For statement = (Ast.Stmt.For) ast;
+            Expr value = compile(statement.getValue());
+            int slot = statement.getSlot();
+            Stmt[] statements = compile(statement.getStatements());
+            return frame -> {
+                Environment.PlcObject iterable = value.evaluate(frame);
+                if (!(iterable.getValue() instanceof Iterable)) {
+                    throw new RuntimeException("Expected type " + Iterable.class.getName() + ", received " + iterable.getValue().getClass().getName() + ".");
+                }
+                for (Object element : (Iterable<?>) iterable.getValue()) {
+                    frame[slot] = (Environment.PlcObject) element;
+                    Environment.PlcObject result = execute(statements, frame);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            };
+        } else if (ast instanceof Ast.Stmt.While) {
+            Ast.Stmt.While statement = (Ast.Stmt.While) ast;
+            Expr condition = compile(statement.getCondition());
+            Stmt[] statements = compile(statement.getStatements());
+            return frame -> {
+                while (requireBoolean(condition.evaluate(frame))) {
+                    Environment.PlcObject result = execute(statements, frame);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+                return null;
+            };
+        } else if (ast instanceof Ast.Stmt.Return) {
+            Expr value = compile(((Ast.Stmt.Return) ast).getValue());
+            return value::evaluate;
+        }
+        throw new AssertionError(ast.getClass());
+    }
+
+    private Stmt compileAssignment(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            throw new RuntimeException("Assignment RHS is not access variable");
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        String name = access.getName();
+        Expr value = compile(ast.getValue());
+        if (access.getReceiver().isPresent()) {
+            Expr receiver = compile(access.getReceiver().get());
+            return frame -> {
+                Environment.PlcObject object = receiver.evaluate(frame);
+                object.setField(name, value.evaluate(frame));
+                return null;
+            };
+        } else if (access.getSlot() >= 0) {
+            int slot = access.getSlot();
+            return frame -> {
+                frame[slot] = value.evaluate(frame);
+                return null;
+            };
+        }
+        Environment.Variable variable = scope.lookupVariable(name);
+        return frame -> {
+            variable.setValue(value.evaluate(frame));
+            return null;
+        };
+    }
+
+    private Expr compile(Ast.Expr ast) {
+        if (ast instanceof Ast.Expr.Literal) {
+            Environment.PlcObject value = ((Ast.Expr.Literal) ast).getValue();
+            return frame -> value;
+        } else if (ast instanceof Ast.Expr.Group) {
+            return compile(((Ast.Expr.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return compileBinary((Ast.Expr.Binary) ast);
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            String name = access.getName();
+            if (access.getReceiver().isPresent()) {
+                Expr receiver = compile(access.getReceiver().get());
+                return frame -> receiver.evaluate(frame).getField(name).getValue();
+            } else if (access.getSlot() >= 0) {
+                int slot = access.getSlot();
+                return frame -> frame[slot];
+            }
+            Environment.Variable variable = scope.lookupVariable(name);
+            return frame -> variable.getValue();
+        } else if (ast instanceof Ast.Expr.Function) {
+            return compileFunction((Ast.Expr.Function) ast);
+        }
+        throw new AssertionError(ast.getClass());
+    }
+
+    private Expr compileBinary(Ast.Expr.Binary ast) {
+        Expr left = compile(ast.getLeft());
+        Expr right = compile(ast.getRight());
+        BinaryOperation operation = ast.getOperation();
+        if (operation == BinaryOperation.AND) {
+            return frame -> Environment.create((Boolean) left.evaluate(frame).getValue() && (Boolean) right.evaluate(frame).getValue());
+        } else if (operation == BinaryOperation.OR) {
+            return frame -> Environment.create((Boolean) left.evaluate(frame).getValue() || (Boolean) right.evaluate(frame).getValue());
+        } else if (operation != null) {
+            return frame -> operation.evaluate(left.evaluate(frame), right.evaluate(frame));
+        }
+        //Not specialized by the Analyzer, so select the operation from the values
+        String operator = ast.getOperator();
+        return frame -> {
+            Environment.PlcObject lhs = left.evaluate(frame);
+            if (operator.equals("AND") || operator.equals("OR")) {
+                boolean value = requireBoolean(lhs);
+                return Environment.create(value == operator.equals("OR") ? value : requireBoolean(right.evaluate(frame)));
+            }
+            return BinaryOperation.evaluate(operator, lhs, right.evaluate(frame));
+        };
+    }
+
+    private Expr compileFunction(Ast.Expr.Function ast) {
+        String name = ast.getName();
+        Expr[] arguments = new Expr[ast.getArguments().size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = compile(ast.getArguments().get(i));
+        }
+        if (ast.getReceiver().isPresent()) {
+            Expr receiver = compile(ast.getReceiver().get());
+            return frame -> {
+                List<Environment.PlcObject> values = evaluate(arguments, frame);
+                return receiver.evaluate(frame).callMethod(name, values);
+            };
+        }
+        Method method = methods.get(name + "/" + arguments.length);
+        if (method != null) {
+            return frame -> {
+                Environment.PlcObject[] callee = new Environment.PlcObject[method.size];
+                for (int i = 0; i < arguments.length; i++) {
+                    callee[i] = arguments[i].evaluate(frame);
+                }
+                return method.execute(callee);
+            };
+        }
+        //Defined outside the source, so looked up on the first call as by the Interpreter
+        Environment.Function[] function = new Environment.Function[1];
+        return frame -> {
+            List<Environment.PlcObject> values = evaluate(arguments, frame);
+            if (function[0] == null) {
+                function[0] = scope.lookupFunction(name, arguments.length);
+            }
+            return function[0].invoke(values);
+        };
+    }
+
+    private static List<Environment.PlcObject> evaluate(Expr[] arguments, Environment.PlcObject[] frame) {
+        List<Environment.PlcObject> values = new ArrayList<>(arguments.length);
+        for (Expr argument : arguments) {
+            values.add(argument.evaluate(frame));
+        }
+        return values;
+    }
+
+    private static Environment.PlcObject execute(Stmt[] statements, Environment.PlcObject[] frame) {
+        for (Stmt statement : statements) {
+            Environment.PlcObject result = statement.execute(frame);
+            if (result != null) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static boolean requireBoolean(Environment.PlcObject object) {
+        if (object.getValue() instanceof Boolean) {
+            return (Boolean) object.getValue();
+        }
+        throw new RuntimeException("Expected type " + Boolean.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+    }
+
+    /**
+     * A compiled source, which runs by initializing its fields and invoking
+     * {@code main}.
+     */
+    public static final class Program {
+
+        private final List<Environment.Variable> fields;
+        private final List<Expr> values;
+        private final Scope scope;
+
+        private Program(List<Environment.Variable> fields, List<Expr> values, Scope scope) {
+            this.fields = fields;
+            this.values = values;
+            this.scope = scope;
+        }
+
+        public Environment.PlcObject run() {
+            for (int i = 0; i < fields.size(); i++) {
+                fields.get(i).setValue(values.get(i).evaluate(null));
+            }
+            return scope.lookupFunction("main", 0).invoke(List.of());
+        }
+
+    }
+
+    private static final class Method {
+
+        private final int size;
+        private Stmt[] statements;
+
+        private Method(int size) {
+            this.size = size;
+        }
+
+        private Environment.PlcObject invoke(Environment.PlcObject[] arguments) {
+            Environment.PlcObject[] frame = new Environment.PlcObject[size];
+            System.arraycopy(arguments, 0, frame, 0, arguments.length);
+            return execute(frame);
+        }
+
+        private Environment.PlcObject execute(Environment.PlcObject[] frame) {
+            Environment.PlcObject result = ClosureCompiler.execute(statements, frame);
+            return result != null ? result : Environment.NIL;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface Expr {
+
+        Environment.PlcObject evaluate(Environment.PlcObject[] frame);
+
+    }
+
+    /**
+     * A compiled statement, returning the value of the method if it returns
+     * and {@code null} otherwise.
+     */
+    @FunctionalInterface
+    private interface Stmt {
+
+        Environment.PlcObject execute(Environment.PlcObject[] frame);
+
+    }
+
+}
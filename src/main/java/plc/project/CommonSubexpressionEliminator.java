@@ -0,0 +1,271 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Evaluates repeated expressions of an analyzed AST once per block. Within
+ * each block, a pure binary expression or field access that is evaluated
+ * again (with the same {@link Fingerprint}) before any of its inputs may have
+ * changed is computed into a new variable {@code c$n}, declared before the
+ * statement first evaluating it, and every later copy reads the variable.
+ *
+ * Only expressions that are evaluated whenever their statement runs are
+ * considered: the value of an expression, declaration, assignment, or return
+ * statement, the condition of an {@code IF}, and the value of a {@code FOR}.
+ * Nested blocks are handled separately, and the right operand of {@code AND}
+ * and {@code OR} and the condition of a {@code WHILE} may be evaluated any
+ * number of times, so they only reuse earlier expressions.
+ *
+ * The first copy now runs before the rest of its statement, so it must not
+ * read anything an earlier call in the statement may have changed, and if it
+ * may fail nothing before it may have failed or had effects. The inputs of an
+ * expression may change when:
+ *
+ *  - a variable it reads is assigned or redeclared,
+ *  - any field of an object is assigned (which may be an alias), or
+ *  - a function is called, which may assign fields of the source or objects.
+ */
+public final class CommonSubexpressionEliminator extends Rewriter {
+
+    private final Set<Environment.Variable> fields = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Ast.Expr, Entry> occurrences = new IdentityHashMap<>();
+    private Effects effects;
+    private int temporaries = 0;
+    private int saved = 0;
+
+    /**
+     * Returns the number of evaluations replaced with variables by the last
+     * elimination.
+     */
+    public int getSaved() {
+        return saved;
+    }
+
+    public Ast.Source eliminate(Ast.Source source) {
+        fields.clear();
+        occurrences.clear();
+        saved = 0;
+        effects = Effects.of(source);
+        for (Ast.Field field : source.getFields()) {
+            fields.add(field.getVariable());
+        }
+        return (Ast.Source) visit(source);
+    }
+
+    @Override
+    protected List<Ast.Stmt> rewrite(List<Ast.Stmt> statements) {
+        List<List<Entry>> defined = new Block().analyze(statements);
+        List<Ast.Stmt> rewritten = new ArrayList<>();
+        for (int i = 0; i < statements.size(); i++) {
+            for (Entry entry : defined.get(i)) {
+                if (entry.uses > 0) {
+                    String name = "c$" + ++temporaries;
+                    entry.variable = new Environment.Variable(name, name, entry.expression.getType(), Environment.NIL);
+                    Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(name, Optional.of(entry.expression.getType().getName()), Optional.of((Ast.Expr) visit(entry.expression)));
+                    declaration.setVariable(entry.variable);
+                    rewritten.add(declaration);
+                    saved += entry.uses;
+                }
+            }
+            rewrite(statements.get(i), rewritten);
+        }
+        return isSame(statements, rewritten) ? statements : rewritten;
+    }
+
+    @Override
+    protected Ast.Expr rewrite(Ast.Expr expression) {
+        Ast.Expr value = expression instanceof Ast.Expr.Group ? ((Ast.Expr.Group) expression).getExpression() : expression;
+        Entry entry = occurrences.get(value);
+        if (entry == null || entry.variable == null) {
+            return super.rewrite(expression);
+        }
+        Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), entry.variable.getName());
+        access.setVariable(entry.variable);
+        return access;
+    }
+
+    /**
+     * An expression evaluated by a statement of a block, and the number of
+     * later copies reusing its value.
+     */
+    private static final class Entry {
+
+        private final Ast.Expr expression;
+        private final Set<String> names; //of variables read
+        private final boolean mutable; //reads fields of the source or objects
+        private int uses = 0;
+        private Environment.Variable variable;
+
+        private Entry(Ast.Expr expression, Set<String> names, boolean mutable) {
+            this.expression = expression;
+            this.names = names;
+            this.mutable = mutable;
+        }
+
+    }
+
+    /**
+     * Finds the repeated expressions of a block, in the order they are
+     * evaluated, recording them in {@link #occurrences}.
+     */
+    private final class Block extends Rewriter {
+
+        private final Map<String, Entry> available = new HashMap<>();
+        private List<Entry> defined;
+        private boolean called; //since the start of the current statement
+        private boolean clean; //nothing has failed or had effects
+
+        /**
+         * Returns the entries defined by each statement.
+         */
+        private List<List<Entry>> analyze(List<Ast.Stmt> statements) {
+            List<List<Entry>> entries = new ArrayList<>();
+            for (Ast.Stmt statement : statements) {
+                defined = new ArrayList<>();
+                called = false;
+                clean = true;
+                evaluate(statement);
+                entries.add(defined);
+            }
+            return entries;
+        }
+
+        private void evaluate(Ast.Stmt statement) {
+            if (statement instanceof Ast.Stmt.Expression) {
+                evaluate(((Ast.Stmt.Expression) statement).getExpression(), true);
+            } else if (statement instanceof Ast.Stmt.Declaration) {
+                ((Ast.Stmt.Declaration) statement).getValue().ifPresent(value -> evaluate(value, true));
+                kill(((Ast.Stmt.Declaration) statement).getName());
+            } else if (statement instanceof Ast.Stmt.Assignment) {
+                Ast.Expr.Access receiver = (Ast.Expr.Access) ((Ast.Stmt.Assignment) statement).getReceiver();
+                receiver.getReceiver().ifPresent(object -> evaluate(object, true));
+                evaluate(((Ast.Stmt.Assignment) statement).getValue(), true);
+                assign(receiver);
+            } else if (statement instanceof Ast.Stmt.If) {
+                evaluate(((Ast.Stmt.If) statement).getCondition(), true);
+                visit(statement);
+            } else if (statement instanceof Ast.Stmt.For) {
+                evaluate(((Ast.Stmt.For) statement).getValue(), true);
+                rewrite(((Ast.Stmt.For) statement).getStatements());
+            } else if (statement instanceof Ast.Stmt.While) {
+                visit(statement); //the condition is evaluated again after the body
+                evaluate(((Ast.Stmt.While) statement).getCondition(), false);
+            } else if (statement instanceof Ast.Stmt.Return) {
+                evaluate(((Ast.Stmt.Return) statement).getValue(), true);
+            }
+        }
+
+        /**
+         * Evaluates an expression, reusing or defining entries. Expressions
+         * that may be skipped are only reused.
+         */
+        private void evaluate(Ast.Expr expression, boolean always) {
+            boolean candidate = isCandidate(expression);
+            String key = candidate ? Fingerprint.of(expression) : null;
+            if (candidate && available.containsKey(key)) {
+                Entry entry = available.get(key);
+                entry.uses++;
+                occurrences.put(expression, entry);
+                return;
+            }
+            if (expression instanceof Ast.Expr.Group) {
+                evaluate(((Ast.Expr.Group) expression).getExpression(), always);
+            } else if (expression instanceof Ast.Expr.Binary) {
+                Ast.Expr.Binary binary = (Ast.Expr.Binary) expression;
+                evaluate(binary.getLeft(), always);
+                evaluate(binary.getRight(), always && !binary.getOperator().equals("AND") && !binary.getOperator().equals("OR"));
+            } else if (expression instanceof Ast.Expr.Access) {
+                ((Ast.Expr.Access) expression).getReceiver().ifPresent(receiver -> evaluate(receiver, always));
+            } else if (expression instanceof Ast.Expr.Function) {
+                ((Ast.Expr.Function) expression).getReceiver().ifPresent(receiver -> evaluate(receiver, always));
+                ((Ast.Expr.Function) expression).getArguments().forEach(argument -> evaluate(argument, always));
+                call();
+            }
+            if (candidate && always) {
+                Set<String> names = new HashSet<>();
+                boolean mutable = reads(expression, names);
+                if ((!called || !mutable) && (clean || effects.cannotFail(expression))) {
+                    Entry entry = new Entry(expression, names, mutable);
+                    available.put(key, entry);
+                    occurrences.put(expression, entry);
+                    defined.add(entry);
+                }
+            }
+            if (!effects.cannotFail(expression)) {
+                clean = false;
+            }
+        }
+
+        private boolean isCandidate(Ast.Expr expression) {
+            return (expression instanceof Ast.Expr.Binary
+                    || expression instanceof Ast.Expr.Access && ((Ast.Expr.Access) expression).getReceiver().isPresent())
+                    && Effects.isPure(expression);
+        }
+
+        /**
+         * Adds the names of the variables read by a pure expression, and
+         * returns true if it reads a field.
+         */
+        private boolean reads(Ast.Expr expression, Set<String> names) {
+            if (expression instanceof Ast.Expr.Group) {
+                return reads(((Ast.Expr.Group) expression).getExpression(), names);
+            } else if (expression instanceof Ast.Expr.Binary) {
+                boolean left = reads(((Ast.Expr.Binary) expression).getLeft(), names);
+                return reads(((Ast.Expr.Binary) expression).getRight(), names) || left;
+            } else if (expression instanceof Ast.Expr.Access) {
+                Ast.Expr.Access access = (Ast.Expr.Access) expression;
+                if (access.getReceiver().isPresent()) {
+                    reads(access.getReceiver().get(), names);
+                    return true;
+                }
+                names.add(access.getName());
+                return fields.contains(access.getVariable());
+            }
+            return false;
+        }
+
+        private void kill(String name) {
+            available.values().removeIf(entry -> entry.names.contains(name));
+        }
+
+        private void assign(Ast.Expr.Access receiver) {
+            if (receiver.getReceiver().isPresent()) {
+                available.values().removeIf(entry -> entry.mutable);
+            } else {
+                kill(receiver.getName());
+            }
+        }
+
+        private void call() {
+            called = true;
+            clean = false;
+            available.values().removeIf(entry -> entry.mutable);
+        }
+
+        //Visits nested statements only for their assignments and calls.
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            super.visit(ast);
+            assign((Ast.Expr.Access) ast.getReceiver());
+            return ast;
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Function ast) {
+            super.visit(ast);
+            call();
+            return ast;
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Folds constant expressions in an analyzed AST into literals. This runs
+ * after the {@link Analyzer} and before the {@link Interpreter} or
+ * {@link Generator}.
+ *
+ *  - A {@code Binary} whose operands are literals is evaluated by the
+ *    Interpreter itself, so the result is exactly what would have been
+ *    computed at runtime. If evaluation fails (such as dividing by zero) the
+ *    expression is kept so the error still happens at runtime, and results
+ *    the Analyzer would reject as literals (such as integers outside of the
+ *    {@code int} range) are kept as well.
+ *  - {@code FALSE AND x} and {@code TRUE OR x} fold to their left operand,
+ *    since the Interpreter never evaluates {@code x}.
+ *  - A {@code Group} of a literal is replaced by the literal.
+ *  - Fields and local variables that are initialized to a literal and never
+ *    assigned are propagated into every access of them, which is resolved by
+ *    the variables the Analyzer set on each access.
+ */
+public final class ConstantFolder extends Rewriter {
+
+    private final Interpreter interpreter = new Interpreter(new Scope(null));
+    private final Set<Environment.Variable> assigned;
+    private final Map<Environment.Variable, Ast.Expr.Literal> constants = new IdentityHashMap<>();
+
+    private ConstantFolder(Set<Environment.Variable> assigned) {
+        this.assigned = assigned;
+    }
+
+    public static Ast.Source fold(Ast.Source source) {
+        return (Ast.Source) new ConstantFolder(Assignments.of(source)).visit(source);
+    }
+
+    @Override
+    public Ast visit(Ast.Field ast) {
+        Ast.Field field = (Ast.Field) super.visit(ast);
+        propagate(field.getVariable(), field.getValue());
+        return field;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Declaration ast) {
+        Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) super.visit(ast);
+        propagate(declaration.getVariable(), declaration.getValue());
+        return declaration;
+    }
+
+    private void propagate(Environment.Variable variable, Optional<Ast.Expr> value) {
+        if (value.isPresent() && value.get() instanceof Ast.Expr.Literal && !assigned.contains(variable)) {
+            constants.put(variable, (Ast.Expr.Literal) value.get());
+        }
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Group ast) {
+        Ast.Expr.Group group = (Ast.Expr.Group) super.visit(ast);
+        return group.getExpression() instanceof Ast.Expr.Literal ? group.getExpression() : group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Binary ast) {
+        Ast.Expr.Binary binary = (Ast.Expr.Binary) super.visit(ast);
+        if (!(binary.getLeft() instanceof Ast.Expr.Literal)) {
+            return binary;
+        }
+        Object left = ((Ast.Expr.Literal) binary.getLeft()).getLiteral();
+        if ((binary.getOperator().equals("AND") && Boolean.FALSE.equals(left))
+                || (binary.getOperator().equals("OR") && Boolean.TRUE.equals(left))) {
+            return binary.getLeft();
+        }
+        if (!(binary.getRight() instanceof Ast.Expr.Literal)) {
+            return binary;
+        }
+        try {
+            Object value = interpreter.visit(binary).getValue();
+            return literal(value == Environment.NIL.getValue() ? null : value);
+        } catch (RuntimeException e) {
+            return binary; //left for the runtime to fail, or not representable as a literal
+        }
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Access ast) {
+        if (!ast.getReceiver().isPresent() && constants.containsKey(ast.getVariable())) {
+            return literal(constants.get(ast.getVariable()).getLiteral());
+        }
+        return super.visit(ast);
+    }
+
+    /**
+     * Collects the variables that are the target of an assignment anywhere in
+     * the source, which therefore cannot be propagated.
+     */
+    private static final class Assignments extends Rewriter {
+
+        private final Set<Environment.Variable> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private static Set<Environment.Variable> of(Ast.Source source) {
+            Assignments assignments = new Assignments();
+            assignments.visit(source);
+            return assignments.assigned;
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            if (ast.getReceiver() instanceof Ast.Expr.Access && !((Ast.Expr.Access) ast.getReceiver()).getReceiver().isPresent()) {
+                assigned.add(((Ast.Expr.Access) ast.getReceiver()).getVariable());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
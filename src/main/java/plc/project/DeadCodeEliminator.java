@@ -0,0 +1,192 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes code from an analyzed AST that can never run or whose result is
+ * never used. This runs after the {@link Analyzer} (and typically after the
+ * {@link ConstantFolder}, which produces most of the constant conditions).
+ *
+ *  - Statements following a {@code RETURN} in the same block, or an
+ *    {@code IF} whose branches both return, are removed.
+ *  - An {@code IF} with a literal condition is replaced by the branch that is
+ *    taken. The branch is kept as a block ({@code IF TRUE}) if it declares
+ *    variables, since those are scoped to it.
+ *  - {@code WHILE FALSE} loops and empty {@code IF}s with a condition that
+ *    cannot fail are removed.
+ *  - Local variables that are never read are removed along with every
+ *    assignment to them. Function calls in their values are kept as
+ *    expression statements; any other value that may fail keeps the variable.
+ *
+ * Removing a variable may leave others unread, so the pass repeats until the
+ * tree no longer changes.
+ */
+public final class DeadCodeEliminator extends Rewriter {
+
+    private Set<Environment.Variable> removable = Collections.emptySet();
+    private Effects effects;
+    private int removed = 0;
+
+    /**
+     * Returns the number of statements and expressions removed by the last
+     * elimination.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    public Ast.Source eliminate(Ast.Source source) {
+        Ast.Source result = source;
+        Ast.Source previous;
+        do {
+            previous = result;
+            effects = Effects.of(result);
+            removable = Usages.of(result, effects);
+            result = (Ast.Source) visit(result);
+        } while (result != previous);
+        removed = size(source) - size(result);
+        return result;
+    }
+
+    @Override
+    protected List<Ast.Stmt> rewrite(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> rewritten = new ArrayList<>();
+        for (Ast.Stmt statement : statements) {
+            rewrite(statement, rewritten);
+            if (!rewritten.isEmpty() && isTerminal(rewritten.get(rewritten.size() - 1))) {
+                break;
+            }
+        }
+        return isSame(statements, rewritten) ? statements : rewritten;
+    }
+
+    @Override
+    protected void rewrite(Ast.Stmt statement, List<Ast.Stmt> statements) {
+        if (statement instanceof Ast.Stmt.Declaration && removable.contains(((Ast.Stmt.Declaration) statement).getVariable())) {
+            ((Ast.Stmt.Declaration) statement).getValue().ifPresent(value -> keepCall(value, statements));
+        } else if (statement instanceof Ast.Stmt.Assignment && isRemovableTarget(((Ast.Stmt.Assignment) statement).getReceiver())) {
+            keepCall(((Ast.Stmt.Assignment) statement).getValue(), statements);
+        } else if (statement instanceof Ast.Stmt.While && Boolean.FALSE.equals(valueOf(((Ast.Stmt.While) statement).getCondition()))) {
+            //never runs
+        } else if (statement instanceof Ast.Stmt.If) {
+            rewrite((Ast.Stmt.If) visit(statement), statements);
+        } else {
+            super.rewrite(statement, statements);
+        }
+    }
+
+    private void rewrite(Ast.Stmt.If statement, List<Ast.Stmt> statements) {
+        Object condition = valueOf(statement.getCondition());
+        if (condition instanceof Boolean) {
+            List<Ast.Stmt> branch = (Boolean) condition ? statement.getThenStatements() : statement.getElseStatements();
+            if (branch.stream().noneMatch(s -> s instanceof Ast.Stmt.Declaration)) {
+                statements.addAll(branch);
+            } else if ((Boolean) condition && statement.getElseStatements().isEmpty()) {
+                statements.add(statement);
+            } else {
+                statements.add(new Ast.Stmt.If(literal(true), branch, List.of()));
+            }
+        } else if (!statement.getThenStatements().isEmpty() || !statement.getElseStatements().isEmpty()
+                || !Effects.isPure(statement.getCondition()) || !effects.cannotFail(statement.getCondition())) {
+            statements.add(statement);
+        }
+    }
+
+    /**
+     * Adds a statement for the value of a removed declaration or assignment
+     * if it is a call, which has to be kept for its side effects.
+     */
+    private static void keepCall(Ast.Expr value, List<Ast.Stmt> statements) {
+        if (value instanceof Ast.Expr.Function) {
+            statements.add(new Ast.Stmt.Expression(value));
+        }
+    }
+
+    private boolean isRemovableTarget(Ast.Expr receiver) {
+        return receiver instanceof Ast.Expr.Access
+                && !((Ast.Expr.Access) receiver).getReceiver().isPresent()
+                && removable.contains(((Ast.Expr.Access) receiver).getVariable());
+    }
+
+    /**
+     * Returns true if no statement after this one in the same block can run.
+     */
+    private static boolean isTerminal(Ast.Stmt statement) {
+        if (statement instanceof Ast.Stmt.Return) {
+            return true;
+        } else if (statement instanceof Ast.Stmt.If) {
+            Ast.Stmt.If ast = (Ast.Stmt.If) statement;
+            Object condition = valueOf(ast.getCondition());
+            boolean then = isTerminal(ast.getThenStatements());
+            boolean otherwise = isTerminal(ast.getElseStatements());
+            return Boolean.TRUE.equals(condition) ? then : Boolean.FALSE.equals(condition) ? otherwise : then && otherwise;
+        }
+        return false;
+    }
+
+    private static boolean isTerminal(List<Ast.Stmt> statements) {
+        return statements.stream().anyMatch(DeadCodeEliminator::isTerminal);
+    }
+
+    private static Object valueOf(Ast.Expr expression) {
+        return expression instanceof Ast.Expr.Literal ? ((Ast.Expr.Literal) expression).getLiteral() : null;
+    }
+
+    /**
+     * Determines which local variables are never read and can be removed
+     * along with all assignments to them.
+     */
+    private static final class Usages extends Rewriter {
+
+        private final Effects effects;
+        private final Set<Environment.Variable> declared = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Environment.Variable> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        private Usages(Effects effects) {
+            this.effects = effects;
+        }
+
+        private static Set<Environment.Variable> of(Ast.Source source, Effects effects) {
+            Usages usages = new Usages(effects);
+            usages.visit(source);
+            usages.declared.removeAll(usages.kept);
+            return usages.declared;
+        }
+
+        private boolean isDroppable(Ast.Expr value) {
+            return value instanceof Ast.Expr.Function || (Effects.isPure(value) && effects.cannotFail(value));
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Declaration ast) {
+            declared.add(ast.getVariable());
+            if (ast.getValue().isPresent() && !isDroppable(ast.getValue().get())) {
+                kept.add(ast.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            if (ast.getReceiver() instanceof Ast.Expr.Access && !((Ast.Expr.Access) ast.getReceiver()).getReceiver().isPresent()
+                    && !isDroppable(ast.getValue())) {
+                kept.add(((Ast.Expr.Access) ast.getReceiver()).getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Access ast) {
+            if (!ast.getReceiver().isPresent()) {
+                kept.add(ast.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
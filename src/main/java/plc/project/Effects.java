@@ -0,0 +1,186 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classifies analyzed expressions by what evaluating them may do, which is
+ * what decides whether an optimizing pass may remove, move, or share them.
+ *
+ *  - A <em>pure</em> expression has no side effects: it contains no function
+ *    or method calls, which may do anything.
+ *  - An expression that <em>cannot fail</em> is pure and also never throws in
+ *    the {@link Interpreter}. Division may divide by zero, and accessing a
+ *    field of a receiver depends on the receiver's value.
+ *
+ * Whether an expression can fail also depends on the source it is in. A
+ * variable declared without a value holds NIL until it is assigned, as does
+ * any variable declared or assigned with the value of such a variable, and
+ * a binary expression over one of them throws. The same holds for the
+ * result of a method that may reach the end of its body without returning,
+ * which returns NIL whatever its return type, and for variables holding it.
+ * These variables and methods are collected by {@link #of(Ast.Source)}.
+ */
+final class Effects {
+
+    private final Set<Environment.Variable> nil = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Function> nilMethods = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private Effects() {}
+
+    /**
+     * Returns the effects of the expressions in an analyzed source.
+     */
+    public static Effects of(Ast.Source source) {
+        Effects effects = new Effects();
+        for (Ast.Method method : source.getMethods()) {
+            if (!returns(method.getStatements())) {
+                effects.nilMethods.add(method.getFunction());
+            }
+        }
+        Copies copies = new Copies(effects);
+        copies.visit(source);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Environment.Variable, Ast.Expr> copy : copies.values) {
+                if (!effects.nil.contains(copy.getKey()) && effects.mayBeNil(copy.getValue())) {
+                    changed |= effects.nil.add(copy.getKey());
+                }
+            }
+        }
+        return effects;
+    }
+
+    public static boolean isPure(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expr.Group) {
+            return isPure(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) expression;
+            return isPure(binary.getLeft()) && isPure(binary.getRight());
+        } else if (expression instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) expression;
+            return !access.getReceiver().isPresent() || isPure(access.getReceiver().get());
+        } else {
+            return false;
+        }
+    }
+
+    public boolean cannotFail(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expr.Group) {
+            return cannotFail(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) expression;
+            if (binary.getOperator().equals("/")) {
+                return false;
+            } else if (mayBeNil(binary.getLeft()) || mayBeNil(binary.getRight())) {
+                return false;
+            }
+            return cannotFail(binary.getLeft()) && cannotFail(binary.getRight());
+        } else if (expression instanceof Ast.Expr.Access) {
+            return !((Ast.Expr.Access) expression).getReceiver().isPresent();
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if a variable may hold NIL when it is read.
+     */
+    public boolean mayBeNil(Environment.Variable variable) {
+        return nil.contains(variable);
+    }
+
+    /**
+     * Records a variable declared by a pass, which may hold NIL if its value
+     * is absent or may be NIL.
+     */
+    public void declare(Environment.Variable variable, Ast.Expr value) {
+        if (value == null || mayBeNil(value)) {
+            nil.add(variable);
+        }
+    }
+
+    /**
+     * Returns true if the value of an expression may be NIL as it reads a
+     * variable that may hold NIL, or calls a method that may not return.
+     */
+    public boolean mayBeNil(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Group) {
+            return mayBeNil(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Function) {
+            return nilMethods.contains(((Ast.Expr.Function) expression).getFunction());
+        }
+        return expression instanceof Ast.Expr.Access && !((Ast.Expr.Access) expression).getReceiver().isPresent()
+                && nil.contains(((Ast.Expr.Access) expression).getVariable());
+    }
+
+    /**
+     * Returns true if the statements return on every path, so they never
+     * reach the end of the method they are in.
+     */
+    private static boolean returns(List<Ast.Stmt> statements) {
+        for (Ast.Stmt statement : statements) {
+            if (statement instanceof Ast.Stmt.Return) {
+                return true;
+            } else if (statement instanceof Ast.Stmt.If && returns(((Ast.Stmt.If) statement).getThenStatements())
+                    && returns(((Ast.Stmt.If) statement).getElseStatements())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the variables declared without a value, and the values
+     * variables are declared or assigned with.
+     */
+    private static final class Copies extends Rewriter {
+
+        private final Effects effects;
+        private final List<Map.Entry<Environment.Variable, Ast.Expr>> values = new ArrayList<>();
+
+        private Copies(Effects effects) {
+            this.effects = effects;
+        }
+
+        @Override
+        public Ast visit(Ast.Field ast) {
+            if (ast.getValue().isPresent()) {
+                values.add(Map.entry(ast.getVariable(), ast.getValue().get()));
+            } else {
+                effects.nil.add(ast.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Declaration ast) {
+            if (ast.getValue().isPresent()) {
+                values.add(Map.entry(ast.getVariable(), ast.getValue().get()));
+            } else {
+                effects.nil.add(ast.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (!receiver.getReceiver().isPresent()) {
+                values.add(Map.entry(receiver.getVariable(), ast.getValue()));
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
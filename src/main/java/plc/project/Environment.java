@@ -1,5 +1,7 @@
 package plc.project;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -17,6 +19,21 @@ public final class Environment {
 
     });
 
+    public static final PlcObject TRUE = new PlcObject(Boolean.TRUE);
+    public static final PlcObject FALSE = new PlcObject(Boolean.FALSE);
+
+    /**
+     * The objects of the integers from {@code -128} to {@code 1023}, which
+     * are shared like {@link #TRUE} and {@link #FALSE}.
+     */
+    private static final PlcObject[] INTEGERS = new PlcObject[1152];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(i - 128, null);
+        }
+    }
+
     private static final Map<String, Type> TYPES = new HashMap<>();
 
     public static Type getType(String name) {
@@ -33,10 +50,39 @@ public final class Environment {
         TYPES.put(type.getName(), type);
     }
 
+    /**
+     * Creates the object of a value. Objects of booleans, integers, decimals,
+     * characters and strings share an empty scope and type, and booleans and
+     * small integers return shared objects.
+     */
     public static PlcObject create(Object value) {
+        if (value instanceof Boolean) {
+            return create((boolean) (Boolean) value);
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+            long longValue = ((BigInteger) value).longValue();
+            return isCached(longValue) ? INTEGERS[(int) longValue + 128] : new PlcObject(longValue, (BigInteger) value);
+        } else if (value instanceof BigInteger || value instanceof BigDecimal || value instanceof Character || value instanceof String) {
+            return new PlcObject(value);
+        }
         return new PlcObject(new Scope(null), value);
     }
 
+    public static PlcObject create(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Creates an integer without allocating a {@link BigInteger}, which is
+     * only created if the value is requested by {@link PlcObject#getValue}.
+     */
+    public static PlcObject create(long value) {
+        return isCached(value) ? INTEGERS[(int) value + 128] : new PlcObject(value, null);
+    }
+
+    private static boolean isCached(long value) {
+        return value >= -128 && value < INTEGERS.length - 128;
+    }
+
     public static final class Type {
 
         public static final Type ANY = new Type("Any", "Object", new Scope(null));
@@ -90,11 +136,27 @@ public final class Environment {
 
     }
 
+    /**
+     * An object holding a value of the program. Integers fitting in a long
+     * are stored as a long, and the {@link BigInteger} of the value is
+     * created on the first call to {@link #getValue}, so arithmetic on them
+     * (see {@link BinaryOperation#evaluate}) allocates only the result.
+     */
     public static final class PlcObject {
 
+        /**
+         * The scope of primitive values, which have no fields or methods of
+         * their own.
+         */
+        private static final Scope PRIMITIVE_SCOPE = new Scope(null);
+        private static final Type PRIMITIVE_TYPE = new Type("Unknown", "Unknown", PRIMITIVE_SCOPE);
+
         private final Type type;
         private final Scope scope;
+        private final boolean isLong;
+        private final long longValue;
         private final Object value;
+        private BigInteger bigValue = null; //created from longValue when requested
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
@@ -103,9 +165,24 @@ public final class Environment {
         public PlcObject(Type type, Scope scope, Object value) {
             this.type = type;
             this.scope = scope;
+            this.isLong = false;
+            this.longValue = 0;
             this.value = value;
         }
 
+        private PlcObject(Object value) {
+            this(PRIMITIVE_TYPE, PRIMITIVE_SCOPE, value);
+        }
+
+        private PlcObject(long longValue, BigInteger value) {
+            this.type = PRIMITIVE_TYPE;
+            this.scope = PRIMITIVE_SCOPE;
+            this.isLong = true;
+            this.longValue = longValue;
+            this.value = null;
+            this.bigValue = value;
+        }
+
         public Type getType() {
             return type;
         }
@@ -114,6 +191,13 @@ public final class Environment {
             return scope.lookupVariable(name);
         }
 
+        /**
+         * Returns the scope of the object's fields.
+         */
+        Scope getScope() {
+            return scope;
+        }
+
         public void setField(String name, PlcObject value) {
             scope.lookupVariable(name).setValue(value);
         }
@@ -126,14 +210,33 @@ public final class Environment {
         }
 
         public Object getValue() {
+            if (isLong) {
+                BigInteger big = bigValue;
+                if (big == null) {
+                    bigValue = big = BigInteger.valueOf(longValue); //immutable, so safe to share between threads
+                }
+                return big;
+            }
             return value;
         }
 
+        /**
+         * Returns whether the value is an integer stored as a long, which is
+         * then returned by {@link #getLong}.
+         */
+        public boolean isLong() {
+            return isLong;
+        }
+
+        public long getLong() {
+            return longValue;
+        }
+
         @Override
         public String toString() {
             return "Object{" +
                     "type=" + type +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     ", scope=" + scope +
                     '}';
         }
@@ -0,0 +1,158 @@
+package plc.project;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs many scripts concurrently. A script is parsed, analyzed and resolved
+ * once, on its first submission, and the resulting AST is shared by all of
+ * its runs. The ASTs of the last {@link #CAPACITY} scripts used are kept.
+ * Each run interprets it with a new {@link Interpreter}, so the fields
+ * (globals) of a run are its own.
+ *
+ * Runs use a virtual thread each when the runtime has them (Java 21). They
+ * are looked up by reflection, as the project builds for Java 17. Otherwise
+ * runs use a pool of one platform thread per processor.
+ */
+public final class ExecutionService implements AutoCloseable {
+
+    private final Scope parent;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    /**
+     * The number of compiled scripts kept, after which the least recently
+     * used is evicted.
+     */
+    public static final int CAPACITY = 1024;
+
+    private final Map<String, Ast.Source> scripts = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Ast.Source> eldest) {
+            return size() > CAPACITY;
+        }
+
+    };
+
+    /**
+     * Creates a service running scripts on virtual threads if available.
+     * Functions defined in the parent scope are available to scripts, and
+     * must declare their types for the {@link Analyzer}.
+     */
+    public ExecutionService(Scope parent) {
+        ExecutorService virtualThreads = newVirtualThreadExecutor();
+        this.parent = parent;
+        this.virtual = virtualThreads != null;
+        this.executor = virtual ? virtualThreads : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "plc-execution");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a service running scripts on the given executor, which it
+     * shuts down when closed.
+     */
+    public ExecutionService(Scope parent, ExecutorService executor) {
+        this.parent = parent;
+        this.executor = executor;
+        this.virtual = false;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns whether scripts run on virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Returns the analyzed and resolved AST of a script, which is cached by
+     * its source. Errors in the script are thrown here, not cached.
+     *
+     * The cache is only locked to look up and add ASTs, not while compiling,
+     * so a script being compiled does not hold up other submissions. A
+     * script first submitted by several threads at once may be compiled by
+     * each of them, and the first AST added is used.
+     */
+    public Ast.Source compile(String source) {
+        synchronized (scripts) {
+            Ast.Source cached = scripts.get(source);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(parent).visit(ast);
+        new Resolver().visit(ast);
+        synchronized (scripts) {
+            Ast.Source cached = scripts.putIfAbsent(source, ast);
+            return cached != null ? cached : ast;
+        }
+    }
+
+    /**
+     * Submits a run of a script, returning the result of its main method. The
+     * script is compiled before this returns, so its errors are thrown here
+     * rather than by the run.
+     */
+    public Future<Environment.PlcObject> submit(String source) {
+        Ast.Source ast = compile(source);
+        return executor.submit(() -> new Interpreter(parent).visit(ast));
+    }
+
+    /**
+     * Waits for a run to complete, returning its result. If it does not
+     * complete within the timeout the run is cancelled, which interrupts it
+     * at its next loop iteration or method invocation, and a
+     * {@link TimeoutException} is thrown.
+     * A {@link RuntimeException} thrown by the run is rethrown.
+     */
+    public static Environment.PlcObject await(Future<Environment.PlcObject> run, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            return run.get(timeout, unit);
+        } catch (TimeoutException e) {
+            run.cancel(true);
+            throw e;
+        } catch (CancellationException e) {
+            throw new RuntimeException("The run was cancelled.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Runs a script and waits for its result, see {@link #await}.
+     */
+    public Environment.PlcObject run(String source, long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        return await(submit(source), timeout, unit);
+    }
+
+    /**
+     * Stops accepting scripts and interrupts the runs in progress.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,157 @@
+package plc.project;
+
+import java.util.List;
+
+/**
+ * Builds a structural key for an AST, which is equal for two trees exactly
+ * when they would parse from the same program text. Unlike {@link Ast#equals},
+ * the key ignores the types, variables, and functions set by the
+ * {@link Analyzer}, so an analyzed tree matches a freshly parsed copy.
+ */
+final class Fingerprint implements Ast.Visitor<Void> {
+
+    private final StringBuilder builder = new StringBuilder();
+
+    private Fingerprint() {}
+
+    public static String of(Ast ast) {
+        Fingerprint fingerprint = new Fingerprint();
+        fingerprint.visit(ast);
+        return fingerprint.builder.toString();
+    }
+
+    private void append(Object... objects) {
+        for (Object object : objects) {
+            if (object instanceof Ast) {
+                visit((Ast) object);
+            } else {
+                builder.append(object);
+            }
+        }
+    }
+
+    private void appendAll(List<? extends Ast> asts) {
+        builder.append('[');
+        for (Ast ast : asts) {
+            visit(ast);
+        }
+        builder.append(']');
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        append("(Source ");
+        appendAll(ast.getFields());
+        appendAll(ast.getMethods());
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        append("(Field ", ast.getName(), ":", ast.getTypeName());
+        ast.getValue().ifPresent(value -> append(" ", value));
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        append("(Method ", ast.getName(), " ", ast.getParameters(), " ", ast.getParameterTypeNames(), " ", ast.getReturnTypeName().orElse(""), " ");
+        appendAll(ast.getStatements());
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        append("(Expression ", ast.getExpression(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        append("(Declaration ", ast.getName(), ":", ast.getTypeName().orElse(""));
+        ast.getValue().ifPresent(value -> append(" ", value));
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        append("(Assignment ", ast.getReceiver(), " ", ast.getValue(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        append("(If ", ast.getCondition(), " ");
+        appendAll(ast.getThenStatements());
+        appendAll(ast.getElseStatements());
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        append("(For ", ast.getName(), " ", ast.getValue(), " ");
+        appendAll(ast.getStatements());
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        append("(While ", ast.getCondition(), " ");
+        appendAll(ast.getStatements());
+        append(")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        append("(Return ", ast.getValue(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        //The class keeps 1, 1.0, '1', and "1" apart, and the length keeps
+        //string contents from being read as structure
+        Object literal = ast.getLiteral();
+        String text = String.valueOf(literal);
+        append("(Literal ", literal == null ? "Nil" : literal.getClass().getSimpleName(), " ", text.length(), ":", text, ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        append("(Group ", ast.getExpression(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        append("(Binary ", ast.getOperator(), " ", ast.getLeft(), " ", ast.getRight(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        append("(Access ");
+        ast.getReceiver().ifPresent(receiver -> append(receiver, "."));
+        append(ast.getName(), ")");
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        append("(Function ");
+        ast.getReceiver().ifPresent(receiver -> append(receiver, "."));
+        append(ast.getName(), " ");
+        appendAll(ast.getArguments());
+        append(")");
+        return null;
+    }
+
+}
@@ -316,6 +316,12 @@ public final class Generator implements Ast.Visitor<Void> {
         {
             print(lhs, " || " , rhs);
         }
+        else if (ast.getRange() != null && !ast.getRange().isInt() && !op.equals("/"))
+        {
+            //The RangeAnalyzer could not prove the result fits in an int
+            String method = op.equals("+") ? "addExact" : op.equals("-") ? "subtractExact" : "multiplyExact";
+            print("Math.", method, "(", lhs, ", ", rhs, ")");
+        }
         else
         {
             print(lhs, " ", op, " ", rhs);
@@ -0,0 +1,165 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A polymorphic inline cache of a field access or method call on a
+ * receiver, kept by its {@link Ast.Expr.Access} or {@link Ast.Expr.Function}
+ * and used by the {@link Interpreter}.
+ *
+ * Methods are looked up on the receiver's {@link Environment.Type}, so
+ * method entries are keyed on the type. Fields are variables of the
+ * receiver's own scope, so field entries are keyed on that scope (which
+ * objects of primitive values share). Each entry records the scope its
+ * target was found in, and is reused while a lookup from the key's scope
+ * would still find it there (see {@link Scope#isFunctionVisible} and
+ * {@link Scope#isVariableVisible}), so defining functions or variables in
+ * unrelated scopes does not invalidate it. Once a site sees more than
+ * {@link #LIMIT} receivers it is megamorphic, and always looks up the
+ * target without caching.
+ *
+ * The entries are replaced as a whole rather than modified, so a cache may
+ * be shared by interpreters on several threads.
+ */
+final class InlineCache {
+
+    /**
+     * The number of receiver types (or scopes) cached before a site becomes
+     * megamorphic.
+     */
+    static final int LIMIT = 4;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private volatile Entry[] entries = EMPTY;
+    private volatile boolean megamorphic = false;
+    private int hits = 0;
+    private int misses = 0;
+
+    /**
+     * Returns the method a call on the receiver resolves to.
+     */
+    Environment.Function method(Environment.PlcObject receiver, String name, int arity) {
+        Environment.Type type = receiver.getType();
+        Entry entry = lookup(type);
+        if (entry != null && type.getScope().isFunctionVisible(entry.definer, entry.name)) {
+            hits++;
+            return (Environment.Function) entry.target;
+        }
+        misses++;
+        String key = name + "/" + (arity + 1); //the receiver is the first argument
+        Scope definer = type.getScope().lookupFunctionScope(key);
+        Environment.Function method = type.getMethod(name, arity);
+        update(new Entry(type, definer, key, method));
+        return method;
+    }
+
+    /**
+     * Returns the variable of the receiver's field.
+     */
+    Environment.Variable field(Environment.PlcObject receiver, String name) {
+        Scope scope = receiver.getScope();
+        Entry entry = lookup(scope);
+        if (entry != null && scope.isVariableVisible(entry.definer, name)) {
+            hits++;
+            return (Environment.Variable) entry.target;
+        }
+        misses++;
+        Scope definer = scope.lookupVariableScope(name);
+        Environment.Variable field = definer.lookupVariable(name);
+        update(new Entry(scope, definer, name, field));
+        return field;
+    }
+
+    private Entry lookup(Object key) {
+        for (Entry entry : entries) {
+            if (entry.key == key) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds an entry, replacing any entry of the same key (whose target is
+     * now shadowed).
+     */
+    private void update(Entry added) {
+        if (megamorphic) {
+            return;
+        }
+        Entry[] current = entries;
+        int kept = 0;
+        for (Entry entry : current) {
+            if (entry.key != added.key) {
+                kept++;
+            }
+        }
+        if (kept == LIMIT) {
+            megamorphic = true;
+            entries = EMPTY;
+            return;
+        }
+        Entry[] updated = new Entry[kept + 1];
+        int i = 0;
+        for (Entry entry : current) {
+            if (entry.key != added.key) {
+                updated[i++] = entry;
+            }
+        }
+        updated[i] = added;
+        entries = updated;
+    }
+
+    /**
+     * Returns the number of accesses that used a cached target.
+     */
+    int getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of accesses that looked up their target, including
+     * every access once the site is megamorphic. Counts are not
+     * synchronized, so they are approximate when shared by threads.
+     */
+    int getMisses() {
+        return misses;
+    }
+
+    boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    @Override
+    public String toString() {
+        return "InlineCache{" +
+                "entries=" + Arrays.toString(entries) +
+                ", megamorphic=" + megamorphic +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                '}';
+    }
+
+    private static final class Entry {
+
+        private final Object key;
+        private final Scope definer;
+        private final String name; //looked up in the definer
+        private final Object target;
+
+        private Entry(Object key, Scope definer, String name, Object target) {
+            this.key = key;
+            this.definer = definer;
+            this.name = name;
+            this.target = target;
+        }
+
+        @Override
+        public String toString() {
+            return key + " -> " + target;
+        }
+
+    }
+
+}
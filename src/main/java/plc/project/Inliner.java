@@ -0,0 +1,388 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Replaces calls to small methods of an analyzed source with the bodies of
+ * the methods. Methods are inlined if they are not recursive, have at most
+ * {@code budget} statements and expressions, and only return at the end of
+ * their body. Methods are processed in source order, so calls in the body of
+ * an inlined method have already been inlined themselves.
+ *
+ *  - A method whose body is a single {@code RETURN} is substituted directly
+ *    for the call, replacing each parameter with its argument. This is done
+ *    when the arguments cannot fail and only read literals and locals of the
+ *    caller, which the body cannot assign (unlike fields, which a call in the
+ *    body may assign), so it does not matter when (or whether) they are
+ *    evaluated, and an argument used more than once is a literal or a
+ *    variable.
+ *  - Otherwise, a call that is the value of a declaration, assignment,
+ *    expression statement, or return is replaced with declarations of the
+ *    parameters (in argument order), the body, and the statement with the
+ *    returned value in place of the call.
+ *
+ * Parameters and locals of an inlined body are renamed to {@code name$n},
+ * which can't clash with names in the source since {@code $} is not allowed
+ * in identifiers. A method is not inlined into a caller declaring any of the
+ * globals the method uses, which would shadow them.
+ */
+public final class Inliner extends Rewriter {
+
+    private final int budget;
+    private final Map<Environment.Function, Ast.Method> inlinable = new IdentityHashMap<>();
+    private final Set<Environment.Variable> fields = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Set<String> names = Collections.emptySet(); //declared in the current caller
+    private Effects effects;
+    private int inlined = 0;
+    private int renamed = 0;
+
+    public Inliner(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the number of calls inlined by the last call to inline.
+     */
+    public int getInlined() {
+        return inlined;
+    }
+
+    public Ast.Source inline(Ast.Source source) {
+        CallGraph graph = CallGraph.of(source);
+        inlinable.clear();
+        inlined = 0;
+        effects = Effects.of(source);
+        fields.clear();
+        for (Ast.Field field : source.getFields()) {
+            fields.add(field.getVariable());
+        }
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : source.getMethods()) {
+            names = Names.declared(method);
+            Ast.Method rewritten = (Ast.Method) visit(method);
+            if (!graph.isRecursive(method.getFunction()) && size(rewritten) <= budget && Names.isInlinable(rewritten)) {
+                inlinable.put(method.getFunction(), rewritten);
+            }
+            methods.add(rewritten);
+        }
+        return isSame(source.getMethods(), methods) ? source : new Ast.Source(source.getFields(), methods);
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Function ast) {
+        Ast.Expr.Function call = (Ast.Expr.Function) super.visit(ast);
+        Ast.Method method = lookup(call);
+        if (method == null || method.getStatements().size() != 1 || !canSubstitute(method, call)) {
+            return call;
+        }
+        Map<String, Ast.Expr> arguments = new HashMap<>();
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            arguments.put(method.getParameters().get(i), call.getArguments().get(i));
+        }
+        inlined++;
+        return group(new Renaming(Collections.emptyMap(), arguments).rewrite(((Ast.Stmt.Return) method.getStatements().get(0)).getValue()));
+    }
+
+    @Override
+    protected void rewrite(Ast.Stmt statement, List<Ast.Stmt> statements) {
+        Ast.Stmt rewritten = (Ast.Stmt) visit(statement);
+        Ast.Expr.Function call = callOf(rewritten);
+        Ast.Method method = call != null ? lookup(call) : null;
+        if (method == null) {
+            statements.add(rewritten);
+            return;
+        }
+        inlined++;
+        int n = ++renamed;
+
+        Map<String, Ast.Expr> parameters = new HashMap<>();
+        boolean nil = false; //if a parameter may be NIL, so may any local
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            String name = method.getParameters().get(i) + "$" + n;
+            Environment.Variable variable = new Environment.Variable(name, name, method.getFunction().getParameterTypes().get(i), Environment.NIL);
+            effects.declare(variable, call.getArguments().get(i));
+            nil |= effects.mayBeNil(variable);
+            rewrite(declaration(variable, call.getArguments().get(i)), statements); //the argument may be inlinable
+            Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), name);
+            access.setVariable(variable);
+            parameters.put(method.getParameters().get(i), access);
+        }
+        Map<Environment.Variable, Environment.Variable> locals = new IdentityHashMap<>();
+        for (Environment.Variable local : Names.locals(method)) {
+            String name = local.getName() + "$" + n;
+            Environment.Variable renamed = new Environment.Variable(name, name, local.getType(), Environment.NIL);
+            if (nil || effects.mayBeNil(local)) {
+                effects.declare(renamed, null);
+            }
+            locals.put(local, renamed);
+        }
+        Renaming renaming = new Renaming(locals, parameters);
+        List<Ast.Stmt> body = method.getStatements();
+        statements.addAll(renaming.rewrite(body.subList(0, body.size() - 1)));
+        Ast.Expr value = renaming.rewrite(((Ast.Stmt.Return) body.get(body.size() - 1)).getValue());
+
+        if (rewritten instanceof Ast.Stmt.Declaration) {
+            Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) rewritten;
+            Ast.Stmt.Declaration replaced = new Ast.Stmt.Declaration(declaration.getName(), declaration.getTypeName(), Optional.of(value));
+            replaced.setVariable(declaration.getVariable());
+            statements.add(replaced);
+        } else if (rewritten instanceof Ast.Stmt.Assignment) {
+            statements.add(new Ast.Stmt.Assignment(((Ast.Stmt.Assignment) rewritten).getReceiver(), value));
+        } else if (rewritten instanceof Ast.Stmt.Return) {
+            statements.add(new Ast.Stmt.Return(value));
+        } else if (value instanceof Ast.Expr.Function) {
+            statements.add(new Ast.Stmt.Expression(value));
+        } else if (!Effects.isPure(value) || !effects.cannotFail(value)) {
+            String name = "result$" + n; //evaluated for its effects
+            statements.add(declaration(new Environment.Variable(name, name, value.getType(), Environment.NIL), value));
+        }
+    }
+
+    /**
+     * Returns the inlinable method called (without a receiver), or null.
+     */
+    private Ast.Method lookup(Ast.Expr.Function call) {
+        if (call.getReceiver().isPresent()) {
+            return null;
+        }
+        Ast.Method method = inlinable.get(call.getFunction());
+        if (method == null || !Collections.disjoint(Names.globals(method), names)) {
+            return null;
+        }
+        return method;
+    }
+
+    /**
+     * Returns the call that is the value of a statement that can be replaced
+     * by the body of the called method, or null.
+     */
+    private static Ast.Expr.Function callOf(Ast.Stmt statement) {
+        Ast.Expr value = null;
+        if (statement instanceof Ast.Stmt.Declaration) {
+            value = ((Ast.Stmt.Declaration) statement).getValue().orElse(null);
+        } else if (statement instanceof Ast.Stmt.Assignment && !((Ast.Expr.Access) ((Ast.Stmt.Assignment) statement).getReceiver()).getReceiver().isPresent()) {
+            value = ((Ast.Stmt.Assignment) statement).getValue();
+        } else if (statement instanceof Ast.Stmt.Expression) {
+            value = ((Ast.Stmt.Expression) statement).getExpression();
+        } else if (statement instanceof Ast.Stmt.Return) {
+            value = ((Ast.Stmt.Return) statement).getValue();
+        }
+        return value instanceof Ast.Expr.Function ? (Ast.Expr.Function) value : null;
+    }
+
+    /**
+     * Returns true if each argument of a call only reads literals and locals
+     * of the caller, which the body cannot assign, and cannot fail. An
+     * argument used more than once must be a literal or a variable.
+     */
+    private boolean canSubstitute(Ast.Method method, Ast.Expr.Function call) {
+        Map<String, Integer> uses = Names.uses(method);
+        for (int i = 0; i < call.getArguments().size(); i++) {
+            Ast.Expr argument = call.getArguments().get(i);
+            if (!Effects.isPure(argument) || !effects.cannotFail(argument) || readsField(argument)) {
+                return false;
+            } else if (uses.getOrDefault(method.getParameters().get(i), 0) > 1
+                    && !(argument instanceof Ast.Expr.Literal || argument instanceof Ast.Expr.Access)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean readsField(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Group) {
+            return readsField(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            return readsField(((Ast.Expr.Binary) expression).getLeft()) || readsField(((Ast.Expr.Binary) expression).getRight());
+        } else if (expression instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) expression;
+            return access.getReceiver().isPresent() || fields.contains(access.getVariable());
+        }
+        return false;
+    }
+
+    private static Ast.Stmt.Declaration declaration(Environment.Variable variable, Ast.Expr value) {
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(variable.getName(), Optional.of(variable.getType().getName()), Optional.of(value));
+        declaration.setVariable(variable);
+        return declaration;
+    }
+
+    /**
+     * Wraps a binary expression in a group, keeping it together when it is
+     * substituted into another expression.
+     */
+    private static Ast.Expr group(Ast.Expr expression) {
+        if (!(expression instanceof Ast.Expr.Binary)) {
+            return expression;
+        }
+        Ast.Expr.Group group = new Ast.Expr.Group(expression);
+        group.setType(expression.getType());
+        return group;
+    }
+
+    /**
+     * Renames the locals of an inlined body and replaces its parameters. As
+     * parameters are declared in the outermost scope of a method, any access
+     * with a parameter's name that is not to a local is to the parameter.
+     */
+    private static final class Renaming extends Rewriter {
+
+        private final Map<Environment.Variable, Environment.Variable> locals;
+        private final Map<String, Ast.Expr> parameters;
+
+        private Renaming(Map<Environment.Variable, Environment.Variable> locals, Map<String, Ast.Expr> parameters) {
+            this.locals = locals;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Declaration ast) {
+            Optional<Ast.Expr> value = rewrite(ast.getValue());
+            Environment.Variable variable = locals.get(ast.getVariable());
+            Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(variable.getName(), ast.getTypeName(), value);
+            declaration.setVariable(variable);
+            return declaration;
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr receiver = ast.getReceiver();
+            Ast.Expr.Access access = (Ast.Expr.Access) receiver;
+            if (!access.getReceiver().isPresent()) {
+                receiver = rewrite(receiver);
+            }
+            return new Ast.Stmt.Assignment(rewriteReceiver(receiver), rewrite(ast.getValue()));
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Access ast) {
+            if (ast.getReceiver().isPresent()) {
+                return super.visit(ast);
+            } else if (locals.containsKey(ast.getVariable())) {
+                Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), locals.get(ast.getVariable()).getName());
+                access.setVariable(locals.get(ast.getVariable()));
+                return access;
+            } else if (parameters.containsKey(ast.getName())) {
+                return group(parameters.get(ast.getName()));
+            }
+            return ast;
+        }
+
+    }
+
+    /**
+     * Collects the names used by methods.
+     */
+    private static final class Names extends Rewriter {
+
+        private final Set<String> declared = new HashSet<>();
+        private final List<Environment.Variable> locals = new ArrayList<>();
+        private final Map<String, Integer> accessed = new HashMap<>();
+        private final Set<Environment.Variable> accessedLocals = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<String> globals = new HashSet<>();
+        private final Set<String> loops = new HashSet<>();
+        private int returns = 0;
+
+        private static Names of(Ast.Method method) {
+            Names names = new Names();
+            names.declared.addAll(method.getParameters());
+            names.visit(method);
+            return names;
+        }
+
+        /**
+         * Returns the names of the parameters and variables declared in a
+         * method, which shadow globals of the same name.
+         */
+        private static Set<String> declared(Ast.Method method) {
+            return of(method).declared;
+        }
+
+        private static List<Environment.Variable> locals(Ast.Method method) {
+            return of(method).locals;
+        }
+
+        /**
+         * Returns the number of accesses to each name that is not a local.
+         */
+        private static Map<String, Integer> uses(Ast.Method method) {
+            return of(method).accessed;
+        }
+
+        /**
+         * Returns the names accessed by a method that are not its parameters
+         * or locals.
+         */
+        private static Set<String> globals(Ast.Method method) {
+            Names names = of(method);
+            Set<String> globals = new HashSet<>(names.accessed.keySet());
+            globals.removeAll(method.getParameters());
+            globals.addAll(names.globals);
+            return globals;
+        }
+
+        /**
+         * Returns true if the only return of a method ends its body and no
+         * loop variable hides a parameter, which would be substituted.
+         */
+        private static boolean isInlinable(Ast.Method method) {
+            Names names = of(method);
+            List<Ast.Stmt> statements = method.getStatements();
+            return names.returns == 1 && !statements.isEmpty() && statements.get(statements.size() - 1) instanceof Ast.Stmt.Return
+                    && Collections.disjoint(names.loops, method.getParameters());
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Declaration ast) {
+            declared.add(ast.getName());
+            locals.add(ast.getVariable());
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            visit(ast.getReceiver());
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.For ast) {
+            declared.add(ast.getName());
+            loops.add(ast.getName());
+            globals.add(ast.getName()); //not renamed, so it must not be shadowed either
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Return ast) {
+            returns++;
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Access ast) {
+            if (!ast.getReceiver().isPresent() && !locals.contains(ast.getVariable())) {
+                accessed.merge(ast.getName(), 1, Integer::sum);
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Function ast) {
+            if (!ast.getReceiver().isPresent()) {
+                globals.add(ast.getName());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
@@ -5,13 +5,23 @@ import java.math.BigInteger;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * Interprets a source. The methods it defines run each invocation in an
+ * interpreter of their own, which holds the scope, frame and return value of
+ * that invocation, so a program can be invoked from several threads at once
+ * (such as through {@link #getScope}) once it has been defined.
+ */
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     private Scope scope = new Scope(null);
-    private Scope methodDefinitionScope = null;
+    private Environment.PlcObject[] frame = null; //locals of the current method, if resolved
+    private MemoTable memoTable = null;
+    private Tiering tiering = null;
+    private Environment.PlcObject returned = null; //value of the RETURN completing the current method, if any
 
     public Interpreter(Scope parent) {
         scope = new Scope(parent);
@@ -21,10 +31,36 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         });
     }
 
+    /**
+     * Creates the interpreter of a method invocation, starting in the scope
+     * the method was defined in.
+     */
+    private Interpreter(Scope scope, Tiering tiering) {
+        this.scope = scope;
+        this.tiering = tiering;
+    }
+
     public Scope getScope() {
         return scope;
     }
 
+    /**
+     * Memoizes calls to methods marked pure by the {@link PurityAnalyzer} in
+     * the given table, which applies to methods defined after this is set.
+     */
+    public void setMemoTable(MemoTable memoTable) {
+        this.memoTable = memoTable;
+    }
+
+    /**
+     * Moves hot methods and loops to compiled code as configured by the
+     * given tiering, which applies to resolved methods defined after this is
+     * set.
+     */
+    public void setTiering(Tiering tiering) {
+        this.tiering = tiering;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
         for(Ast.Stmt.Field field : ast.getFields())
@@ -57,42 +93,46 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Method ast) {
         int arity = ast.getParameters().size();
+        Scope definitionScope = scope;
+        Tiering tiers = tiering;
 
-        List<String> params = ast.getParameters();
-        List<Ast.Stmt> statements = ast.getStatements();
-
-        methodDefinitionScope = scope;
-
-        scope.defineFunction(ast.getName(), arity, args -> { //I can't get this to work and I am running out of time :(
-
-            scope = new Scope(methodDefinitionScope); //Set the scope to be a new child of the scope *where the funciton was defined*
+        java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function = args -> {
+            Environment.PlcObject compiled = tiers != null && ast.getFrameSize() >= 0 ? tiers.invoke(ast, definitionScope, args) : null;
+            return compiled != null ? compiled : new Interpreter(definitionScope, tiers).invoke(ast, args);
+        };
 
-            for(int i = 0; i < arity; i++)
-            {
-                scope.defineVariable(params.get(i), args.get(i));
-            }
-
-            for(int i = 0; i < statements.size(); i++)
-            {
-                try
-                {
-                    Environment.PlcObject capt = visit(statements.get(i));
-                }
-                catch (Return r)
-                {
-                    scope = scope.getParent();
-                    return r.value;
-                }
-            }
-
-            scope = scope.getParent();
-            return Environment.NIL;
-
-        });
+        MemoTable memo = memoTable;
+        if(memo != null && ast.isPure())
+            scope.defineFunction(ast.getName(), arity, args -> memo.call(ast, args, function));
+        else
+            scope.defineFunction(ast.getName(), arity, function);
 
         return Environment.NIL;
     }
 
+    /**
+     * Runs a method in the interpreter of its invocation. The locals of a
+     * method resolved by the {@link Resolver} are kept in a frame indexed by
+     * their slots, and otherwise in a new scope of the definition scope.
+     */
+    private Environment.PlcObject invoke(Ast.Method ast, List<Environment.PlcObject> args) {
+        requireNotInterrupted();
+        if(ast.getFrameSize() >= 0)
+        {
+            frame = new Environment.PlcObject[ast.getFrameSize()];
+            for(int i = 0; i < args.size(); i++)
+                frame[i] = args.get(i);
+        }
+        else
+        {
+            scope = new Scope(scope); //A new child of the scope *where the function was defined*
+            for(int i = 0; i < args.size(); i++)
+                scope.defineVariable(ast.getParameters().get(i), args.get(i));
+        }
+        visitStatements(ast.getStatements());
+        return complete();
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Expression ast) {
         visit(ast.getExpression());
@@ -102,7 +142,11 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Declaration ast)
     {
-        if(ast.getValue().isPresent()) //Has initial value
+        if(ast.getSlot() >= 0) //Resolved local
+        {
+            frame[ast.getSlot()] = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
+        }
+        else if(ast.getValue().isPresent()) //Has initial value
         {
             scope.defineVariable(ast.getName(), visit(ast.getValue().get()));
         }
@@ -123,7 +167,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         if(lhs.getReceiver().isPresent()) //Has field
         {
             Environment.PlcObject object = visit(lhs.getReceiver().get());
-            object.setField(lhs.getName(), visit(ast.getValue()));
+            Environment.PlcObject value = visit(ast.getValue());
+            lhs.getInlineCache().field(object, lhs.getName()).setValue(value);
+        }
+        else if(lhs.getSlot() >= 0) //Resolved local
+        {
+            frame[lhs.getSlot()] = visit(ast.getValue());
         }
         else //No field
         {
@@ -136,35 +185,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Stmt.If ast) {
 
-        if(requireType(Boolean.class, visit(ast.getCondition())))
+        if(frame != null) //Resolved blocks have no scope of their own
         {
-            try
-            {
-                scope = new Scope(scope);
-                for (Ast.Stmt stmt : ast.getThenStatements())
-                {
-                    visit(stmt);
-                }
-            }
-            finally
-            {
-                scope = scope.getParent();
-            }
+            visitStatements(requireType(Boolean.class, visit(ast.getCondition())) ? ast.getThenStatements() : ast.getElseStatements());
         }
         else
         {
-            try
-            {
-                scope = new Scope(scope);
-                for (Ast.Stmt stmt : ast.getElseStatements())
-                {
-                    visit(stmt);
-                }
-            }
-            finally
-            {
-                scope = scope.getParent();
-            }
+            visitBlock(requireType(Boolean.class, visit(ast.getCondition())) ? ast.getThenStatements() : ast.getElseStatements());
         }
         return Environment.NIL;
     }
@@ -173,6 +200,26 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     public Environment.PlcObject visit(Ast.Stmt.For ast) {
         Iterable iterator = requireType(Iterable.class, visit(ast.getValue()));
 
+        if(ast.getSlot() >= 0) //Resolved loop variable
+        {
+            java.util.function.Function<Environment.PlcObject[], Environment.PlcObject> compiled = tiering != null ? tiering.getLoop(ast, scope) : null;
+            Iterator<?> elements = iterator.iterator();
+            while(elements.hasNext())
+            {
+                frame[ast.getSlot()] = (Environment.PlcObject)elements.next();
+                if(compiled != null) //The body is compiled, possibly since an earlier iteration
+                    execute(compiled);
+                else
+                    visitStatements(ast.getStatements());
+                if(returned != null)
+                    break;
+                requireNotInterrupted();
+                if(compiled == null && tiering != null)
+                    compiled = tiering.backEdge(ast, scope);
+            }
+            return Environment.NIL;
+        }
+
         for(Object obj : iterator) //for each in the iterator
         {
             try {
@@ -180,11 +227,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
                 scope.defineVariable(ast.getName(), (Environment.PlcObject)obj);
 
-                for(Ast.Stmt statement : ast.getStatements())
-                    visit(statement);
+                visitStatements(ast.getStatements());
             } finally {
                 scope = scope.getParent(); //Escaping back up to outside of while scope
             }
+            if(returned != null)
+                break;
+            requireNotInterrupted();
         }
         return Environment.NIL;
     }
@@ -192,32 +241,122 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Stmt.While ast)
     {
-        while(requireType(Boolean.class, visit(ast.getCondition())))
+        if(frame != null) //Resolved blocks have no scope of their own
         {
-            try {
-                scope = new Scope(scope); //New scope created for while loop
-                ast.getStatements().forEach(this::visit);
-            } finally {
-                scope = scope.getParent(); //Escaping back up to outside of while scope
+            java.util.function.Function<Environment.PlcObject[], Environment.PlcObject> compiled = tiering != null ? tiering.getLoop(ast, scope) : null;
+            if(compiled != null)
+                return execute(compiled);
+            while(requireType(Boolean.class, visit(ast.getCondition())))
+            {
+                visitStatements(ast.getStatements());
+                if(returned != null)
+                    break;
+                requireNotInterrupted();
+                compiled = tiering != null ? tiering.backEdge(ast, scope) : null;
+                if(compiled != null) //Switches to the compiled loop, which continues with the next iteration
+                    return execute(compiled);
             }
+            return Environment.NIL;
         }
+
+        while(requireType(Boolean.class, visit(ast.getCondition())))
+        {
+            visitBlock(ast.getStatements());
+            if(returned != null)
+                break;
+            requireNotInterrupted();
+        }
+        return Environment.NIL;
+    }
+
+    /**
+     * Stops a loop or method invocation whose thread was interrupted, which
+     * is how a run is cancelled (such as by an {@link ExecutionService}
+     * timeout).
+     */
+    private static void requireNotInterrupted()
+    {
+        if(Thread.currentThread().isInterrupted())
+            throw new RuntimeException("The run was interrupted.");
+    }
+
+    /**
+     * Executes compiled statements on the current frame, completing the
+     * method if they return.
+     */
+    private Environment.PlcObject execute(java.util.function.Function<Environment.PlcObject[], Environment.PlcObject> compiled) {
+        returned = compiled.apply(frame);
         return Environment.NIL;
     }
 
+    /**
+     * Visits statements until one of them returns. A RETURN completes the
+     * method by setting {@code returned} rather than throwing, so blocks and
+     * loops stop after the statement setting it, and the method's invocation
+     * takes the value with {@link #complete}.
+     */
+    private void visitStatements(List<Ast.Stmt> statements)
+    {
+        for(Ast.Stmt statement : statements)
+        {
+            visit(statement);
+            if(returned != null)
+                return;
+        }
+    }
+
+    /**
+     * Visits the statements of a block in a scope of its own, which is only
+     * created if the block declares variables.
+     */
+    private void visitBlock(List<Ast.Stmt> statements)
+    {
+        if(!declares(statements))
+        {
+            visitStatements(statements);
+            return;
+        }
+        scope = new Scope(scope);
+        try
+        {
+            visitStatements(statements);
+        }
+        finally
+        {
+            scope = scope.getParent();
+        }
+    }
+
+    private static boolean declares(List<Ast.Stmt> statements)
+    {
+        for(Ast.Stmt statement : statements)
+        {
+            if(statement instanceof Ast.Stmt.Declaration)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the value the current method returned, or NIL if it completed
+     * without returning, and clears it for the caller.
+     */
+    private Environment.PlcObject complete()
+    {
+        Environment.PlcObject value = returned;
+        returned = null;
+        return value != null ? value : Environment.NIL;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Return ast) {
-        Environment.PlcObject returnVal = visit(ast.getValue());
-        throw new Return(returnVal);
+        returned = visit(ast.getValue());
+        return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Literal ast) {
-        if(ast.getLiteral() == null) {
-            return Environment.NIL;
-        }
-        else {
-            return Environment.create(ast.getLiteral());
-        }
+        return ast.getValue();
     }
 
     @Override
@@ -228,6 +367,38 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Expr.Binary ast)
     {
+        BinaryOperation operation = ast.getOperation();
+        if(isLong(ast) && isLong(ast.getLeft()) && isLong(ast.getRight())) //Proven by the RangeAnalyzer to fit in a long, so only the result is a BigInteger
+        {
+            return Environment.create(evaluateLong(ast));
+        }
+        else if(isComparison(operation) && isLong(ast.getLeft()) && isLong(ast.getRight()))
+        {
+            long lhs = evaluateLong(ast.getLeft());
+            long rhs = evaluateLong(ast.getRight());
+            switch(operation)
+            {
+                case LESS: return Environment.create(lhs < rhs);
+                case LESS_EQUAL: return Environment.create(lhs <= rhs);
+                case GREATER: return Environment.create(lhs > rhs);
+                case GREATER_EQUAL: return Environment.create(lhs >= rhs);
+                case EQUAL: return Environment.create(lhs == rhs);
+                default: return Environment.create(lhs != rhs);
+            }
+        }
+        else if(operation == BinaryOperation.AND) //Specialized by the Analyzer, so the operands are known to be booleans
+        {
+            return Environment.create((Boolean) visit(ast.getLeft()).getValue() && (Boolean) visit(ast.getRight()).getValue());
+        }
+        else if(operation == BinaryOperation.OR)
+        {
+            return Environment.create((Boolean) visit(ast.getLeft()).getValue() || (Boolean) visit(ast.getRight()).getValue());
+        }
+        else if(operation != null)
+        {
+            return operation.evaluate(visit(ast.getLeft()), visit(ast.getRight()));
+        }
+
         String operator = ast.getOperator();
 
         if(operator.equals("AND"))
@@ -307,8 +478,8 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
             if(lhs instanceof String || rhs instanceof String)
             {
-                String Left = (String) lhs;
-                String Right = (String) rhs;
+                String Left = lhs.toString();
+                String Right = rhs.toString();
 
                 return Environment.create(Left.concat(Right));
             }
@@ -473,14 +644,61 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return Environment.NIL;
     }
 
+    private static boolean isLong(Ast.Expr ast) {
+        return ast.getRange() != null && ast.getRange().isLong();
+    }
+
+    private static boolean isComparison(BinaryOperation operation) {
+        return operation == BinaryOperation.LESS || operation == BinaryOperation.LESS_EQUAL
+                || operation == BinaryOperation.GREATER || operation == BinaryOperation.GREATER_EQUAL
+                || operation == BinaryOperation.EQUAL || operation == BinaryOperation.NOT_EQUAL;
+    }
+
+    /**
+     * Evaluates an Integer expression whose range fits in a long, using long
+     * arithmetic for every operation whose operands also fit.
+     */
+    private long evaluateLong(Ast.Expr ast) {
+        if(ast instanceof Ast.Expr.Binary && isLong(((Ast.Expr.Binary) ast).getLeft()) && isLong(((Ast.Expr.Binary) ast).getRight()))
+        {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            long lhs = evaluateLong(binary.getLeft());
+            long rhs = evaluateLong(binary.getRight());
+            switch(binary.getOperation())
+            {
+                case INTEGER_ADD: return lhs + rhs;
+                case INTEGER_SUBTRACT: return lhs - rhs;
+                case INTEGER_MULTIPLY: return lhs * rhs;
+                case INTEGER_DIVIDE:
+                    if(rhs == 0)
+                        throw new RuntimeException("Divide by zero");
+                    return lhs / rhs;
+            }
+        }
+        else if(ast instanceof Ast.Expr.Group)
+        {
+            return evaluateLong(((Ast.Expr.Group) ast).getExpression());
+        }
+        else if(ast instanceof Ast.Expr.Literal)
+        {
+            return ((BigInteger) ((Ast.Expr.Literal) ast).getLiteral()).longValue();
+        }
+        Environment.PlcObject value = visit(ast);
+        return value.isLong() ? value.getLong() : ((BigInteger) value.getValue()).longValue();
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Expr.Access ast) {
         if(ast.getReceiver().isPresent()) //Has receiver, return
         {
             Environment.PlcObject receiverValue = visit(ast.getReceiver().get()); //Visit your receiver to get its name
-            Environment.Variable branch = receiverValue.getField(ast.getName());  //Lookup said name within the receiverObj
+            Environment.Variable branch = ast.getInlineCache().field(receiverValue, ast.getName());  //Lookup said name within the receiverObj
             return branch.getValue(); //Return value from said lookup
         }
+        else if(ast.getSlot() >= 0) //Resolved local
+        {
+            return frame[ast.getSlot()];
+        }
         else //No receiver
         {
             Environment.Variable var = scope.lookupVariable(ast.getName()); //lookup name in global scope
@@ -491,20 +709,25 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Expr.Function ast) {
         List<Ast.Expr> args = ast.getArguments(); //Get the args
-        List<Environment.PlcObject> objectArgs = new ArrayList<Environment.PlcObject>();
+        boolean method = ast.getReceiver().isPresent();
+        List<Environment.PlcObject> objectArgs = new ArrayList<Environment.PlcObject>(args.size() + 1);
+        if(method)
+            objectArgs.add(null); //Replaced by the receiver, which is the first argument of a method
         for(Ast.Expr expr : args)
         {
             objectArgs.add(visit(expr));
         }
 
-        if(ast.getReceiver().isPresent())
+        if(method)
         {
             Environment.PlcObject receiverValue = visit(ast.getReceiver().get());
-            return receiverValue.callMethod(ast.getName(), objectArgs);
+            Environment.Function func = ast.getInlineCache().method(receiverValue, ast.getName(), args.size());
+            objectArgs.set(0, receiverValue);
+            return func.invoke(objectArgs);
         }
         else //No receiver
         {
-            Environment.Function func = scope.lookupFunction(ast.getName(), args.size());
+            Environment.Function func = ast.getCallSite().lookup(scope, ast.getName(), args.size());
             return func.invoke(objectArgs);
         }
 
@@ -521,17 +744,4 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         }
     }
 
-    /**
-     * Exception class for returning values.
-     */
-    private static class Return extends RuntimeException {
-
-        private final Environment.PlcObject value;
-
-        private Return(Environment.PlcObject value) {
-            this.value = value;
-        }
-
-    }
-
 }
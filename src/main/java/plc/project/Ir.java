@@ -0,0 +1,613 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * An intermediate representation of methods as control flow graphs of basic
+ * blocks in SSA form, which is built from the AST by the {@link IrBuilder},
+ * checked by the {@link IrVerifier}, and lowered back to the AST by the
+ * {@link IrLowerer}.
+ *
+ * Every {@link Value} is defined exactly once and has the type the
+ * {@link Analyzer} gave the expression it was built from. Locals become
+ * values (merged by {@link Phi}s where control flow joins), while fields of
+ * the source and objects, which may be changed by calls, are read and written
+ * through {@link Load} and {@link Store}. Short-circuiting {@code AND} and
+ * {@code OR} are lowered to branches, so a {@link Binary} always evaluates
+ * both of its operands.
+ */
+public final class Ir {
+
+    private Ir() {}
+
+    public static final class Method {
+
+        private final String name;
+        private final List<Parameter> parameters;
+        private final Environment.Function function;
+        private final List<Block> blocks = new ArrayList<>();
+
+        public Method(String name, List<Parameter> parameters, Environment.Function function) {
+            this.name = name;
+            this.parameters = parameters;
+            this.function = function;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Parameter> getParameters() {
+            return parameters;
+        }
+
+        public Environment.Function getFunction() {
+            return function;
+        }
+
+        /**
+         * Returns the blocks of the method, starting with the entry block.
+         */
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        public Block getEntry() {
+            return blocks.get(0);
+        }
+
+        public Block addBlock() {
+            Block block = new Block(blocks.size());
+            blocks.add(block);
+            return block;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("DEF ").append(name).append("(");
+            builder.append(parameters.stream().map(parameter -> parameter + " " + parameter.getName() + ": " + parameter.getType().getName()).collect(Collectors.joining(", ")));
+            builder.append("): ").append(function.getReturnType().getName()).append("\n");
+            for (Block block : blocks) {
+                builder.append(block.toString());
+            }
+            return builder.toString();
+        }
+
+    }
+
+    public static final class Block {
+
+        private final int id;
+        private final List<Block> predecessors = new ArrayList<>();
+        private final List<Phi> phis = new ArrayList<>();
+        private final List<Instruction> instructions = new ArrayList<>();
+        private Terminator terminator;
+
+        private Block(int id) {
+            this.id = id;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Returns the predecessors of the block, in the order of the operands
+         * of its phis.
+         */
+        public List<Block> getPredecessors() {
+            return predecessors;
+        }
+
+        public List<Block> getSuccessors() {
+            return terminator == null ? Collections.emptyList() : terminator.getSuccessors();
+        }
+
+        public List<Phi> getPhis() {
+            return phis;
+        }
+
+        public List<Instruction> getInstructions() {
+            return instructions;
+        }
+
+        public Terminator getTerminator() {
+            return terminator;
+        }
+
+        /**
+         * Ends the block with a terminator, adding the block to the
+         * predecessors of its successors.
+         */
+        public void setTerminator(Terminator terminator) {
+            if (this.terminator != null) {
+                throw new IllegalStateException("Block b" + id + " is already terminated.");
+            }
+            this.terminator = terminator;
+            for (Block successor : terminator.getSuccessors()) {
+                successor.predecessors.add(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("b").append(id).append(":");
+            if (!predecessors.isEmpty()) {
+                builder.append(" (").append(predecessors.stream().map(block -> "b" + block.id).collect(Collectors.joining(", "))).append(")");
+            }
+            builder.append("\n");
+            for (Phi phi : phis) {
+                builder.append("    ").append(phi.toDefinition()).append("\n");
+            }
+            for (Instruction instruction : instructions) {
+                builder.append("    ").append(instruction.toDefinition()).append("\n");
+            }
+            builder.append("    ").append(terminator).append("\n");
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * A value of a method, which is a constant, a parameter, or the result
+     * of a phi or instruction.
+     */
+    public abstract static class Value {
+
+        private final Environment.Type type;
+        private int id = -1;
+
+        private Value(Environment.Type type) {
+            this.type = type;
+        }
+
+        public Environment.Type getType() {
+            return type;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Sets the number naming the value, which the {@link IrBuilder}
+         * assigns in order of definition.
+         */
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return "%" + id;
+        }
+
+    }
+
+    public static final class Constant extends Value {
+
+        private final Object literal;
+
+        public Constant(Object literal, Environment.Type type) {
+            super(type);
+            this.literal = literal;
+        }
+
+        public Object getLiteral() {
+            return literal;
+        }
+
+        @Override
+        public String toString() {
+            if (literal == null) {
+                return "NIL";
+            } else if (literal instanceof Boolean) {
+                return ((Boolean) literal) ? "TRUE" : "FALSE";
+            } else if (literal instanceof String) {
+                return "\"" + literal + "\"";
+            } else if (literal instanceof Character) {
+                return "'" + literal + "'";
+            }
+            return literal.toString();
+        }
+
+    }
+
+    public static final class Parameter extends Value {
+
+        private final String name;
+
+        public Parameter(String name, Environment.Type type) {
+            super(type);
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+    }
+
+    /**
+     * Selects the operand for the predecessor control came from.
+     */
+    public static final class Phi extends Value {
+
+        private final Block block;
+        private final List<Value> operands = new ArrayList<>();
+
+        public Phi(Block block, Environment.Type type) {
+            super(type);
+            this.block = block;
+        }
+
+        public Block getBlock() {
+            return block;
+        }
+
+        /**
+         * Returns the operands, one for each predecessor of the block.
+         */
+        public List<Value> getOperands() {
+            return operands;
+        }
+
+        private String toDefinition() {
+            List<String> entries = new ArrayList<>();
+            for (int i = 0; i < operands.size(); i++) {
+                entries.add((i < block.predecessors.size() ? "b" + block.predecessors.get(i).id : "?") + ": " + operands.get(i));
+            }
+            return this + ": " + getType().getName() + " = phi [" + String.join(", ", entries) + "]";
+        }
+
+    }
+
+    public abstract static class Instruction extends Value {
+
+        private Instruction(Environment.Type type) {
+            super(type);
+        }
+
+        public abstract List<Value> getOperands();
+
+        /**
+         * Replaces each operand with the result of the function.
+         */
+        public abstract void replaceOperands(UnaryOperator<Value> replacement);
+
+        abstract String toExpression();
+
+        private String toDefinition() {
+            return this + ": " + getType().getName() + " = " + toExpression();
+        }
+
+    }
+
+    public static final class Binary extends Instruction {
+
+        private final String operator;
+        private final BinaryOperation operation;
+        private Value left;
+        private Value right;
+
+        public Binary(String operator, BinaryOperation operation, Value left, Value right, Environment.Type type) {
+            super(type);
+            this.operator = operator;
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        /**
+         * Returns the operation selected by the {@link Analyzer}, or null if
+         * it is chosen at runtime.
+         */
+        public BinaryOperation getOperation() {
+            return operation;
+        }
+
+        public Value getLeft() {
+            return left;
+        }
+
+        public Value getRight() {
+            return right;
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return List.of(left, right);
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            left = replacement.apply(left);
+            right = replacement.apply(right);
+        }
+
+        @Override
+        String toExpression() {
+            return left + " " + operator + " " + right;
+        }
+
+    }
+
+    public static final class Call extends Instruction {
+
+        private final Environment.Function function;
+        private final String name;
+        private Value receiver;
+        private final List<Value> arguments;
+
+        /**
+         * Creates a call, where receiver is null for calls without one.
+         */
+        public Call(Value receiver, String name, List<Value> arguments, Environment.Function function) {
+            super(function.getReturnType());
+            this.function = function;
+            this.name = name;
+            this.receiver = receiver;
+            this.arguments = new ArrayList<>(arguments);
+        }
+
+        public Environment.Function getFunction() {
+            return function;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Optional<Value> getReceiver() {
+            return Optional.ofNullable(receiver);
+        }
+
+        public List<Value> getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            List<Value> operands = new ArrayList<>();
+            getReceiver().ifPresent(operands::add);
+            operands.addAll(arguments);
+            return operands;
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            receiver = receiver == null ? null : replacement.apply(receiver);
+            arguments.replaceAll(replacement);
+        }
+
+        @Override
+        String toExpression() {
+            String arguments = this.arguments.stream().map(Value::toString).collect(Collectors.joining(", "));
+            return (receiver == null ? "" : receiver + ".") + name + "(" + arguments + ")";
+        }
+
+    }
+
+    /**
+     * Reads a field of the source, or of an object if there is a receiver.
+     */
+    public static final class Load extends Instruction {
+
+        private final Environment.Variable variable;
+        private Value receiver;
+
+        public Load(Value receiver, Environment.Variable variable) {
+            super(variable.getType());
+            this.receiver = receiver;
+            this.variable = variable;
+        }
+
+        public Optional<Value> getReceiver() {
+            return Optional.ofNullable(receiver);
+        }
+
+        public Environment.Variable getVariable() {
+            return variable;
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return receiver == null ? List.of() : List.of(receiver);
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            receiver = receiver == null ? null : replacement.apply(receiver);
+        }
+
+        @Override
+        String toExpression() {
+            return "load " + (receiver == null ? "" : receiver + ".") + variable.getName();
+        }
+
+    }
+
+    /**
+     * Writes a field of the source, or of an object if there is a receiver.
+     * The store itself is a value of type {@code Nil}, which is never used.
+     */
+    public static final class Store extends Instruction {
+
+        private final Environment.Variable variable;
+        private Value receiver;
+        private Value value;
+
+        public Store(Value receiver, Environment.Variable variable, Value value) {
+            super(Environment.Type.NIL);
+            this.receiver = receiver;
+            this.variable = variable;
+            this.value = value;
+        }
+
+        public Optional<Value> getReceiver() {
+            return Optional.ofNullable(receiver);
+        }
+
+        public Environment.Variable getVariable() {
+            return variable;
+        }
+
+        public Value getValue() {
+            return value;
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return receiver == null ? List.of(value) : List.of(receiver, value);
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            receiver = receiver == null ? null : replacement.apply(receiver);
+            value = replacement.apply(value);
+        }
+
+        @Override
+        String toExpression() {
+            return "store " + (receiver == null ? "" : receiver + ".") + variable.getName() + ", " + value;
+        }
+
+    }
+
+    /**
+     * Ends a block, transferring control to its successors (if any).
+     */
+    public abstract static class Terminator {
+
+        private Terminator() {}
+
+        public abstract List<Block> getSuccessors();
+
+        public abstract List<Value> getOperands();
+
+        public abstract void replaceOperands(UnaryOperator<Value> replacement);
+
+    }
+
+    public static final class Jump extends Terminator {
+
+        private final Block target;
+
+        public Jump(Block target) {
+            this.target = target;
+        }
+
+        public Block getTarget() {
+            return target;
+        }
+
+        @Override
+        public List<Block> getSuccessors() {
+            return List.of(target);
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return List.of();
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {}
+
+        @Override
+        public String toString() {
+            return "jump b" + target.id;
+        }
+
+    }
+
+    public static final class Branch extends Terminator {
+
+        private Value condition;
+        private final Block whenTrue;
+        private final Block whenFalse;
+
+        public Branch(Value condition, Block whenTrue, Block whenFalse) {
+            this.condition = condition;
+            this.whenTrue = whenTrue;
+            this.whenFalse = whenFalse;
+        }
+
+        public Value getCondition() {
+            return condition;
+        }
+
+        public Block getWhenTrue() {
+            return whenTrue;
+        }
+
+        public Block getWhenFalse() {
+            return whenFalse;
+        }
+
+        @Override
+        public List<Block> getSuccessors() {
+            return List.of(whenTrue, whenFalse);
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return List.of(condition);
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            condition = replacement.apply(condition);
+        }
+
+        @Override
+        public String toString() {
+            return "branch " + condition + ", b" + whenTrue.id + ", b" + whenFalse.id;
+        }
+
+    }
+
+    public static final class Return extends Terminator {
+
+        private Value value;
+
+        public Return(Value value) {
+            this.value = value;
+        }
+
+        public Value getValue() {
+            return value;
+        }
+
+        @Override
+        public List<Block> getSuccessors() {
+            return List.of();
+        }
+
+        @Override
+        public List<Value> getOperands() {
+            return List.of(value);
+        }
+
+        @Override
+        public void replaceOperands(UnaryOperator<Value> replacement) {
+            value = replacement.apply(value);
+        }
+
+        @Override
+        public String toString() {
+            return "return " + value;
+        }
+
+    }
+
+}
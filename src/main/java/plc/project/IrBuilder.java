@@ -0,0 +1,379 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lowers the body of an analyzed method to the {@link Ir}, constructing SSA
+ * form directly while the blocks are built (following Braun et al., "Simple
+ * and Efficient Construction of Static Single Assignment Form"). Each block
+ * records the current value of each local; reading a local from a block that
+ * doesn't define it reads it from the predecessors, placing a phi if there
+ * are several. A loop header is <em>sealed</em> once its body is built, as
+ * until then not all of its predecessors are known. Phis that turn out to
+ * merge a single value are removed at the end.
+ *
+ * Statements following a {@code RETURN} are unreachable and are not lowered.
+ * {@code FOR} loops iterate a host object, which has no representation in
+ * the IR, so methods containing them can't be lowered.
+ */
+public final class IrBuilder implements Ast.Visitor<Ir.Value> {
+
+    private final List<Map<String, Local>> scopes = new ArrayList<>();
+    private final Map<Ir.Block, Map<Local, Ir.Value>> definitions = new IdentityHashMap<>();
+    private final Map<Ir.Block, Map<Local, Ir.Phi>> incomplete = new IdentityHashMap<>();
+    private final Set<Ir.Block> sealed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Ir.Method method;
+    private Ir.Block block; //null after a return
+
+    /**
+     * A local variable or parameter, which is identified by its declaration.
+     */
+    private static final class Local {
+
+        private final Environment.Type type;
+
+        private Local(Environment.Type type) {
+            this.type = type;
+        }
+
+    }
+
+    public Ir.Method build(Ast.Method ast) {
+        visit(ast);
+        return method;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Source ast) {
+        throw new RuntimeException("Only methods can be lowered to the IR.");
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Field ast) {
+        throw new RuntimeException("Only methods can be lowered to the IR.");
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Method ast) {
+        scopes.clear();
+        definitions.clear();
+        incomplete.clear();
+        sealed.clear();
+        List<Ir.Parameter> parameters = new ArrayList<>();
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            parameters.add(new Ir.Parameter(ast.getParameters().get(i), ast.getFunction().getParameterTypes().get(i)));
+        }
+        method = new Ir.Method(ast.getName(), parameters, ast.getFunction());
+        block = method.addBlock();
+        seal(block);
+        scopes.add(new HashMap<>());
+        for (Ir.Parameter parameter : parameters) {
+            Local local = new Local(parameter.getType());
+            scopes.get(0).put(parameter.getName(), local);
+            write(local, block, parameter);
+        }
+        visitBlock(ast.getStatements());
+        if (block != null) {
+            block.setTerminator(new Ir.Return(new Ir.Constant(null, Environment.Type.NIL)));
+        }
+        removeTrivialPhis();
+        number();
+        return null;
+    }
+
+    private void visitBlock(List<Ast.Stmt> statements) {
+        scopes.add(new HashMap<>());
+        for (Ast.Stmt statement : statements) {
+            if (block == null) {
+                break;
+            }
+            visit(statement);
+        }
+        scopes.remove(scopes.size() - 1);
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.Declaration ast) {
+        Ir.Value value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : new Ir.Constant(null, Environment.Type.NIL);
+        Local local = new Local(ast.getVariable().getType());
+        scopes.get(scopes.size() - 1).put(ast.getName(), local);
+        write(local, block, value);
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+        Ir.Value object = receiver.getReceiver().isPresent() ? visit(receiver.getReceiver().get()) : null;
+        Ir.Value value = visit(ast.getValue());
+        Local local = object == null ? lookup(receiver.getName()) : null;
+        if (local != null) {
+            write(local, block, value);
+        } else {
+            add(new Ir.Store(object, receiver.getVariable(), value));
+        }
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.If ast) {
+        Ir.Value condition = visit(ast.getCondition());
+        Ir.Block thenBlock = method.addBlock();
+        Ir.Block elseBlock = method.addBlock();
+        block.setTerminator(new Ir.Branch(condition, thenBlock, elseBlock));
+        seal(thenBlock);
+        seal(elseBlock);
+        List<Ir.Block> ends = new ArrayList<>();
+        for (Ir.Block branch : List.of(thenBlock, elseBlock)) {
+            block = branch;
+            visitBlock(branch == thenBlock ? ast.getThenStatements() : ast.getElseStatements());
+            if (block != null) {
+                ends.add(block);
+            }
+        }
+        if (ends.isEmpty()) {
+            block = null;
+            return null;
+        }
+        block = method.addBlock();
+        for (Ir.Block end : ends) {
+            end.setTerminator(new Ir.Jump(block));
+        }
+        seal(block);
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.For ast) {
+        throw new RuntimeException("FOR loops can't be lowered to the IR.");
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.While ast) {
+        Ir.Block header = method.addBlock();
+        block.setTerminator(new Ir.Jump(header));
+        block = header;
+        Ir.Value condition = visit(ast.getCondition());
+        Ir.Block body = method.addBlock();
+        Ir.Block exit = method.addBlock();
+        block.setTerminator(new Ir.Branch(condition, body, exit));
+        seal(body);
+        seal(exit);
+        block = body;
+        visitBlock(ast.getStatements());
+        if (block != null) {
+            block.setTerminator(new Ir.Jump(header));
+        }
+        seal(header);
+        block = exit;
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Stmt.Return ast) {
+        Ir.Value value = visit(ast.getValue()); //may end the current block
+        block.setTerminator(new Ir.Return(value));
+        block = null;
+        return null;
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Expr.Literal ast) {
+        return new Ir.Constant(ast.getLiteral(), ast.getType());
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Expr.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Expr.Binary ast) {
+        Ir.Value left = visit(ast.getLeft());
+        if (ast.getOperator().equals("AND") || ast.getOperator().equals("OR")) {
+            //The right operand is only evaluated if it decides the result,
+            //which is otherwise the left operand
+            Ir.Block leftEnd = block;
+            Ir.Block rightBlock = method.addBlock();
+            Ir.Block join = method.addBlock();
+            boolean and = ast.getOperator().equals("AND");
+            leftEnd.setTerminator(new Ir.Branch(left, and ? rightBlock : join, and ? join : rightBlock));
+            seal(rightBlock);
+            block = rightBlock;
+            Ir.Value right = visit(ast.getRight());
+            block.setTerminator(new Ir.Jump(join));
+            seal(join);
+            Ir.Phi phi = new Ir.Phi(join, ast.getType());
+            join.getPhis().add(phi);
+            for (Ir.Block predecessor : join.getPredecessors()) {
+                phi.getOperands().add(predecessor == leftEnd ? left : right);
+            }
+            block = join;
+            return phi;
+        }
+        Ir.Value right = visit(ast.getRight());
+        return add(new Ir.Binary(ast.getOperator(), ast.getOperation(), left, right, ast.getType()));
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            return add(new Ir.Load(visit(ast.getReceiver().get()), ast.getVariable()));
+        }
+        Local local = lookup(ast.getName());
+        return local != null ? read(local, block) : add(new Ir.Load(null, ast.getVariable()));
+    }
+
+    @Override
+    public Ir.Value visit(Ast.Expr.Function ast) {
+        Ir.Value receiver = ast.getReceiver().isPresent() ? visit(ast.getReceiver().get()) : null;
+        List<Ir.Value> arguments = new ArrayList<>();
+        for (Ast.Expr argument : ast.getArguments()) {
+            arguments.add(visit(argument));
+        }
+        return add(new Ir.Call(receiver, ast.getName(), arguments, ast.getFunction()));
+    }
+
+    private Ir.Instruction add(Ir.Instruction instruction) {
+        block.getInstructions().add(instruction);
+        return instruction;
+    }
+
+    /**
+     * Returns the local with the given name, or null if it is a field.
+     */
+    private Local lookup(String name) {
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            Local local = scopes.get(i).get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    private void write(Local local, Ir.Block block, Ir.Value value) {
+        definitions.computeIfAbsent(block, b -> new IdentityHashMap<>()).put(local, value);
+    }
+
+    private Ir.Value read(Local local, Ir.Block block) {
+        Ir.Value value = definitions.getOrDefault(block, Collections.emptyMap()).get(local);
+        if (value != null) {
+            return value;
+        }
+        if (!sealed.contains(block)) {
+            Ir.Phi phi = new Ir.Phi(block, local.type);
+            block.getPhis().add(phi);
+            incomplete.computeIfAbsent(block, b -> new IdentityHashMap<>()).put(local, phi);
+            value = phi;
+        } else if (block.getPredecessors().size() == 1) {
+            value = read(local, block.getPredecessors().get(0));
+        } else {
+            Ir.Phi phi = new Ir.Phi(block, local.type);
+            block.getPhis().add(phi);
+            write(local, block, phi); //breaks cycles through loops
+            addOperands(local, phi);
+            value = phi;
+        }
+        write(local, block, value);
+        return value;
+    }
+
+    private void addOperands(Local local, Ir.Phi phi) {
+        for (Ir.Block predecessor : phi.getBlock().getPredecessors()) {
+            phi.getOperands().add(read(local, predecessor));
+        }
+    }
+
+    /**
+     * Marks a block as having all of its predecessors, completing the phis
+     * placed while they weren't known.
+     */
+    private void seal(Ir.Block block) {
+        Map<Local, Ir.Phi> phis = incomplete.remove(block);
+        if (phis != null) {
+            phis.forEach(this::addOperands);
+        }
+        sealed.add(block);
+    }
+
+    /**
+     * Replaces phis whose operands are all the same value (or the phi
+     * itself) with that value, until no more are found.
+     */
+    private void removeTrivialPhis() {
+        Map<Ir.Value, Ir.Value> replacements = new IdentityHashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ir.Block block : method.getBlocks()) {
+                for (Ir.Phi phi : new ArrayList<>(block.getPhis())) {
+                    Ir.Value same = null;
+                    boolean trivial = true;
+                    for (Ir.Value operand : phi.getOperands()) {
+                        operand = resolve(replacements, operand);
+                        if (operand != phi && operand != same) {
+                            trivial = same == null;
+                            same = operand;
+                            if (!trivial) {
+                                break;
+                            }
+                        }
+                    }
+                    if (trivial) {
+                        replacements.put(phi, same != null ? same : new Ir.Constant(null, Environment.Type.NIL));
+                        block.getPhis().remove(phi);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        for (Ir.Block block : method.getBlocks()) {
+            for (Ir.Phi phi : block.getPhis()) {
+                phi.getOperands().replaceAll(operand -> resolve(replacements, operand));
+            }
+            for (Ir.Instruction instruction : block.getInstructions()) {
+                instruction.replaceOperands(operand -> resolve(replacements, operand));
+            }
+            block.getTerminator().replaceOperands(operand -> resolve(replacements, operand));
+        }
+    }
+
+    private static Ir.Value resolve(Map<Ir.Value, Ir.Value> replacements, Ir.Value value) {
+        while (replacements.containsKey(value)) {
+            value = replacements.get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Numbers the values in order of definition.
+     */
+    private void number() {
+        int id = 0;
+        for (Ir.Parameter parameter : method.getParameters()) {
+            parameter.setId(id++);
+        }
+        for (Ir.Block block : method.getBlocks()) {
+            for (Ir.Phi phi : block.getPhis()) {
+                phi.setId(id++);
+            }
+            for (Ir.Instruction instruction : block.getInstructions()) {
+                instruction.setId(id++);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lowers an {@link Ir.Method} back to an analyzed {@link Ast.Method}, which
+ * the {@link Interpreter} and {@link Generator} can run. Every value is
+ * stored in a variable {@code v$n} declared at the start of the method, and
+ * each phi also has a variable {@code p$n} that its predecessors write its
+ * operand to, which is copied into {@code v$n} on entry to its block (so
+ * that phis reading each other all read their values from before the jump).
+ *
+ * A method with a single block is lowered to straight-line code. Otherwise,
+ * as the control flow graph may have any shape, the blocks are lowered to a
+ * dispatch loop on the number of the current block {@code b$}:
+ *
+ * <pre>
+ * WHILE TRUE DO
+ *     IF b$ == 0 DO ... b$ = 1; END
+ *     IF b$ == 1 DO ... RETURN v$2; END
+ * END
+ * </pre>
+ */
+public final class IrLowerer {
+
+    private final Ir.Method method;
+    private final Map<Ir.Value, Environment.Variable> variables = new IdentityHashMap<>();
+    private final Map<Ir.Phi, Environment.Variable> incoming = new IdentityHashMap<>();
+    private Environment.Variable current;
+
+    private IrLowerer(Ir.Method method) {
+        this.method = method;
+    }
+
+    public static Ast.Method lower(Ir.Method method) {
+        return new IrLowerer(method).lower();
+    }
+
+    private Ast.Method lower() {
+        List<Ast.Stmt> statements = new ArrayList<>();
+        for (Ir.Parameter parameter : method.getParameters()) {
+            variables.put(parameter, new Environment.Variable(parameter.getName(), parameter.getName(), parameter.getType(), Environment.NIL));
+        }
+        for (Ir.Block block : method.getBlocks()) {
+            for (Ir.Phi phi : block.getPhis()) {
+                statements.add(declare(phi, "v$"));
+                Ast.Stmt.Declaration declaration = declare(phi, "p$");
+                incoming.put(phi, declaration.getVariable());
+                statements.add(declaration);
+            }
+            for (Ir.Instruction instruction : block.getInstructions()) {
+                if (!instruction.getType().equals(Environment.Type.NIL)) {
+                    statements.add(declare(instruction, "v$"));
+                }
+            }
+        }
+        if (method.getBlocks().size() == 1) {
+            statements.addAll(lower(method.getEntry()));
+        } else {
+            current = new Environment.Variable("b$", "b$", Environment.Type.INTEGER, Environment.NIL);
+            statements.add(declaration(current, literal(BigInteger.ZERO, Environment.Type.INTEGER)));
+            List<Ast.Stmt> dispatch = new ArrayList<>();
+            for (Ir.Block block : method.getBlocks()) {
+                Ast.Expr.Binary condition = new Ast.Expr.Binary("==", access(current), literal(BigInteger.valueOf(block.getId()), Environment.Type.INTEGER));
+                condition.setType(Environment.Type.BOOLEAN);
+                condition.setOperation(BinaryOperation.of("==", Environment.Type.INTEGER, Environment.Type.INTEGER));
+                dispatch.add(new Ast.Stmt.If(condition, lower(block), List.of()));
+            }
+            statements.add(new Ast.Stmt.While(literal(Boolean.TRUE, Environment.Type.BOOLEAN), dispatch));
+        }
+        List<String> names = new ArrayList<>();
+        List<String> typeNames = new ArrayList<>();
+        for (Ir.Parameter parameter : method.getParameters()) {
+            names.add(parameter.getName());
+            typeNames.add(parameter.getType().getName());
+        }
+        Ast.Method lowered = new Ast.Method(method.getName(), names, typeNames, Optional.of(method.getFunction().getReturnType().getName()), statements);
+        lowered.setFunction(method.getFunction());
+        return lowered;
+    }
+
+    private List<Ast.Stmt> lower(Ir.Block block) {
+        List<Ast.Stmt> statements = new ArrayList<>();
+        for (Ir.Phi phi : block.getPhis()) {
+            statements.add(new Ast.Stmt.Assignment(access(variables.get(phi)), access(incoming.get(phi))));
+        }
+        for (Ir.Instruction instruction : block.getInstructions()) {
+            statements.add(lower(instruction));
+        }
+        Ir.Terminator terminator = block.getTerminator();
+        if (terminator instanceof Ir.Jump) {
+            statements.addAll(jump(block, ((Ir.Jump) terminator).getTarget()));
+        } else if (terminator instanceof Ir.Branch) {
+            Ir.Branch branch = (Ir.Branch) terminator;
+            statements.add(new Ast.Stmt.If(expression(branch.getCondition()), jump(block, branch.getWhenTrue()), jump(block, branch.getWhenFalse())));
+        } else {
+            statements.add(new Ast.Stmt.Return(expression(((Ir.Return) terminator).getValue())));
+        }
+        return statements;
+    }
+
+    private Ast.Stmt lower(Ir.Instruction instruction) {
+        Ast.Expr value;
+        if (instruction instanceof Ir.Binary) {
+            Ir.Binary binary = (Ir.Binary) instruction;
+            Ast.Expr.Binary expression = new Ast.Expr.Binary(binary.getOperator(), expression(binary.getLeft()), expression(binary.getRight()));
+            expression.setType(binary.getType());
+            expression.setOperation(binary.getOperation());
+            value = expression;
+        } else if (instruction instanceof Ir.Call) {
+            Ir.Call call = (Ir.Call) instruction;
+            List<Ast.Expr> arguments = new ArrayList<>();
+            for (Ir.Value argument : call.getArguments()) {
+                arguments.add(expression(argument));
+            }
+            Ast.Expr.Function function = new Ast.Expr.Function(call.getReceiver().map(this::expression), call.getName(), arguments);
+            function.setFunction(call.getFunction());
+            if (call.getType().equals(Environment.Type.NIL)) {
+                return new Ast.Stmt.Expression(function);
+            }
+            value = function;
+        } else if (instruction instanceof Ir.Load) {
+            Ir.Load load = (Ir.Load) instruction;
+            Ast.Expr.Access access = new Ast.Expr.Access(load.getReceiver().map(this::expression), load.getVariable().getName());
+            access.setVariable(load.getVariable());
+            value = access;
+        } else {
+            Ir.Store store = (Ir.Store) instruction;
+            Ast.Expr.Access access = new Ast.Expr.Access(store.getReceiver().map(this::expression), store.getVariable().getName());
+            access.setVariable(store.getVariable());
+            return new Ast.Stmt.Assignment(access, expression(store.getValue()));
+        }
+        return new Ast.Stmt.Assignment(access(variables.get(instruction)), value);
+    }
+
+    /**
+     * Returns the statements transferring control from a block to a
+     * successor, writing the operands of the successor's phis.
+     */
+    private List<Ast.Stmt> jump(Ir.Block block, Ir.Block target) {
+        List<Ast.Stmt> statements = new ArrayList<>();
+        int index = target.getPredecessors().indexOf(block);
+        for (Ir.Phi phi : target.getPhis()) {
+            statements.add(new Ast.Stmt.Assignment(access(incoming.get(phi)), expression(phi.getOperands().get(index))));
+        }
+        statements.add(new Ast.Stmt.Assignment(access(current), literal(BigInteger.valueOf(target.getId()), Environment.Type.INTEGER)));
+        return statements;
+    }
+
+    private Ast.Expr expression(Ir.Value value) {
+        if (value instanceof Ir.Constant) {
+            return literal(((Ir.Constant) value).getLiteral(), value.getType());
+        } else if (!variables.containsKey(value)) {
+            return literal(null, Environment.Type.NIL); //the result of a call returning Nil
+        }
+        return access(variables.get(value));
+    }
+
+    private Ast.Stmt.Declaration declare(Ir.Value value, String prefix) {
+        Environment.Variable variable = new Environment.Variable(prefix + value.getId(), prefix + value.getId(), value.getType(), Environment.NIL);
+        if (prefix.equals("v$")) {
+            variables.put(value, variable);
+        }
+        return declaration(variable, defaultValue(value.getType()));
+    }
+
+    private static Ast.Stmt.Declaration declaration(Environment.Variable variable, Ast.Expr value) {
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(variable.getName(), Optional.of(variable.getType().getName()), Optional.of(value));
+        declaration.setVariable(variable);
+        return declaration;
+    }
+
+    /**
+     * Returns a value to initialize a variable of the given type with, as the
+     * generated Java requires variables to be definitely assigned.
+     */
+    private static Ast.Expr defaultValue(Environment.Type type) {
+        if (type.equals(Environment.Type.INTEGER)) {
+            return literal(BigInteger.ZERO, type);
+        } else if (type.equals(Environment.Type.DECIMAL)) {
+            return literal(BigDecimal.ZERO, type);
+        } else if (type.equals(Environment.Type.BOOLEAN)) {
+            return literal(Boolean.FALSE, type);
+        } else if (type.equals(Environment.Type.STRING)) {
+            return literal("", type);
+        } else if (type.equals(Environment.Type.CHARACTER)) {
+            return literal(' ', type);
+        }
+        return literal(null, Environment.Type.NIL);
+    }
+
+    private static Ast.Expr.Literal literal(Object value, Environment.Type type) {
+        Ast.Expr.Literal literal = new Ast.Expr.Literal(value);
+        literal.setType(type);
+        return literal;
+    }
+
+    private static Ast.Expr.Access access(Environment.Variable variable) {
+        Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), variable.getName());
+        access.setVariable(variable);
+        return access;
+    }
+
+}
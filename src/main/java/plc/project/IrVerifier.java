@@ -0,0 +1,174 @@
+package plc.project;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks that an {@link Ir.Method} is well formed, throwing a
+ * {@link RuntimeException} describing the first problem found:
+ *
+ *  - Every block ends with a terminator, the entry block has no
+ *    predecessors, and the predecessors of each block are exactly the
+ *    blocks branching to it.
+ *  - Every phi has one operand per predecessor of its block.
+ *  - Every value has a type and is defined once, and each use of a value is
+ *    dominated by its definition. For a phi operand, that is the end of the
+ *    corresponding predecessor.
+ *  - Conditions of branches are {@code Boolean}.
+ */
+public final class IrVerifier {
+
+    private final Ir.Method method;
+    private final Map<Ir.Value, Ir.Block> definitions = new IdentityHashMap<>();
+    private final Map<Ir.Value, Integer> positions = new IdentityHashMap<>();
+    private final Map<Ir.Block, Set<Ir.Block>> dominators = new IdentityHashMap<>();
+
+    private IrVerifier(Ir.Method method) {
+        this.method = method;
+    }
+
+    public static void verify(Ir.Method method) {
+        new IrVerifier(method).verify();
+    }
+
+    private void verify() {
+        List<Ir.Block> blocks = method.getBlocks();
+        if (blocks.isEmpty()) {
+            throw error("Method " + method.getName() + " has no blocks.");
+        } else if (!method.getEntry().getPredecessors().isEmpty()) {
+            throw error("The entry block has predecessors.");
+        }
+        for (Ir.Block block : blocks) {
+            if (block.getTerminator() == null) {
+                throw error("Block b" + block.getId() + " has no terminator.");
+            }
+            for (Ir.Block successor : block.getSuccessors()) {
+                if (!blocks.contains(successor)) {
+                    throw error("Block b" + block.getId() + " branches to a block outside the method.");
+                } else if (!successor.getPredecessors().contains(block)) {
+                    throw error("Block b" + block.getId() + " is not a predecessor of its successor b" + successor.getId() + ".");
+                }
+            }
+            for (Ir.Block predecessor : block.getPredecessors()) {
+                if (!predecessor.getSuccessors().contains(block)) {
+                    throw error("Block b" + predecessor.getId() + " is a predecessor of b" + block.getId() + " but does not branch to it.");
+                }
+            }
+        }
+        for (Ir.Parameter parameter : method.getParameters()) {
+            define(parameter, method.getEntry(), -1);
+        }
+        for (Ir.Block block : blocks) {
+            int position = 0;
+            for (Ir.Phi phi : block.getPhis()) {
+                if (phi.getBlock() != block) {
+                    throw error("Phi " + phi + " is in block b" + block.getId() + " but belongs to b" + phi.getBlock().getId() + ".");
+                } else if (phi.getOperands().size() != block.getPredecessors().size()) {
+                    throw error("Phi " + phi + " has " + phi.getOperands().size() + " operands but its block has " + block.getPredecessors().size() + " predecessors.");
+                }
+                define(phi, block, position++);
+            }
+            for (Ir.Instruction instruction : block.getInstructions()) {
+                define(instruction, block, position++);
+            }
+            if (block.getTerminator() instanceof Ir.Branch && !((Ir.Branch) block.getTerminator()).getCondition().getType().equals(Environment.Type.BOOLEAN)) {
+                throw error("The branch ending block b" + block.getId() + " has a condition that is not Boolean.");
+            }
+        }
+        computeDominators();
+        for (Ir.Block block : blocks) {
+            int position = block.getPhis().size();
+            for (Ir.Phi phi : block.getPhis()) {
+                for (int i = 0; i < phi.getOperands().size(); i++) {
+                    Ir.Block predecessor = block.getPredecessors().get(i);
+                    checkUse(phi.getOperands().get(i), predecessor, Integer.MAX_VALUE, "phi " + phi);
+                }
+            }
+            for (Ir.Instruction instruction : block.getInstructions()) {
+                for (Ir.Value operand : instruction.getOperands()) {
+                    checkUse(operand, block, position, "instruction " + instruction);
+                }
+                position++;
+            }
+            for (Ir.Value operand : block.getTerminator().getOperands()) {
+                checkUse(operand, block, Integer.MAX_VALUE, "the terminator of b" + block.getId());
+            }
+        }
+    }
+
+    private void define(Ir.Value value, Ir.Block block, int position) {
+        if (value.getType() == null) {
+            throw error("Value " + value + " has no type.");
+        } else if (definitions.containsKey(value)) {
+            throw error("Value " + value + " is defined more than once.");
+        }
+        definitions.put(value, block);
+        positions.put(value, position);
+    }
+
+    /**
+     * Checks that a value used at a position of a block (before the
+     * instruction at that position) is defined there.
+     */
+    private void checkUse(Ir.Value value, Ir.Block block, int position, String user) {
+        if (value == null) {
+            throw error("The operand of " + user + " is missing.");
+        } else if (value instanceof Ir.Constant) {
+            return;
+        }
+        Ir.Block definition = definitions.get(value);
+        if (definition == null) {
+            throw error("Value " + value + " used by " + user + " is not defined in the method.");
+        } else if (definition == block ? positions.get(value) >= position : !dominators.get(block).contains(definition)) {
+            throw error("Value " + value + " used by " + user + " is not defined before it is used.");
+        }
+    }
+
+    /**
+     * Computes the dominators of each block with the iterative data flow
+     * algorithm. Blocks unreachable from the entry are dominated by every
+     * block, so they never report errors on their own.
+     */
+    private void computeDominators() {
+        List<Ir.Block> blocks = method.getBlocks();
+        for (Ir.Block block : blocks) {
+            Set<Ir.Block> all = Collections.newSetFromMap(new IdentityHashMap<>());
+            all.addAll(blocks);
+            dominators.put(block, all);
+        }
+        Set<Ir.Block> entry = Collections.newSetFromMap(new IdentityHashMap<>());
+        entry.add(method.getEntry());
+        dominators.put(method.getEntry(), entry);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ir.Block block : blocks.subList(1, blocks.size())) {
+                Set<Ir.Block> dominated = null;
+                for (Ir.Block predecessor : block.getPredecessors()) {
+                    if (dominated == null) {
+                        dominated = Collections.newSetFromMap(new IdentityHashMap<>());
+                        dominated.addAll(dominators.get(predecessor));
+                    } else {
+                        dominated.retainAll(dominators.get(predecessor));
+                    }
+                }
+                if (dominated == null) {
+                    continue;
+                }
+                dominated.add(block);
+                if (!dominated.equals(dominators.get(block))) {
+                    dominators.put(block, dominated);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException("Invalid IR for " + method.getName() + ": " + message);
+    }
+
+}
@@ -0,0 +1,165 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs programs as the Java produced by the {@link Generator}, compiled in
+ * this process with {@link JavaCompiler} instead of by {@code javac} writing
+ * class files to disk. Each program's classes are loaded by a class loader of
+ * their own, which sees only the platform classes.
+ *
+ * Compiled classes are cached by the SHA-256 hash of the program's source,
+ * so running the same source again skips lexing, parsing, analysis,
+ * generation and compilation, and reuses code the JIT has already compiled.
+ */
+public final class JavaCompilation {
+
+    private final Map<String, Class<?>> classes = new HashMap<>();
+    private int compiled = 0;
+
+    /**
+     * Returns the number of programs compiled, the others having been found
+     * in the cache.
+     */
+    public int getCompiled() {
+        return compiled;
+    }
+
+    /**
+     * Runs a program, returning the value returned by its main method. The
+     * fields of the program are initialized again for each run.
+     */
+    public Object run(String input) {
+        Class<?> main = compile(input);
+        try {
+            Object instance = main.getDeclaredConstructor().newInstance();
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(instance);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Unable to run the compiled program: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the compiled {@code Main} class of a program, compiling it if
+     * it is not cached.
+     */
+    public Class<?> compile(String input) {
+        String hash = hash(input);
+        Class<?> main = classes.get(hash);
+        if (main == null) {
+            Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+            new Analyzer(new Scope(null)).visit(source);
+            StringWriter writer = new StringWriter();
+            new Generator(new PrintWriter(writer)).visit(source);
+            main = load(compileJava(writer.toString()));
+            classes.put(hash, main);
+            compiled++;
+        }
+        return main;
+    }
+
+    /**
+     * Compiles the source of the class {@code Main}, returning the bytecode
+     * of each class by name.
+     */
+    private static Map<String, byte[]> compileJava(String code) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new RuntimeException("No Java compiler is available in this runtime.");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> outputs = new HashMap<>();
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///Main.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+        StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8);
+        JavaFileManager manager = new ForwardingJavaFileManager<>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream output = new ByteArrayOutputStream();
+                        outputs.put(className, output);
+                        return output;
+                    }
+                };
+            }
+        };
+        boolean success = compiler.getTask(null, manager, diagnostics, List.of("-proc:none"), null, List.of(source)).call();
+        if (!success) {
+            StringBuilder message = new StringBuilder("Unable to compile the generated Java:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                message.append("\n").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+            }
+            throw new RuntimeException(message.toString());
+        }
+        Map<String, byte[]> bytecode = new HashMap<>();
+        outputs.forEach((name, output) -> bytecode.put(name, output.toByteArray()));
+        return bytecode;
+    }
+
+    private static Class<?> load(Map<String, byte[]> bytecode) {
+        ClassLoader loader = new ClassLoader(ClassLoader.getPlatformClassLoader()) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = bytecode.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        try {
+            return loader.loadClass("Main");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated Java did not define Main.", e);
+        }
+    }
+
+    private static String hash(String input) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
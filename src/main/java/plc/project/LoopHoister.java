@@ -0,0 +1,169 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Moves loop-invariant expressions of an analyzed AST out of {@code WHILE}
+ * and {@code FOR} loops. Each invariant binary expression in a loop (the
+ * condition of a {@code WHILE}, or its body) is evaluated once into a new
+ * variable {@code t$n} declared before the loop, which replaces it in the
+ * loop. A variable declared in a loop is scoped to it, so the name can't
+ * clash with names in the source since {@code $} is not allowed in
+ * identifiers.
+ *
+ * An expression is invariant if it is pure, cannot fail (as it is now
+ * evaluated even if the loop never runs; this excludes division and
+ * arithmetic on a variable that may still be NIL), and only reads variables
+ * that are declared outside the loop and never assigned in it. Fields may also be
+ * assigned by the methods of the source, so they are only invariant in loops
+ * that do not call any. Inner loops are hoisted first, and their variables
+ * are moved out of outer loops as well when their values are invariant there.
+ */
+public final class LoopHoister extends Rewriter {
+
+    private final Set<Environment.Variable> fields = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Function> methods = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Effects effects;
+    private Loop loop = null;
+    private int hoisted = 0;
+
+    /**
+     * Returns the number of expressions hoisted by the last call to hoist.
+     */
+    public int getHoisted() {
+        return hoisted;
+    }
+
+    public Ast.Source hoist(Ast.Source source) {
+        fields.clear();
+        methods.clear();
+        hoisted = 0;
+        effects = Effects.of(source);
+        for (Ast.Field field : source.getFields()) {
+            fields.add(field.getVariable());
+        }
+        for (Ast.Method method : source.getMethods()) {
+            methods.add(method.getFunction());
+        }
+        return (Ast.Source) visit(source);
+    }
+
+    @Override
+    protected void rewrite(Ast.Stmt statement, List<Ast.Stmt> statements) {
+        if (!(statement instanceof Ast.Stmt.While || statement instanceof Ast.Stmt.For)) {
+            super.rewrite(statement, statements);
+            return;
+        }
+        Loop outer = loop;
+        Ast.Stmt rewritten;
+        if (statement instanceof Ast.Stmt.For) {
+            Ast.Stmt.For ast = (Ast.Stmt.For) statement;
+            Ast.Expr value = rewrite(ast.getValue()); //evaluated once
+            loop = new Loop(ast.getStatements(), ast.getName());
+            List<Ast.Stmt> body = rewrite(ast.getStatements());
+            rewritten = value == ast.getValue() && body == ast.getStatements() ? ast : new Ast.Stmt.For(ast.getName(), value, body);
+        } else {
+            loop = new Loop(List.of(statement), null);
+            rewritten = (Ast.Stmt) visit(statement);
+        }
+        List<Ast.Stmt.Declaration> declarations = loop.declarations;
+        loop = outer;
+        for (Ast.Stmt.Declaration declaration : declarations) {
+            if (outer != null && outer.isInvariant(declaration.getValue().get())) {
+                outer.declarations.add(declaration);
+            } else {
+                statements.add(declaration);
+            }
+        }
+        statements.add(rewritten);
+    }
+
+    @Override
+    protected Ast.Expr rewrite(Ast.Expr expression) {
+        Ast.Expr value = expression instanceof Ast.Expr.Group ? ((Ast.Expr.Group) expression).getExpression() : expression;
+        if (loop == null || !(value instanceof Ast.Expr.Binary) || !loop.isInvariant(value)) {
+            return super.rewrite(expression);
+        }
+        hoisted++;
+        String name = "t$" + hoisted;
+        Environment.Variable variable = new Environment.Variable(name, name, value.getType(), Environment.NIL);
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(name, Optional.of(value.getType().getName()), Optional.of(value));
+        declaration.setVariable(variable);
+        loop.declarations.add(declaration);
+        Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), name);
+        access.setVariable(variable);
+        return access;
+    }
+
+    /**
+     * The variables declared and assigned in a loop, and the declarations
+     * hoisted out of it.
+     */
+    private final class Loop extends Rewriter {
+
+        private final Set<Environment.Variable> declared = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<Environment.Variable> assigned = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Set<String> variables = new HashSet<>(); //of FOR loops
+        private final List<Ast.Stmt.Declaration> declarations = new ArrayList<>();
+        private boolean calls = false;
+
+        private Loop(List<Ast.Stmt> statements, String variable) {
+            if (variable != null) {
+                variables.add(variable);
+            }
+            rewrite(statements);
+        }
+
+        private boolean isInvariant(Ast.Expr expression) {
+            if (!Effects.isPure(expression) || !effects.cannotFail(expression)) {
+                return false;
+            } else if (expression instanceof Ast.Expr.Group) {
+                return isInvariant(((Ast.Expr.Group) expression).getExpression());
+            } else if (expression instanceof Ast.Expr.Binary) {
+                return isInvariant(((Ast.Expr.Binary) expression).getLeft()) && isInvariant(((Ast.Expr.Binary) expression).getRight());
+            } else if (expression instanceof Ast.Expr.Access) {
+                Environment.Variable variable = ((Ast.Expr.Access) expression).getVariable();
+                return !declared.contains(variable) && !assigned.contains(variable)
+                        && !variables.contains(variable.getName()) && !(calls && fields.contains(variable));
+            }
+            return true;
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Declaration ast) {
+            declared.add(ast.getVariable());
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (!receiver.getReceiver().isPresent()) {
+                assigned.add(receiver.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.For ast) {
+            variables.add(ast.getName());
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Function ast) {
+            if (!ast.getReceiver().isPresent() && methods.contains(ast.getFunction())) {
+                calls = true;
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
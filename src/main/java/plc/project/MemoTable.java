@@ -0,0 +1,148 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded table of the results of calls to pure methods, keyed by the
+ * method and the values of its arguments. When full, a result is evicted
+ * with the CLOCK approximation of least recently used: the keys are kept in
+ * a ring, and a hand passing over it evicts the first result that has not
+ * been used since the hand last passed it.
+ *
+ * Only calls whose arguments and result are immutable values (integers,
+ * decimals, strings, characters, booleans, and nil) are memoized, since an
+ * object argument may be changed between calls and an object result may be
+ * changed by the caller.
+ *
+ * The table may be shared by invocations on several threads. Lookups and
+ * counting take no lock: results are kept in a concurrent map, and marked as
+ * used with a volatile flag. Only inserting a result is synchronized, which
+ * is done by calls that missed (and so invoked the method anyway), and moves
+ * the hand past a constant number of results on average.
+ */
+public final class MemoTable {
+
+    private final Map<Key, Result> results = new ConcurrentHashMap<>();
+    private final Key[] ring; //guarded by this
+    private int hand = 0; //guarded by this
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemoTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, received " + capacity + ".");
+        }
+        this.ring = new Key[capacity];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the result of calling {@code method} with the given arguments,
+     * invoking it only if the result is not already in the table.
+     */
+    public Environment.PlcObject call(Object method, List<Environment.PlcObject> arguments, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
+        List<Object> values = new ArrayList<>(arguments.size());
+        for (Environment.PlcObject argument : arguments) {
+            if (!isImmutable(argument)) {
+                return function.apply(arguments);
+            }
+            values.add(argument.getValue());
+        }
+        Key key = new Key(method, values);
+        Result cached = results.get(key);
+        if (cached != null) {
+            if (!cached.used) { //avoids writing to a shared result on every hit
+                cached.used = true;
+            }
+            hits.increment();
+            return cached.value;
+        }
+        misses.increment();
+        Environment.PlcObject result = function.apply(arguments);
+        if (isImmutable(result)) {
+            insert(key, new Result(result));
+        }
+        return result;
+    }
+
+    /**
+     * Adds a result to the table, first evicting one if it is full. Each
+     * result passed over by the hand on the way is marked as not used.
+     */
+    private synchronized void insert(Key key, Result result) {
+        if (results.containsKey(key)) {
+            return; //inserted by another thread
+        }
+        while (ring[hand] != null) {
+            Result resident = results.get(ring[hand]);
+            if (!resident.used) {
+                results.remove(ring[hand]);
+                break;
+            }
+            resident.used = false;
+            hand = (hand + 1) % ring.length;
+        }
+        ring[hand] = key;
+        results.put(key, result);
+        hand = (hand + 1) % ring.length;
+    }
+
+    private static boolean isImmutable(Environment.PlcObject object) {
+        Object value = object.getValue();
+        return object == Environment.NIL || value instanceof BigInteger || value instanceof BigDecimal
+                || value instanceof String || value instanceof Character || value instanceof Boolean;
+    }
+
+    private static final class Result {
+
+        private final Environment.PlcObject value;
+        private volatile boolean used = false; //since the hand last passed it
+
+        private Result(Environment.PlcObject value) {
+            this.value = value;
+        }
+
+    }
+
+    private static final class Key {
+
+        private final Object method;
+        private final List<Object> values;
+
+        private Key(Object method, List<Object> values) {
+            this.method = method;
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key &&
+                    method == ((Key) obj).method &&
+                    values.equals(((Key) obj).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(method) * 31 + values.hashCode();
+        }
+
+    }
+
+}
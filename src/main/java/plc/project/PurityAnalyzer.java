@@ -0,0 +1,225 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Marks the methods of an analyzed source that are pure with
+ * {@link Ast.Method#setPure}. A pure method always returns the same result
+ * for the same arguments and has no side effects, so its calls may be
+ * memoized (see {@link MemoTable}) or removed if unused.
+ *
+ * A method is pure if it only reads its own locals and constant fields, only
+ * assigns its own locals, and only calls pure methods of the source. A field
+ * is constant if it is never assigned and its value only reads literals and
+ * other constant fields, as a value computed by a function or read from the
+ * enclosing scope may differ between runs sharing a {@link MemoTable}. Functions defined outside the source (such as {@code print}) and
+ * methods called on a receiver are assumed to be impure, as is accessing a
+ * field of an object. Recursive methods are pure if nothing in the cycle is
+ * impure.
+ */
+public final class PurityAnalyzer implements Ast.Visitor<Void> {
+
+    private final Set<Environment.Variable> assignedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Variable> fields = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Variable> constants = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Deque<Set<String>> locals = new ArrayDeque<>();
+    private boolean pure;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Field field : ast.getFields()) {
+            fields.add(field.getVariable());
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            new Assignments().visit(method);
+        }
+        for (Ast.Field field : ast.getFields()) { //values only read fields defined before them
+            if (!assignedFields.contains(field.getVariable()) && field.getValue().map(this::isConstant).orElse(true)) {
+                constants.add(field.getVariable());
+            }
+        }
+        CallGraph graph = CallGraph.of(ast);
+        List<Ast.Method> pending = new ArrayList<>();
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+            if (method.isPure()) {
+                pending.add(method);
+            }
+        }
+        //Remove methods calling impure methods until none are left to remove
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Ast.Method method : pending) {
+                if (method.isPure() && !callsOnlyPure(graph, method)) {
+                    method.setPure(false);
+                    changed = true;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isConstant(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expr.Group) {
+            return isConstant(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            return isConstant(((Ast.Expr.Binary) expression).getLeft()) && isConstant(((Ast.Expr.Binary) expression).getRight());
+        } else if (expression instanceof Ast.Expr.Access) {
+            return !((Ast.Expr.Access) expression).getReceiver().isPresent() && constants.contains(((Ast.Expr.Access) expression).getVariable());
+        }
+        return false;
+    }
+
+    private static boolean callsOnlyPure(CallGraph graph, Ast.Method method) {
+        for (Environment.Function callee : graph.getCallees(method.getFunction())) {
+            Ast.Method called = graph.getMethods().get(callee);
+            if (called == null || !called.isPure()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        pure = true;
+        visitBlock(ast.getStatements(), ast.getParameters());
+        ast.setPure(pure);
+        return null;
+    }
+
+    private void visitBlock(List<Ast.Stmt> statements, List<String> names) {
+        locals.push(new HashSet<>(names));
+        statements.forEach(this::visit);
+        locals.pop();
+    }
+
+    private boolean isLocal(String name) {
+        for (Set<String> block : locals) {
+            if (block.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        locals.peek().add(ast.getName());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+        if (receiver.getReceiver().isPresent() || !isLocal(receiver.getName())) {
+            pure = false;
+        }
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getThenStatements(), List.of());
+        visitBlock(ast.getElseStatements(), List.of());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        visitBlock(ast.getStatements(), List.of(ast.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getStatements(), List.of());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            pure = false;
+        } else if (!isLocal(ast.getName()) && !constants.contains(ast.getVariable())) {
+            pure = false;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            pure = false;
+        }
+        ast.getArguments().forEach(this::visit);
+        return null;
+    }
+
+    /**
+     * Collects the fields assigned in a method, which are mutable.
+     */
+    private final class Assignments extends Rewriter {
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (!receiver.getReceiver().isPresent() && fields.contains(receiver.getVariable())) {
+                assignedFields.add(receiver.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
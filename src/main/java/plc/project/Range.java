@@ -0,0 +1,163 @@
+package plc.project;
+
+import java.math.BigInteger;
+
+/**
+ * An interval of {@code Integer} values computed by the {@link RangeAnalyzer}.
+ * Bounds of {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} mean the range
+ * is unbounded below or above, since {@code Integer}s are arbitrary precision
+ * at runtime; every other bound is exact. Arithmetic on ranges saturates to
+ * these bounds rather than overflowing.
+ */
+public final class Range {
+
+    public static final Range ALL = new Range(Long.MIN_VALUE, Long.MAX_VALUE);
+
+    private static final BigInteger INFINITY = BigInteger.ONE.shiftLeft(128);
+
+    private final long lo;
+    private final long hi;
+
+    private Range(long lo, long hi) {
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    public static Range of(long value) {
+        return of(value, value);
+    }
+
+    public static Range of(long lo, long hi) {
+        return new Range(lo, hi);
+    }
+
+    public static Range of(BigInteger value) {
+        return of(clamp(value));
+    }
+
+    public long getLo() {
+        return lo;
+    }
+
+    public long getHi() {
+        return hi;
+    }
+
+    /**
+     * Returns true if every value of the range (and so every value the
+     * expression it was computed for can have) fits in a {@code long}.
+     */
+    public boolean isLong() {
+        return lo != Long.MIN_VALUE && hi != Long.MAX_VALUE;
+    }
+
+    public boolean isInt() {
+        return lo >= Integer.MIN_VALUE && hi <= Integer.MAX_VALUE;
+    }
+
+    public boolean contains(long value) {
+        return lo <= value && value <= hi;
+    }
+
+    public Range add(Range other) {
+        return of(clamp(lower().add(other.lower())), clamp(upper().add(other.upper())));
+    }
+
+    public Range subtract(Range other) {
+        return of(clamp(lower().subtract(other.upper())), clamp(upper().subtract(other.lower())));
+    }
+
+    public Range multiply(Range other) {
+        return corners(other, BigInteger::multiply);
+    }
+
+    /**
+     * Returns the range of a truncating division. If the divisor may be zero
+     * only the division by the other divisors is considered, since dividing
+     * by zero fails rather than producing a value.
+     */
+    public Range divide(Range other) {
+        if (other.lo == 0 && other.hi == 0) {
+            return this;
+        } else if (other.lo == 0) {
+            return divide(of(1, other.hi));
+        } else if (other.hi == 0) {
+            return divide(of(other.lo, -1));
+        } else if (other.contains(0)) {
+            return divide(of(other.lo, -1)).union(divide(of(1, other.hi)));
+        }
+        return corners(other, BigInteger::divide);
+    }
+
+    public Range union(Range other) {
+        return of(Math.min(lo, other.lo), Math.max(hi, other.hi));
+    }
+
+    /**
+     * Returns the values in both ranges, or null if there are none.
+     */
+    public Range intersect(Range other) {
+        long lo = Math.max(this.lo, other.lo);
+        long hi = Math.min(this.hi, other.hi);
+        return lo <= hi ? of(lo, hi) : null;
+    }
+
+    /**
+     * Returns this range with any bound that grew in {@code next} made
+     * unbounded, which guarantees loop analysis terminates.
+     */
+    public Range widen(Range next) {
+        return of(next.lo < lo ? Long.MIN_VALUE : lo, next.hi > hi ? Long.MAX_VALUE : hi);
+    }
+
+    private Range corners(Range other, java.util.function.BinaryOperator<BigInteger> operator) {
+        BigInteger[] values = {
+                operator.apply(lower(), other.lower()),
+                operator.apply(lower(), other.upper()),
+                operator.apply(upper(), other.lower()),
+                operator.apply(upper(), other.upper())
+        };
+        BigInteger min = values[0];
+        BigInteger max = values[0];
+        for (BigInteger value : values) {
+            min = min.min(value);
+            max = max.max(value);
+        }
+        return of(clamp(min), clamp(max));
+    }
+
+    private BigInteger lower() {
+        return lo == Long.MIN_VALUE ? INFINITY.negate() : BigInteger.valueOf(lo);
+    }
+
+    private BigInteger upper() {
+        return hi == Long.MAX_VALUE ? INFINITY : BigInteger.valueOf(hi);
+    }
+
+    private static long clamp(BigInteger value) {
+        if (value.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) <= 0) {
+            return Long.MIN_VALUE;
+        } else if (value.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) >= 0) {
+            return Long.MAX_VALUE;
+        }
+        return value.longValue();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Range &&
+                lo == ((Range) obj).lo &&
+                hi == ((Range) obj).hi;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(lo) * 31 + Long.hashCode(hi);
+    }
+
+    @Override
+    public String toString() {
+        return "[" + (lo == Long.MIN_VALUE ? "-inf" : lo) + ", " + (hi == Long.MAX_VALUE ? "inf" : hi) + "]";
+    }
+
+}
@@ -0,0 +1,338 @@
+package plc.project;
+
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the range of values of every {@code Integer} expression in an
+ * analyzed AST, setting it with {@link Ast.Expr#setRange}. The
+ * {@link Interpreter} evaluates expressions whose ranges fit in a
+ * {@code long} with primitive arithmetic, and the {@link Generator} emits
+ * overflow checks only for operations that may not fit in an {@code int}.
+ *
+ * Ranges are tracked for local variables (keyed by the variables set by the
+ * Analyzer), which are only changed by the statements of their own method.
+ * Fields, parameters, and results of calls may be any {@code Integer}.
+ * Conditions comparing a local with an {@code Integer} refine the range of
+ * the local in each branch, and loops are analyzed to a fixed point by
+ * widening bounds that keep growing, followed by one narrowing step.
+ *
+ * This runs after the Analyzer and any passes that rewrite the AST.
+ */
+public final class RangeAnalyzer implements Ast.Visitor<Range> {
+
+    /**
+     * The number of iterations a loop bound may grow for before widening.
+     */
+    private static final int WIDENING_DELAY = 2;
+
+    private Map<Environment.Variable, Range> ranges = null; //null if unreachable
+
+    @Override
+    public Range visit(Ast.Source ast) {
+        ast.getFields().forEach(this::visit);
+        ast.getMethods().forEach(this::visit);
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Field ast) {
+        ranges = new IdentityHashMap<>();
+        ast.getValue().ifPresent(this::visit);
+        ranges = null;
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Method ast) {
+        ranges = new IdentityHashMap<>();
+        visitBlock(ast.getStatements());
+        ranges = null;
+        return null;
+    }
+
+    private void visitBlock(List<Ast.Stmt> statements) {
+        for (Ast.Stmt statement : statements) {
+            if (ranges == null) {
+                break;
+            }
+            visit(statement);
+        }
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.Declaration ast) {
+        Range range = ast.getValue().isPresent() ? visit(ast.getValue().get()) : null;
+        if (ast.getVariable().getType().equals(Environment.Type.INTEGER)) {
+            ranges.put(ast.getVariable(), range != null ? range : Range.ALL);
+        }
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.Assignment ast) {
+        visit(ast.getReceiver());
+        Range range = visit(ast.getValue());
+        if (ast.getReceiver() instanceof Ast.Expr.Access && isLocal((Ast.Expr.Access) ast.getReceiver())) {
+            ranges.put(((Ast.Expr.Access) ast.getReceiver()).getVariable(), range != null ? range : Range.ALL);
+        }
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        Map<Environment.Variable, Range> entry = ranges;
+
+        ranges = copy(entry);
+        refine(ast.getCondition(), true);
+        visitBlock(ast.getThenStatements());
+        Map<Environment.Variable, Range> then = ranges;
+
+        ranges = copy(entry);
+        refine(ast.getCondition(), false);
+        visitBlock(ast.getElseStatements());
+        ranges = join(then, ranges);
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        visitLoop(null, ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.While ast) {
+        visitLoop(ast.getCondition(), ast.getStatements());
+        return null;
+    }
+
+    /**
+     * Analyzes a loop with an optional condition (checked before each
+     * iteration), leaving the ranges at the loop exit.
+     */
+    private void visitLoop(Ast.Expr condition, List<Ast.Stmt> statements) {
+        Map<Environment.Variable, Range> entry = ranges;
+        Map<Environment.Variable, Range> head = entry;
+        for (int iteration = 0; ; iteration++) {
+            Map<Environment.Variable, Range> next = join(entry, visitIteration(head, condition, statements));
+            if (isWithin(next, head)) {
+                head = next; //narrowing, as an iteration from a fixed point is also one
+                break;
+            }
+            head = iteration < WIDENING_DELAY ? next : widen(head, next);
+        }
+        visitIteration(head, condition, statements);
+
+        ranges = copy(head);
+        if (condition != null) {
+            refine(condition, false);
+        }
+    }
+
+    private Map<Environment.Variable, Range> visitIteration(Map<Environment.Variable, Range> head, Ast.Expr condition, List<Ast.Stmt> statements) {
+        ranges = copy(head);
+        if (condition != null) {
+            visit(condition);
+            refine(condition, true);
+        }
+        visitBlock(statements);
+        return ranges;
+    }
+
+    @Override
+    public Range visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        ranges = null;
+        return null;
+    }
+
+    @Override
+    public Range visit(Ast.Expr.Literal ast) {
+        if (ast.getLiteral() instanceof BigInteger) {
+            ast.setRange(Range.of((BigInteger) ast.getLiteral()));
+        }
+        return ast.getRange();
+    }
+
+    @Override
+    public Range visit(Ast.Expr.Group ast) {
+        ast.setRange(visit(ast.getExpression()));
+        return ast.getRange();
+    }
+
+    @Override
+    public Range visit(Ast.Expr.Binary ast) {
+        Range left = visit(ast.getLeft());
+        Range right = visit(ast.getRight());
+        if (ast.getOperation() == BinaryOperation.INTEGER_ADD) {
+            ast.setRange(left.add(right));
+        } else if (ast.getOperation() == BinaryOperation.INTEGER_SUBTRACT) {
+            ast.setRange(left.subtract(right));
+        } else if (ast.getOperation() == BinaryOperation.INTEGER_MULTIPLY) {
+            ast.setRange(left.multiply(right));
+        } else if (ast.getOperation() == BinaryOperation.INTEGER_DIVIDE) {
+            ast.setRange(left.divide(right));
+        }
+        return ast.getRange();
+    }
+
+    @Override
+    public Range visit(Ast.Expr.Access ast) {
+        ast.getReceiver().ifPresent(this::visit);
+        if (ast.getType().equals(Environment.Type.INTEGER)) {
+            ast.setRange(isLocal(ast) ? ranges.get(ast.getVariable()) : Range.ALL);
+        }
+        return ast.getRange();
+    }
+
+    @Override
+    public Range visit(Ast.Expr.Function ast) {
+        ast.getReceiver().ifPresent(this::visit);
+        ast.getArguments().forEach(this::visit);
+        if (ast.getType().equals(Environment.Type.INTEGER)) {
+            ast.setRange(Range.ALL);
+        }
+        return ast.getRange();
+    }
+
+    private boolean isLocal(Ast.Expr.Access ast) {
+        return !ast.getReceiver().isPresent() && ranges != null && ranges.containsKey(ast.getVariable());
+    }
+
+    /**
+     * Narrows the ranges of locals compared in a condition to those for which
+     * the condition has the given value. The operands have already been
+     * visited, so their ranges are set.
+     */
+    private void refine(Ast.Expr condition, boolean value) {
+        if (ranges == null) {
+            return;
+        } else if (condition instanceof Ast.Expr.Group) {
+            refine(((Ast.Expr.Group) condition).getExpression(), value);
+        } else if (condition instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) condition;
+            String operator = binary.getOperator();
+            if ((operator.equals("AND") && value) || (operator.equals("OR") && !value)) {
+                refine(binary.getLeft(), value);
+                refine(binary.getRight(), value);
+            } else if (binary.getLeft().getRange() != null && binary.getRight().getRange() != null) {
+                operator = value ? operator : negate(operator);
+                if (binary.getLeft() instanceof Ast.Expr.Access) {
+                    constrain((Ast.Expr.Access) binary.getLeft(), operator, binary.getRight().getRange());
+                }
+                if (binary.getRight() instanceof Ast.Expr.Access) {
+                    constrain((Ast.Expr.Access) binary.getRight(), flip(operator), binary.getLeft().getRange());
+                }
+            }
+        }
+    }
+
+    /**
+     * Narrows the range of an accessed local to the values {@code x} for
+     * which {@code x operator y} holds for some {@code y} in {@code range}.
+     */
+    private void constrain(Ast.Expr.Access ast, String operator, Range range) {
+        if (!isLocal(ast)) {
+            return;
+        }
+        Range bound;
+        switch (operator) {
+            case "<": bound = range.getHi() == Long.MAX_VALUE ? Range.ALL : Range.of(Long.MIN_VALUE, range.getHi() - 1); break;
+            case "<=": bound = Range.of(Long.MIN_VALUE, range.getHi()); break;
+            case ">": bound = range.getLo() == Long.MIN_VALUE ? Range.ALL : Range.of(range.getLo() + 1, Long.MAX_VALUE); break;
+            case ">=": bound = Range.of(range.getLo(), Long.MAX_VALUE); break;
+            case "==": bound = range; break;
+            default: return;
+        }
+        Range narrowed = ranges.get(ast.getVariable()).intersect(bound);
+        if (narrowed == null) {
+            ranges = null; //the condition never has this value
+        } else {
+            ranges.put(ast.getVariable(), narrowed);
+        }
+    }
+
+    private static String negate(String operator) {
+        switch (operator) {
+            case "<": return ">=";
+            case "<=": return ">";
+            case ">": return "<=";
+            case ">=": return "<";
+            case "==": return "!=";
+            case "!=": return "==";
+            default: return operator;
+        }
+    }
+
+    private static String flip(String operator) {
+        switch (operator) {
+            case "<": return ">";
+            case "<=": return ">=";
+            case ">": return "<";
+            case ">=": return "<=";
+            default: return operator;
+        }
+    }
+
+    private static Map<Environment.Variable, Range> copy(Map<Environment.Variable, Range> ranges) {
+        return ranges == null ? null : new IdentityHashMap<>(ranges);
+    }
+
+    /**
+     * Joins the ranges at two points that flow into the same statement. Locals
+     * known at only one of them are out of scope and dropped.
+     */
+    private static Map<Environment.Variable, Range> join(Map<Environment.Variable, Range> first, Map<Environment.Variable, Range> second) {
+        if (first == null || second == null) {
+            return copy(first == null ? second : first);
+        }
+        Map<Environment.Variable, Range> joined = new IdentityHashMap<>();
+        for (Map.Entry<Environment.Variable, Range> entry : first.entrySet()) {
+            Range other = second.get(entry.getKey());
+            if (other != null) {
+                joined.put(entry.getKey(), entry.getValue().union(other));
+            }
+        }
+        return joined;
+    }
+
+    private static Map<Environment.Variable, Range> widen(Map<Environment.Variable, Range> head, Map<Environment.Variable, Range> next) {
+        if (head == null) {
+            return next;
+        }
+        Map<Environment.Variable, Range> widened = new IdentityHashMap<>();
+        for (Map.Entry<Environment.Variable, Range> entry : head.entrySet()) {
+            widened.put(entry.getKey(), entry.getValue().widen(next.get(entry.getKey())));
+        }
+        return widened;
+    }
+
+    /**
+     * Returns true if every range in {@code first} is within the range of the
+     * same local in {@code second}.
+     */
+    private static boolean isWithin(Map<Environment.Variable, Range> first, Map<Environment.Variable, Range> second) {
+        if (first == null || second == null) {
+            return first == null;
+        }
+        for (Map.Entry<Environment.Variable, Range> entry : first.entrySet()) {
+            Range other = second.get(entry.getKey());
+            if (other == null || !entry.getValue().equals(entry.getValue().intersect(other))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,171 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves every local variable and parameter to a slot in its method's
+ * frame, so the {@link Interpreter} can access it by index instead of
+ * looking it up by name through the scope chain.
+ *
+ * A frame is a flat array. The variables of a block take the slots after
+ * those of its enclosing blocks, and since only one of a set of sibling
+ * blocks is active at a time, sibling blocks reuse the same slots. The
+ * frame is therefore as large as the most variables in scope at any point
+ * of the method, and blocks declaring no variables take no slots.
+ *
+ * Accesses that do not resolve to a local, which are fields, are left
+ * unresolved. This runs after the {@link Analyzer} and any passes that
+ * rewrite the AST, as rewritten nodes do not keep their addresses.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    private final List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int next = 0;
+    private int size = 0;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        ast.getMethods().forEach(this::visit);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        next = 0;
+        size = 0;
+        blocks.add(new HashMap<>());
+        ast.getParameters().forEach(this::declare);
+        visitBlock(ast.getStatements());
+        blocks.remove(0);
+        ast.setFrameSize(size);
+        return null;
+    }
+
+    private void visitBlock(List<Ast.Stmt> statements) {
+        statements.forEach(this::visit);
+    }
+
+    /**
+     * Visits a nested block, whose slots are free again for the next block
+     * once it ends.
+     */
+    private void visitNestedBlock(List<Ast.Stmt> statements, String... names) {
+        int base = next;
+        blocks.add(new HashMap<>());
+        for (String name : names) {
+            declare(name);
+        }
+        visitBlock(statements);
+        blocks.remove(blocks.size() - 1);
+        next = base;
+    }
+
+    /**
+     * Declares a variable in the innermost block, returning its slot.
+     */
+    private int declare(String name) {
+        int slot = next++;
+        blocks.get(blocks.size() - 1).put(name, slot);
+        size = Math.max(size, next);
+        return slot;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        ast.setSlot(declare(ast.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        visitNestedBlock(ast.getThenStatements());
+        visitNestedBlock(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        ast.setSlot(next);
+        visitNestedBlock(ast.getStatements(), ast.getName());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        visitNestedBlock(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            return null;
+        }
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer slot = blocks.get(i).get(ast.getName());
+            if (slot != null) {
+                ast.setSlot(slot);
+                break;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        ast.getReceiver().ifPresent(this::visit);
+        ast.getArguments().forEach(this::visit);
+        return null;
+    }
+
+}
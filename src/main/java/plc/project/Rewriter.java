@@ -0,0 +1,285 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Base class for passes that rewrite an analyzed AST, such as the
+ * {@link ConstantFolder}. Each visit returns the rewritten node. The default
+ * implementations rewrite the children and only rebuild a node when one of
+ * its children changed, copying over the types, variables, and functions set
+ * by the {@link Analyzer}. Unchanged subtrees are therefore shared with the
+ * original tree.
+ *
+ * Statements are rewritten through {@link #rewrite(Ast.Stmt, List)}, which
+ * may replace a statement with any number of statements (including none).
+ */
+abstract class Rewriter implements Ast.Visitor<Ast> {
+
+    protected Ast.Expr rewrite(Ast.Expr expression) {
+        return (Ast.Expr) visit(expression);
+    }
+
+    protected Optional<Ast.Expr> rewrite(Optional<Ast.Expr> expression) {
+        if (expression.isPresent()) {
+            Ast.Expr rewritten = rewrite(expression.get());
+            return rewritten == expression.get() ? expression : Optional.of(rewritten);
+        }
+        return expression;
+    }
+
+    /**
+     * Rewrites a statement, adding the result to {@code statements}.
+     */
+    protected void rewrite(Ast.Stmt statement, List<Ast.Stmt> statements) {
+        statements.add((Ast.Stmt) visit(statement));
+    }
+
+    /**
+     * Rewrites a block of statements, returning the original list if none of
+     * the statements changed.
+     */
+    protected List<Ast.Stmt> rewrite(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> rewritten = new ArrayList<>();
+        for (Ast.Stmt statement : statements) {
+            rewrite(statement, rewritten);
+        }
+        return isSame(statements, rewritten) ? statements : rewritten;
+    }
+
+    protected static boolean isSame(List<? extends Ast> original, List<? extends Ast> rewritten) {
+        if (original.size() != rewritten.size()) {
+            return false;
+        }
+        for (int i = 0; i < original.size(); i++) {
+            if (original.get(i) != rewritten.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+        List<Ast.Field> fields = new ArrayList<>();
+        for (Ast.Field field : ast.getFields()) {
+            fields.add((Ast.Field) visit(field));
+        }
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : ast.getMethods()) {
+            methods.add((Ast.Method) visit(method));
+        }
+        if (isSame(ast.getFields(), fields) && isSame(ast.getMethods(), methods)) {
+            return ast;
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    @Override
+    public Ast visit(Ast.Field ast) {
+        Optional<Ast.Expr> value = rewrite(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Field field = new Ast.Field(ast.getName(), ast.getTypeName(), value);
+        field.setVariable(ast.getVariable());
+        return field;
+    }
+
+    @Override
+    public Ast visit(Ast.Method ast) {
+        List<Ast.Stmt> statements = rewrite(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        method.setFunction(ast.getFunction());
+        return method;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Expression ast) {
+        Ast.Expr expression = rewrite(ast.getExpression());
+        return expression == ast.getExpression() ? ast : new Ast.Stmt.Expression(expression);
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Declaration ast) {
+        Optional<Ast.Expr> value = rewrite(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(ast.getName(), ast.getTypeName(), value);
+        declaration.setVariable(ast.getVariable());
+        return declaration;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr receiver = rewriteReceiver(ast.getReceiver());
+        Ast.Expr value = rewrite(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return new Ast.Stmt.Assignment(receiver, value);
+    }
+
+    /**
+     * Rewrites the receiver of an assignment. Only the receiver of the
+     * accessed field (if any) is an expression; the access itself is the
+     * target and is kept.
+     */
+    protected Ast.Expr rewriteReceiver(Ast.Expr receiver) {
+        if (receiver instanceof Ast.Expr.Access && ((Ast.Expr.Access) receiver).getReceiver().isPresent()) {
+            Ast.Expr.Access access = (Ast.Expr.Access) receiver;
+            Optional<Ast.Expr> object = rewrite(access.getReceiver());
+            if (object != access.getReceiver()) {
+                return copy(access, object);
+            }
+        }
+        return receiver;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.If ast) {
+        Ast.Expr condition = rewrite(ast.getCondition());
+        List<Ast.Stmt> thenStatements = rewrite(ast.getThenStatements());
+        List<Ast.Stmt> elseStatements = rewrite(ast.getElseStatements());
+        if (condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.If(condition, thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.For ast) {
+        Ast.Expr value = rewrite(ast.getValue());
+        List<Ast.Stmt> statements = rewrite(ast.getStatements());
+        if (value == ast.getValue() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.For(ast.getName(), value, statements);
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.While ast) {
+        Ast.Expr condition = rewrite(ast.getCondition());
+        List<Ast.Stmt> statements = rewrite(ast.getStatements());
+        if (condition == ast.getCondition() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.While(condition, statements);
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Return ast) {
+        Ast.Expr value = rewrite(ast.getValue());
+        return value == ast.getValue() ? ast : new Ast.Stmt.Return(value);
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = rewrite(ast.getExpression());
+        if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expr.Group group = new Ast.Expr.Group(expression);
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Binary ast) {
+        Ast.Expr left = rewrite(ast.getLeft());
+        Ast.Expr right = rewrite(ast.getRight());
+        if (left == ast.getLeft() && right == ast.getRight()) {
+            return ast;
+        }
+        return copy(ast, left, right);
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Access ast) {
+        Optional<Ast.Expr> receiver = rewrite(ast.getReceiver());
+        return receiver == ast.getReceiver() ? ast : copy(ast, receiver);
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Function ast) {
+        Optional<Ast.Expr> receiver = rewrite(ast.getReceiver());
+        List<Ast.Expr> arguments = new ArrayList<>();
+        for (Ast.Expr argument : ast.getArguments()) {
+            arguments.add(rewrite(argument));
+        }
+        if (receiver == ast.getReceiver() && isSame(ast.getArguments(), arguments)) {
+            return ast;
+        }
+        Ast.Expr.Function function = new Ast.Expr.Function(receiver, ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    protected static Ast.Expr.Binary copy(Ast.Expr.Binary ast, Ast.Expr left, Ast.Expr right) {
+        Ast.Expr.Binary binary = new Ast.Expr.Binary(ast.getOperator(), left, right);
+        binary.setType(ast.getType());
+        binary.setOperation(ast.getOperation());
+        return binary;
+    }
+
+    protected static Ast.Expr.Access copy(Ast.Expr.Access ast, Optional<Ast.Expr> receiver) {
+        Ast.Expr.Access access = new Ast.Expr.Access(receiver, ast.getName());
+        access.setVariable(ast.getVariable());
+        return access;
+    }
+
+    /**
+     * Creates an analyzed literal, which the Analyzer types exactly as if it
+     * had been written in the source (and rejects if it could not be).
+     */
+    protected static Ast.Expr.Literal literal(Object value) {
+        Ast.Expr.Literal literal = new Ast.Expr.Literal(value);
+        new Analyzer(null).visit(literal);
+        return literal;
+    }
+
+    /**
+     * Returns the number of statements and expressions in a tree, which is
+     * used as its size by passes that have a budget or report their effect.
+     */
+    protected static int size(Ast ast) {
+        Size size = new Size();
+        size.visit(ast);
+        return size.size;
+    }
+
+    private static final class Size extends Rewriter {
+
+        private int size = 0;
+
+        @Override
+        protected Ast.Expr rewrite(Ast.Expr expression) {
+            size++;
+            return super.rewrite(expression);
+        }
+
+        @Override
+        protected void rewrite(Ast.Stmt statement, List<Ast.Stmt> statements) {
+            size++;
+            super.rewrite(statement, statements);
+        }
+
+        @Override
+        protected Ast.Expr rewriteReceiver(Ast.Expr receiver) {
+            size++;
+            return super.rewriteReceiver(receiver);
+        }
+
+    }
+
+}
@@ -4,13 +4,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public final class Scope {
 
+    private static final Object PENDING = new Object(); //code being compiled
+
     private final Scope parent;
     private final Map<String, Environment.Variable> variables = new HashMap<>();
     private final Map<String, Environment.Function> functions = new HashMap<>();
+    private volatile Map<Object, Object> compiled = null; //created when first needed
 
     public Scope(Scope parent) {
         this.parent = parent;
@@ -25,12 +29,19 @@ public final class Scope {
     }
 
     public Environment.Variable defineVariable(String name, String jvmName, Environment.Type type, Environment.PlcObject value) {
-        if (variables.containsKey(name)) {
-            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+        return defineVariable(new Environment.Variable(name, jvmName, type, value));
+    }
+
+    /**
+     * Defines an existing variable in this scope, which lets a declaration be
+     * shared between scopes (such as by {@link AnalysisCache}).
+     */
+    public Environment.Variable defineVariable(Environment.Variable variable) {
+        if (variables.containsKey(variable.getName())) {
+            throw new RuntimeException("The variable " + variable.getName() + " is already defined in this scope.");
         } else {
-            Environment.Variable variable = new Environment.Variable(name, jvmName, type, value);
             variables.put(variable.getName(), variable);
-            return variables.get(name);
+            return variable;
         }
     }
 
@@ -44,6 +55,31 @@ public final class Scope {
         }
     }
 
+    /**
+     * Returns the closest scope defining the variable.
+     */
+    Scope lookupVariableScope(String name) {
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            if (scope.variables.containsKey(name)) {
+                return scope;
+            }
+        }
+        throw new RuntimeException("The variable " + name + " is not defined in this scope.");
+    }
+
+    /**
+     * Returns true if looking up the variable from this scope still finds
+     * the one defined in {@code definer}, see {@link #isFunctionVisible}.
+     */
+    boolean isVariableVisible(Scope definer, String name) {
+        for (Scope scope = this; scope != definer; scope = scope.parent) {
+            if (scope == null || !scope.variables.isEmpty() && scope.variables.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
         List<Environment.Type> parameterTypes = new ArrayList<>();
         for (int i = 0; i < arity; i++) {
@@ -53,26 +89,95 @@ public final class Scope {
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size()))
+        return defineFunction(new Environment.Function(name, jvmName, parameterTypes, returnType, function));
+    }
+
+    /**
+     * Defines an existing function in this scope, see {@link #defineVariable(Environment.Variable)}.
+     */
+    public Environment.Function defineFunction(Environment.Function func) {
+        if (functions.containsKey(func.getName() + "/" + func.getParameterTypes().size()))
         {
-            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
+            throw new RuntimeException("The function " + func.getName() + "/" + func.getParameterTypes().size() + " is already defined in this scope.");
         }
         else
         {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
             functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
             return func;
         }
     }
 
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        String key = name + "/" + arity;
+        return lookupFunctionScope(key).functions.get(key);
+    }
+
+    /**
+     * Returns the closest scope defining the function with the given key
+     * ({@code name/arity}).
+     */
+    Scope lookupFunctionScope(String key) {
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            if (scope.functions.containsKey(key)) {
+                return scope;
+            }
+        }
+        throw new RuntimeException("The function " + key + " is not defined in this scope.");
+    }
+
+    /**
+     * Returns true if looking up the function with the given key from this
+     * scope still finds the one defined in {@code definer}. A function is
+     * never removed or redefined in its scope, so this only has to check
+     * that the definer is an ancestor and that no scope in between has since
+     * defined a function with the same key, which is quick for the scopes
+     * of blocks and method invocations as they define no functions.
+     */
+    boolean isFunctionVisible(Scope definer, String key) {
+        for (Scope scope = this; scope != definer; scope = scope.parent) {
+            if (scope == null || !scope.functions.isEmpty() && scope.functions.containsKey(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the code compiled for this scope under the given key, or null
+     * if there is none yet. Code compiled by {@link Tiering} binds the
+     * variables and functions of the scope it runs in, so it is kept by the
+     * scope and is dropped along with it.
+     */
+    Object getCompiled(Object key) {
+        Map<Object, Object> code = compiled;
+        Object value = code != null ? code.get(key) : null;
+        return value == PENDING ? null : value;
+    }
+
+    /**
+     * Returns true for the one caller that is to compile the code under the
+     * given key, which then sets it with {@link #setCompiled}.
+     */
+    boolean claimCompiled(Object key) {
+        return compiled().putIfAbsent(key, PENDING) == null;
+    }
+
+    void setCompiled(Object key, Object code) {
+        compiled().put(key, code);
+    }
+
+    private Map<Object, Object> compiled() {
+        Map<Object, Object> code = compiled;
+        if (code == null) {
+            synchronized (this) {
+                code = compiled;
+                if (code == null) {
+                    code = new ConcurrentHashMap<>();
+                    compiled = code;
+                }
+            }
         }
+        return code;
     }
 
     @Override
@@ -0,0 +1,225 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Configures the {@link Interpreter} to move hot code to a faster tier, the
+ * {@link ClosureCompiler}. Each resolved method counts its invocations, and
+ * is compiled once they reach the invocation threshold. Each loop in a
+ * resolved method counts its iterations (back edges), and once they reach
+ * the back edge threshold the loop is compiled and the running loop switches
+ * over to it (on-stack replacement), continuing with the current values of
+ * the frame. Later executions of the loop start in the compiled code.
+ *
+ * Methods that are not resolved by the {@link Resolver} stay in the
+ * interpreter, as compiled code addresses locals in the frame.
+ *
+ * Compiled code binds the fields and functions of the scope the method was
+ * defined in, so it is kept by that scope (see {@link Scope#getCompiled}).
+ * A tiering shared by several interpreters, each defining the source in a
+ * scope of its own, counts each method and loop across all of them, and
+ * compiles it again for each scope once it is hot.
+ *
+ * A tiering may be used by invocations on several threads without them
+ * taking a lock. Each method and loop gets a counter when it is first seen,
+ * published through an immutable map that is copied on each addition. The
+ * first thread to claim the code of a hot method or loop in a scope
+ * compiles it while the others keep interpreting, and calls the listener.
+ */
+public final class Tiering {
+
+    private final int invocationThreshold;
+    private final int backEdgeThreshold;
+    private volatile Map<Ast, Counter> counters = new IdentityHashMap<>(); //never modified once published
+    private final List<Event> events = new ArrayList<>();
+    private Consumer<Event> listener = event -> {};
+    private final LongAdder compiledInvocations = new LongAdder();
+
+    public Tiering(int invocationThreshold, int backEdgeThreshold) {
+        this.invocationThreshold = invocationThreshold;
+        this.backEdgeThreshold = backEdgeThreshold;
+    }
+
+    public int getInvocationThreshold() {
+        return invocationThreshold;
+    }
+
+    public int getBackEdgeThreshold() {
+        return backEdgeThreshold;
+    }
+
+    /**
+     * Sets a listener called on each tier-up, when it happens.
+     */
+    public void setListener(Consumer<Event> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the tier-ups so far, in order.
+     */
+    public List<Event> getEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    /**
+     * Returns the number of times a method has been invoked in either tier.
+     */
+    public int getInvocations(Ast.Method method) {
+        Counter counter = counters.get(method);
+        return counter != null ? (int) counter.count.sum() : 0;
+    }
+
+    /**
+     * Returns the number of iterations of a loop counted in the interpreter.
+     */
+    public int getBackEdges(Ast.Stmt loop) {
+        Counter counter = counters.get(loop);
+        return counter != null ? (int) counter.count.sum() : 0;
+    }
+
+    /**
+     * Returns the number of method invocations run by compiled code.
+     */
+    public int getCompiledInvocations() {
+        return (int) compiledInvocations.sum();
+    }
+
+    /**
+     * Counts an invocation of a resolved method defined in the given scope,
+     * returning its result if it was run by compiled code and {@code null}
+     * if it is to be interpreted.
+     */
+    @SuppressWarnings("unchecked")
+    Environment.PlcObject invoke(Ast.Method method, Scope scope, List<Environment.PlcObject> arguments) {
+        Counter counter = counter(method);
+        counter.count.increment();
+        Function<List<Environment.PlcObject>, Environment.PlcObject> compiled = (Function<List<Environment.PlcObject>, Environment.PlcObject>) scope.getCompiled(counter);
+        if (compiled == null && counter.count.sum() >= invocationThreshold && scope.claimCompiled(counter)) {
+            compiled = ClosureCompiler.in(scope).compileMethod(method);
+            scope.setCompiled(counter, compiled);
+            tierUp(new Event(Event.Kind.METHOD, method, (int) counter.count.sum()));
+        }
+        if (compiled == null) {
+            return null;
+        }
+        compiledInvocations.increment();
+        return compiled.apply(arguments);
+    }
+
+    /**
+     * Returns the compiled code of a loop in the given scope, if it has been
+     * compiled. For a {@code WHILE} loop, this is the whole loop, and for a
+     * {@code FOR} loop it is the body of the loop.
+     */
+    @SuppressWarnings("unchecked")
+    Function<Environment.PlcObject[], Environment.PlcObject> getLoop(Ast.Stmt loop, Scope scope) {
+        Counter counter = counters.get(loop);
+        return counter != null ? (Function<Environment.PlcObject[], Environment.PlcObject>) scope.getCompiled(counter) : null;
+    }
+
+    /**
+     * Counts an iteration of a loop, returning its compiled code if the
+     * loop is to switch over to it.
+     */
+    @SuppressWarnings("unchecked")
+    Function<Environment.PlcObject[], Environment.PlcObject> backEdge(Ast.Stmt loop, Scope scope) {
+        Counter counter = counter(loop);
+        counter.count.increment();
+        Function<Environment.PlcObject[], Environment.PlcObject> compiled = (Function<Environment.PlcObject[], Environment.PlcObject>) scope.getCompiled(counter);
+        if (compiled == null && counter.count.sum() >= backEdgeThreshold && scope.claimCompiled(counter)) {
+            List<Ast.Stmt> statements = loop instanceof Ast.Stmt.For ? ((Ast.Stmt.For) loop).getStatements() : List.of(loop);
+            compiled = ClosureCompiler.in(scope).compileStatements(statements);
+            scope.setCompiled(counter, compiled);
+            tierUp(new Event(Event.Kind.LOOP, loop, (int) counter.count.sum()));
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the counter of a method or loop, adding it if it has not been
+     * seen before.
+     */
+    private Counter counter(Ast ast) {
+        Counter counter = counters.get(ast);
+        if (counter != null) {
+            return counter;
+        }
+        synchronized (this) {
+            counter = counters.get(ast);
+            if (counter == null) {
+                Map<Ast, Counter> updated = new IdentityHashMap<>(counters);
+                counter = new Counter();
+                updated.put(ast, counter);
+                counters = updated;
+            }
+            return counter;
+        }
+    }
+
+    private void tierUp(Event event) {
+        synchronized (events) {
+            events.add(event);
+        }
+        listener.accept(event);
+    }
+
+    /**
+     * The invocations or back edges of a method or loop, which is also the
+     * key of its compiled code in each scope.
+     */
+    private static final class Counter {
+
+        private final LongAdder count = new LongAdder();
+
+    }
+
+    /**
+     * A method or loop moving to compiled code, after the given number of
+     * invocations or back edges.
+     */
+    public static final class Event {
+
+        public enum Kind {
+            METHOD, LOOP
+        }
+
+        private final Kind kind;
+        private final Ast ast;
+        private final int count;
+
+        private Event(Kind kind, Ast ast, int count) {
+            this.kind = kind;
+            this.ast = ast;
+            this.count = count;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Ast getAst() {
+            return ast;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            String name = ast instanceof Ast.Method ? ((Ast.Method) ast).getName() : ast instanceof Ast.Stmt.For ? "FOR" : "WHILE";
+            return kind + " " + name + " after " + count;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes the methods and fields of an analyzed source that can't affect its
+ * execution, so they are neither defined by the {@link Interpreter} nor
+ * emitted by the {@link Generator}.
+ *
+ *  - Methods are kept if they are reachable in the {@link CallGraph} from
+ *    {@code main/0} or from the calls in field initializers, which run at
+ *    startup.
+ *  - Fields are kept if they are read or assigned by a kept method or the
+ *    initializer of a kept field, or if their initializer is not pure or
+ *    may fail. Removing a field may leave others unused, so this repeats
+ *    until no more fields are removed.
+ */
+public final class TreeShaker {
+
+    private int removed = 0;
+
+    /**
+     * Returns the number of methods and fields removed by the last call to
+     * shake.
+     */
+    public int getRemoved() {
+        return removed;
+    }
+
+    public Ast.Source shake(Ast.Source source) {
+        removed = 0;
+        Set<Environment.Function> roots = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Ast.Method method : source.getMethods()) {
+            if (method.getName().equals("main") && method.getParameters().isEmpty()) {
+                roots.add(method.getFunction());
+            }
+        }
+        for (Ast.Field field : source.getFields()) {
+            new CallGraph.Calls(roots, () -> {}).visit(field);
+        }
+        Set<Environment.Function> reachable = CallGraph.of(source).getReachable(roots);
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : source.getMethods()) {
+            if (reachable.contains(method.getFunction())) {
+                methods.add(method);
+            }
+        }
+        Effects effects = Effects.of(source);
+        List<Ast.Field> fields = new ArrayList<>(source.getFields());
+        boolean changed = true;
+        while (changed) {
+            Set<Environment.Variable> used = Collections.newSetFromMap(new IdentityHashMap<>());
+            References references = new References(used);
+            fields.forEach(references::visit);
+            methods.forEach(references::visit);
+            changed = fields.removeIf(field -> !used.contains(field.getVariable())
+                    && field.getValue().map(value -> Effects.isPure(value) && effects.cannotFail(value)).orElse(true));
+        }
+        removed = source.getMethods().size() - methods.size() + source.getFields().size() - fields.size();
+        return removed == 0 ? source : new Ast.Source(fields, methods);
+    }
+
+    /**
+     * Collects the variables read or assigned (without a receiver).
+     */
+    private static final class References extends Rewriter {
+
+        private final Set<Environment.Variable> used;
+
+        private References(Set<Environment.Variable> used) {
+            this.used = used;
+        }
+
+        @Override
+        public Ast visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (!receiver.getReceiver().isPresent()) {
+                used.add(receiver.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+        @Override
+        public Ast visit(Ast.Expr.Access ast) {
+            if (!ast.getReceiver().isPresent()) {
+                used.add(ast.getVariable());
+            }
+            return super.visit(ast);
+        }
+
+    }
+
+}
@@ -0,0 +1,294 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A program compiled by the {@link VmCompiler} to a register-based
+ * instruction set, and the virtual machine running it.
+ *
+ * The code of every method is in a single {@code int[]}, where each
+ * instruction is an opcode followed by its operands. Operands are registers
+ * of the current method's frame, or indices into the tables of constants,
+ * globals, names, methods and host functions. A method's parameters are
+ * passed in its first registers, and the arguments of a call are in
+ * consecutive registers of the caller.
+ *
+ * Values are the same {@link Environment.PlcObject}s as the
+ * {@link Interpreter}'s, and operations have the same semantics.
+ */
+public final class Vm {
+
+    /** {@code LOAD_CONST r, k}: {@code r = constants[k]}. */
+    static final int LOAD_CONST = 0;
+    /** {@code MOVE r, s}: {@code r = s}. */
+    static final int MOVE = 1;
+    /** {@code GET_GLOBAL r, g}: {@code r = globals[g]}. */
+    static final int GET_GLOBAL = 2;
+    /** {@code SET_GLOBAL g, r}: {@code globals[g] = r}. */
+    static final int SET_GLOBAL = 3;
+    /** {@code GET_FIELD r, o, n}: {@code r = o.names[n]}. */
+    static final int GET_FIELD = 4;
+    /** {@code SET_FIELD o, n, r}: {@code o.names[n] = r}. */
+    static final int SET_FIELD = 5;
+    /** {@code BINARY r, op, a, b}: {@code r = a op b}, for a {@link BinaryOperation}. */
+    static final int BINARY = 6;
+    /** {@code BINARY_DYNAMIC r, n, a, b}: {@code r = a op b}, selecting the operation from the values. */
+    static final int BINARY_DYNAMIC = 7;
+    /** {@code JUMP t}: continues at {@code t}. */
+    static final int JUMP = 8;
+    /** {@code JUMP_IF_FALSE r, t}: continues at {@code t} if {@code r} is {@code FALSE}. */
+    static final int JUMP_IF_FALSE = 9;
+    /** {@code JUMP_IF_TRUE r, t}: continues at {@code t} if {@code r} is {@code TRUE}. */
+    static final int JUMP_IF_TRUE = 10;
+    /** {@code CALL r, m, a, c}: {@code r = methods[m](a, ..., a + c - 1)}. */
+    static final int CALL = 11;
+    /** {@code CALL_HOST r, f, a, c}: {@code r = functions[f](a, ..., a + c - 1)}. */
+    static final int CALL_HOST = 12;
+    /** {@code CALL_METHOD r, o, n, a, c}: {@code r = o.names[n](a, ..., a + c - 1)}. */
+    static final int CALL_METHOD = 13;
+    /** {@code RETURN r}: returns {@code r}. */
+    static final int RETURN = 14;
+    /** {@code RETURN_NIL}: returns {@code NIL}. */
+    static final int RETURN_NIL = 15;
+    /** {@code ITERATOR r, s}: {@code r} is an iterator over the iterable {@code s}. */
+    static final int ITERATOR = 16;
+    /** {@code NEXT r, i, t}: {@code r} is the next value of {@code i}, or continues at {@code t} when there is none. */
+    static final int NEXT = 17;
+
+    private static final String[] OPCODES = {"LOAD_CONST", "MOVE", "GET_GLOBAL", "SET_GLOBAL", "GET_FIELD", "SET_FIELD",
+            "BINARY", "BINARY_DYNAMIC", "JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE", "CALL", "CALL_HOST", "CALL_METHOD",
+            "RETURN", "RETURN_NIL", "ITERATOR", "NEXT"};
+
+    /**
+     * The operands of each opcode: a register (r), constant (k), global (g),
+     * name (n), operation (o), method (m), host function (f), jump target (t)
+     * or count (c).
+     */
+    private static final String[] OPERANDS = {"rk", "rr", "rg", "gr", "rrn", "rnr", "rorr", "rnrr", "t", "rt", "rt",
+            "rmrc", "rfrc", "rrnrc", "r", "", "rr", "rrt"};
+
+    private static final BinaryOperation[] OPERATIONS = BinaryOperation.values();
+
+    private final Scope scope;
+    private final int[] code;
+    private final Environment.PlcObject[] constants;
+    private final Environment.Variable[] globals;
+    private final String[] names;
+    private final Method[] methods;
+    private final Host[] functions;
+    private final Method initializer;
+
+    Vm(Scope scope, int[] code, Environment.PlcObject[] constants, Environment.Variable[] globals, String[] names, Method[] methods, Host[] functions, Method initializer) {
+        this.scope = scope;
+        this.code = code;
+        this.constants = constants;
+        this.globals = globals;
+        this.names = names;
+        this.methods = methods;
+        this.functions = functions;
+        this.initializer = initializer;
+    }
+
+    /**
+     * Runs the program by initializing its fields and invoking {@code main}.
+     */
+    public Environment.PlcObject run() {
+        execute(initializer, new Environment.PlcObject[initializer.registers]);
+        return scope.lookupFunction("main", 0).invoke(List.of());
+    }
+
+    Environment.PlcObject invoke(int method, List<Environment.PlcObject> arguments) {
+        Method target = methods[method];
+        Environment.PlcObject[] registers = new Environment.PlcObject[target.registers];
+        for (int i = 0; i < arguments.size(); i++) {
+            registers[i] = arguments.get(i);
+        }
+        return execute(target, registers);
+    }
+
+    private Environment.PlcObject execute(Method method, Environment.PlcObject[] registers) {
+        int[] code = this.code;
+        int pc = method.entry;
+        while (true) {
+            switch (code[pc]) {
+                case LOAD_CONST:
+                    registers[code[pc + 1]] = constants[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case MOVE:
+                    registers[code[pc + 1]] = registers[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case GET_GLOBAL:
+                    registers[code[pc + 1]] = globals[code[pc + 2]].getValue();
+                    pc += 3;
+                    break;
+                case SET_GLOBAL:
+                    globals[code[pc + 1]].setValue(registers[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case GET_FIELD:
+                    registers[code[pc + 1]] = registers[code[pc + 2]].getField(names[code[pc + 3]]).getValue();
+                    pc += 4;
+                    break;
+                case SET_FIELD:
+                    registers[code[pc + 1]].setField(names[code[pc + 2]], registers[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case BINARY:
+                    registers[code[pc + 1]] = OPERATIONS[code[pc + 2]].evaluate(registers[code[pc + 3]], registers[code[pc + 4]]);
+                    pc += 5;
+                    break;
+                case BINARY_DYNAMIC:
+                    registers[code[pc + 1]] = BinaryOperation.evaluate(names[code[pc + 2]], registers[code[pc + 3]], registers[code[pc + 4]]);
+                    pc += 5;
+                    break;
+                case JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case JUMP_IF_FALSE:
+                    pc = requireBoolean(registers[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+                    break;
+                case JUMP_IF_TRUE:
+                    pc = requireBoolean(registers[code[pc + 1]]) ? code[pc + 2] : pc + 3;
+                    break;
+                case CALL: {
+                    Method target = methods[code[pc + 2]];
+                    Environment.PlcObject[] frame = new Environment.PlcObject[target.registers];
+                    System.arraycopy(registers, code[pc + 3], frame, 0, code[pc + 4]);
+                    registers[code[pc + 1]] = execute(target, frame);
+                    pc += 5;
+                    break;
+                }
+                case CALL_HOST: {
+                    Host host = functions[code[pc + 2]];
+                    if (host.function == null) {
+                        host.function = scope.lookupFunction(host.name, host.arity);
+                    }
+                    registers[code[pc + 1]] = host.function.invoke(arguments(registers, code[pc + 3], code[pc + 4]));
+                    pc += 5;
+                    break;
+                }
+                case CALL_METHOD:
+                    registers[code[pc + 1]] = registers[code[pc + 2]].callMethod(names[code[pc + 3]], arguments(registers, code[pc + 4], code[pc + 5]));
+                    pc += 6;
+                    break;
+                case RETURN:
+                    return registers[code[pc + 1]];
+                case RETURN_NIL:
+                    return Environment.NIL;
+                case ITERATOR: {
+                    Object iterable = registers[code[pc + 2]].getValue();
+                    if (!(iterable instanceof Iterable)) {
+                        throw new RuntimeException("Expected type " + Iterable.class.getName() + ", received " + iterable.getClass().getName() + ".");
+                    }
+                    registers[code[pc + 1]] = Environment.create(((Iterable<?>) iterable).iterator());
+                    pc += 3;
+                    break;
+                }
+                case NEXT: {
+                    Iterator<?> iterator = (Iterator<?>) registers[code[pc + 2]].getValue();
+                    if (iterator.hasNext()) {
+                        registers[code[pc + 1]] = (Environment.PlcObject) iterator.next();
+                        pc += 4;
+                    } else {
+                        pc = code[pc + 3];
+                    }
+                    break;
+                }
+                default:
+                    throw new AssertionError("Invalid opcode " + code[pc] + " at " + pc + ".");
+            }
+        }
+    }
+
+    private static List<Environment.PlcObject> arguments(Environment.PlcObject[] registers, int first, int count) {
+        return Arrays.asList(Arrays.copyOfRange(registers, first, first + count));
+    }
+
+    private static boolean requireBoolean(Environment.PlcObject object) {
+        if (object.getValue() instanceof Boolean) {
+            return (Boolean) object.getValue();
+        }
+        throw new RuntimeException("Expected type " + Boolean.class.getName() + ", received " + object.getValue().getClass().getName() + ".");
+    }
+
+    /**
+     * Returns a listing of the code of each method, such as:
+     *
+     * <pre>
+     * DEF f/1 (registers: 3)
+     *     0: LOAD_CONST r1, 2
+     *     3: BINARY r2, INTEGER_MULTIPLY, r0, r1
+     *     8: RETURN r2
+     * </pre>
+     */
+    public String disassemble() {
+        StringBuilder builder = new StringBuilder();
+        List<Method> all = new ArrayList<>(Arrays.asList(methods));
+        all.add(0, initializer);
+        for (Method method : all) {
+            builder.append("DEF ").append(method.name).append("/").append(method.arity).append(" (registers: ").append(method.registers).append(")\n");
+            for (int pc = method.entry; pc < method.end; ) {
+                builder.append(String.format("%5d: ", pc)).append(OPCODES[code[pc]]);
+                String operands = OPERANDS[code[pc]];
+                for (int i = 0; i < operands.length(); i++) {
+                    int operand = code[pc + 1 + i];
+                    builder.append(i == 0 ? " " : ", ");
+                    switch (operands.charAt(i)) {
+                        case 'r': builder.append("r").append(operand); break;
+                        case 'k': builder.append(constants[operand].getValue()); break;
+                        case 'g': builder.append(globals[operand].getName()); break;
+                        case 'n': builder.append(names[operand]); break;
+                        case 'o': builder.append(OPERATIONS[operand]); break;
+                        case 'm': builder.append(methods[operand].name); break;
+                        case 'f': builder.append(functions[operand].name); break;
+                        default: builder.append(operand); break;
+                    }
+                }
+                builder.append("\n");
+                pc += 1 + operands.length();
+            }
+        }
+        return builder.toString();
+    }
+
+    static final class Method {
+
+        private final String name;
+        private final int arity;
+        private final int entry;
+        private final int end;
+        private final int registers;
+
+        Method(String name, int arity, int entry, int end, int registers) {
+            this.name = name;
+            this.arity = arity;
+            this.entry = entry;
+            this.end = end;
+            this.registers = registers;
+        }
+
+    }
+
+    /**
+     * A function defined outside the program, looked up on its first call as
+     * by the {@link Interpreter}.
+     */
+    static final class Host {
+
+        private final String name;
+        private final int arity;
+        private Environment.Function function;
+
+        Host(String name, int arity) {
+            this.name = name;
+            this.arity = arity;
+        }
+
+    }
+
+}
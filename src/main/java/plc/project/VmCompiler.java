@@ -0,0 +1,359 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles an analyzed {@link Ast.Source} to a {@link Vm}.
+ *
+ * Each local variable is given a register of its method's frame for the
+ * block declaring it, and sibling blocks reuse the same registers. The
+ * values of expressions are computed into temporary registers above the
+ * locals, which are released at the end of each statement. An access to a
+ * local does not copy it, as instructions read their operands directly from
+ * the local's register.
+ */
+public final class VmCompiler {
+
+    private final Scope scope;
+
+    private int[] code = new int[256];
+    private int size = 0;
+    private final List<Environment.PlcObject> constants = new ArrayList<>();
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    private final List<Environment.Variable> globals = new ArrayList<>();
+    private final Map<Environment.Variable, Integer> globalIndices = new IdentityHashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIndices = new HashMap<>();
+    private final Map<String, Integer> methodIndices = new HashMap<>();
+    private final List<Vm.Host> functions = new ArrayList<>();
+    private final Map<String, Integer> functionIndices = new HashMap<>();
+
+    private final List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int next = 0;
+    private int registers = 0;
+
+    public VmCompiler(Scope parent) {
+        scope = new Scope(parent);
+        scope.defineFunction("print", 1, args -> {
+            System.out.println(args.get(0).getValue());
+            return Environment.NIL;
+        });
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Compiles a source, defining its fields and methods in the scope. The
+     * fields are initialized each time the program is run.
+     */
+    public Vm compile(Ast.Source ast) {
+        int entry = size;
+        begin(List.of());
+        for (Ast.Field field : ast.getFields()) {
+            int value = field.getValue().isPresent() ? compile(field.getValue().get()) : constant(null);
+            scope.defineVariable(field.getName(), Environment.NIL);
+            emit(Vm.SET_GLOBAL, global(scope.lookupVariable(field.getName())), value);
+            next = 0;
+        }
+        emit(Vm.RETURN_NIL);
+        Vm.Method initializer = new Vm.Method("$init", 0, entry, size, registers);
+
+        for (Ast.Method method : ast.getMethods()) {
+            methodIndices.put(method.getName() + "/" + method.getParameters().size(), methodIndices.size());
+        }
+        Vm.Method[] methods = new Vm.Method[ast.getMethods().size()];
+        for (int i = 0; i < methods.length; i++) {
+            Ast.Method method = ast.getMethods().get(i);
+            entry = size;
+            begin(method.getParameters());
+            compile(method.getStatements());
+            emit(Vm.RETURN_NIL);
+            methods[i] = new Vm.Method(method.getName(), method.getParameters().size(), entry, size, registers);
+        }
+
+        Vm vm = new Vm(scope, Arrays.copyOf(code, size), constants.toArray(new Environment.PlcObject[0]), globals.toArray(new Environment.Variable[0]),
+                names.toArray(new String[0]), methods, functions.toArray(new Vm.Host[0]), initializer);
+        for (int i = 0; i < methods.length; i++) {
+            int index = i;
+            Ast.Method method = ast.getMethods().get(i);
+            scope.defineFunction(method.getName(), method.getParameters().size(), args -> vm.invoke(index, args));
+        }
+        return vm;
+    }
+
+    private void begin(List<String> parameters) {
+        blocks.clear();
+        blocks.add(new HashMap<>());
+        next = 0;
+        for (String parameter : parameters) {
+            blocks.get(0).put(parameter, next++);
+        }
+        registers = next;
+    }
+
+    private void compile(List<Ast.Stmt> statements) {
+        for (Ast.Stmt statement : statements) {
+            int mark = next;
+            compile(statement);
+            if (!(statement instanceof Ast.Stmt.Declaration)) {
+                next = mark;
+            }
+        }
+    }
+
+    private void compileBlock(List<Ast.Stmt> statements) {
+        int mark = next;
+        blocks.add(new HashMap<>());
+        compile(statements);
+        blocks.remove(blocks.size() - 1);
+        next = mark;
+    }
+
+    private void compile(Ast.Stmt ast) {
+        if (ast instanceof Ast.Stmt.Expression) {
+            compile(((Ast.Stmt.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Stmt.Declaration) {
+            Ast.Stmt.Declaration declaration = (Ast.Stmt.Declaration) ast;
+            int local = allocate();
+            if (declaration.getValue().isPresent()) {
+                compileInto(declaration.getValue().get(), local);
+            } else {
+                emit(Vm.LOAD_CONST, local, constant(null));
+            }
+            next = local + 1;
+            blocks.get(blocks.size() - 1).put(declaration.getName(), local);
+        } else if (ast instanceof Ast.Stmt.Assignment) {
+            compileAssignment((Ast.Stmt.Assignment) ast);
+        } else if (ast instanceof Ast.Stmt.If) {
+            Ast.Stmt.If statement = (Ast.Stmt.If) ast;
+            int otherwise = emitJump(Vm.JUMP_IF_FALSE, compile(statement.getCondition()));
+            compileBlock(statement.getThenStatements());
+            if (statement.getElseStatements().isEmpty()) {
+                patch(otherwise);
+            } else {
+                int end = emitJump(Vm.JUMP);
+                patch(otherwise);
+                compileBlock(statement.getElseStatements());
+                patch(end);
+            }
+        } else if (ast instanceof Ast.Stmt.For) {
+            Ast.Stmt.For statement = (Ast.Stmt.For) ast;
+            int iterator = allocate();
+            emit(Vm.ITERATOR, iterator, compile(statement.getValue()));
+            next = iterator + 1;
+            int variable = allocate();
+            int loop = size;
+            int end = emitJump(Vm.NEXT, variable, iterator);
+            blocks.add(new HashMap<>());
+            blocks.get(blocks.size() - 1).put(statement.getName(), variable);
+            compileBlock(statement.getStatements());
+            blocks.remove(blocks.size() - 1);
+            emit(Vm.JUMP, loop);
+            patch(end);
+        } else if (ast instanceof Ast.Stmt.While) {
+            Ast.Stmt.While statement = (Ast.Stmt.While) ast;
+            int loop = size;
+            int end = emitJump(Vm.JUMP_IF_FALSE, compile(statement.getCondition()));
+            compileBlock(statement.getStatements());
+            emit(Vm.JUMP, loop);
+            patch(end);
+        } else if (ast instanceof Ast.Stmt.Return) {
+            emit(Vm.RETURN, compile(((Ast.Stmt.Return) ast).getValue()));
+        } else {
+            throw new AssertionError(ast.getClass());
+        }
+    }
+
+    private void compileAssignment(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            throw new RuntimeException("Assignment RHS is not access variable");
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        if (access.getReceiver().isPresent()) {
+            int receiver = compile(access.getReceiver().get());
+            emit(Vm.SET_FIELD, receiver, name(access.getName()), compile(ast.getValue()));
+            return;
+        }
+        Integer local = lookup(access.getName());
+        if (local == null) {
+            emit(Vm.SET_GLOBAL, global(scope.lookupVariable(access.getName())), compile(ast.getValue()));
+        } else if (isShortCircuit(ast.getValue())) {
+            //Writes its left operand before reading its right operand, which may read the local
+            emit(Vm.MOVE, local, compile(ast.getValue()));
+        } else {
+            compileInto(ast.getValue(), local);
+        }
+    }
+
+    /**
+     * Compiles an expression, returning the register holding its value,
+     * which must not be written to.
+     */
+    private int compile(Ast.Expr ast) {
+        if (ast instanceof Ast.Expr.Group) {
+            return compile(((Ast.Expr.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expr.Access && !((Ast.Expr.Access) ast).getReceiver().isPresent()) {
+            Integer local = lookup(((Ast.Expr.Access) ast).getName());
+            if (local != null) {
+                return local;
+            }
+        }
+        int register = allocate();
+        compileInto(ast, register);
+        return register;
+    }
+
+    /**
+     * Compiles an expression, leaving its value in the given register.
+     */
+    private void compileInto(Ast.Expr ast, int target) {
+        if (ast instanceof Ast.Expr.Literal) {
+            emit(Vm.LOAD_CONST, target, constant(((Ast.Expr.Literal) ast).getLiteral()));
+        } else if (ast instanceof Ast.Expr.Group) {
+            compileInto(((Ast.Expr.Group) ast).getExpression(), target);
+        } else if (ast instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) ast;
+            if (isShortCircuit(binary)) {
+                compileInto(binary.getLeft(), target);
+                int end = emitJump(binary.getOperator().equals("AND") ? Vm.JUMP_IF_FALSE : Vm.JUMP_IF_TRUE, target);
+                compileInto(binary.getRight(), target);
+                patch(end);
+            } else {
+                int mark = next;
+                int left = compile(binary.getLeft());
+                int right = compile(binary.getRight());
+                if (binary.getOperation() != null) {
+                    emit(Vm.BINARY, target, binary.getOperation().ordinal(), left, right);
+                } else {
+                    emit(Vm.BINARY_DYNAMIC, target, name(binary.getOperator()), left, right);
+                }
+                next = Math.max(mark, target + 1);
+            }
+        } else if (ast instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) ast;
+            if (access.getReceiver().isPresent()) {
+                emit(Vm.GET_FIELD, target, compile(access.getReceiver().get()), name(access.getName()));
+                return;
+            }
+            Integer local = lookup(access.getName());
+            if (local != null) {
+                emit(Vm.MOVE, target, local);
+            } else {
+                emit(Vm.GET_GLOBAL, target, global(scope.lookupVariable(access.getName())));
+            }
+        } else if (ast instanceof Ast.Expr.Function) {
+            compileFunction((Ast.Expr.Function) ast, target);
+        } else {
+            throw new AssertionError(ast.getClass());
+        }
+    }
+
+    private void compileFunction(Ast.Expr.Function ast, int target) {
+        int mark = next;
+        int first = next;
+        next += ast.getArguments().size();
+        registers = Math.max(registers, next);
+        for (int i = 0; i < ast.getArguments().size(); i++) {
+            compileInto(ast.getArguments().get(i), first + i);
+            next = first + ast.getArguments().size();
+        }
+        int count = ast.getArguments().size();
+        String key = ast.getName() + "/" + count;
+        if (ast.getReceiver().isPresent()) {
+            emit(Vm.CALL_METHOD, target, compile(ast.getReceiver().get()), name(ast.getName()), first, count);
+        } else if (methodIndices.containsKey(key)) {
+            emit(Vm.CALL, target, methodIndices.get(key), first, count);
+        } else {
+            Integer index = functionIndices.get(key);
+            if (index == null) {
+                index = functions.size();
+                functions.add(new Vm.Host(ast.getName(), count));
+                functionIndices.put(key, index);
+            }
+            emit(Vm.CALL_HOST, target, index, first, count);
+        }
+        next = Math.max(mark, target + 1);
+    }
+
+    private static boolean isShortCircuit(Ast.Expr ast) {
+        while (ast instanceof Ast.Expr.Group) {
+            ast = ((Ast.Expr.Group) ast).getExpression();
+        }
+        return ast instanceof Ast.Expr.Binary && (((Ast.Expr.Binary) ast).getOperator().equals("AND") || ((Ast.Expr.Binary) ast).getOperator().equals("OR"));
+    }
+
+    private Integer lookup(String name) {
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer local = blocks.get(i).get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    private int allocate() {
+        registers = Math.max(registers, next + 1);
+        return next++;
+    }
+
+    private int constant(Object literal) {
+        Integer index = constantIndices.get(literal);
+        if (index == null) {
+            index = constants.size();
+            constants.add(literal == null ? Environment.NIL : Environment.create(literal));
+            constantIndices.put(literal, index);
+        }
+        return index;
+    }
+
+    private int global(Environment.Variable variable) {
+        Integer index = globalIndices.get(variable);
+        if (index == null) {
+            index = globals.size();
+            globals.add(variable);
+            globalIndices.put(variable, index);
+        }
+        return index;
+    }
+
+    private int name(String name) {
+        Integer index = nameIndices.get(name);
+        if (index == null) {
+            index = names.size();
+            names.add(name);
+            nameIndices.put(name, index);
+        }
+        return index;
+    }
+
+    private void emit(int... instruction) {
+        if (size + instruction.length > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + instruction.length));
+        }
+        System.arraycopy(instruction, 0, code, size, instruction.length);
+        size += instruction.length;
+    }
+
+    /**
+     * Emits a jump whose target is the last operand, returning the position
+     * of the target to be patched.
+     */
+    private int emitJump(int... instruction) {
+        int[] jump = Arrays.copyOf(instruction, instruction.length + 1);
+        emit(jump);
+        return size - 1;
+    }
+
+    private void patch(int position) {
+        code[position] = size;
+    }
+
+}
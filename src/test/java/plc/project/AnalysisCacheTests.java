@@ -0,0 +1,108 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class AnalysisCacheTests {
+
+    private static final String SOURCE = String.join("\n",
+            "LET limit: Integer = 10;",
+            "LET label: String = \"square\";",
+            "DEF square(x: Integer): Integer DO RETURN x * x; END",
+            "DEF scaled(x: Integer): Integer DO RETURN x * limit; END",
+            "DEF describe(): Any DO RETURN label; END",
+            "DEF main(): Integer DO print(square(2)); RETURN 0; END"
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEdit(String test, String edited, int analyzed) {
+        AnalysisCache cache = new AnalysisCache(new Scope(null));
+        cache.analyze(parse(SOURCE));
+        Assertions.assertEquals(6, cache.getAnalyzed());
+
+        Ast.Source source = cache.analyze(parse(edited));
+        Assertions.assertEquals(analyzed, cache.getAnalyzed());
+
+        //The result must match a full analysis of the edited source
+        Ast.Source expected = parse(edited);
+        new Analyzer(new Scope(null)).visit(expected);
+        Assertions.assertEquals(expected, source);
+    }
+
+    private static Stream<Arguments> testEdit() {
+        return Stream.of(
+                Arguments.of("Unchanged", SOURCE, 0),
+                Arguments.of("Method Body",
+                        SOURCE.replace("RETURN x * x;", "RETURN x * x * x;"),
+                        1
+                ),
+                Arguments.of("Field Value",
+                        SOURCE.replace("= 10;", "= 20;"),
+                        1
+                ),
+                Arguments.of("Field Type",
+                        SOURCE.replace("label: String", "label: Any"),
+                        2
+                ),
+                Arguments.of("Method Signature",
+                        SOURCE.replace("square(x: Integer): Integer", "square(x: Integer): Any"),
+                        2
+                ),
+                Arguments.of("Shadowed Global",
+                        SOURCE.replace("RETURN x * limit;", "LET limit = 5; RETURN x * limit;"),
+                        1
+                )
+        );
+    }
+
+    @Test
+    void testReusedInstance() {
+        AnalysisCache cache = new AnalysisCache(new Scope(null));
+        Ast.Source first = cache.analyze(parse(SOURCE));
+        Ast.Source second = cache.analyze(parse(SOURCE.replace("RETURN x * x;", "RETURN x + x;")));
+        Assertions.assertNotSame(first.getMethods().get(0), second.getMethods().get(0));
+        Assertions.assertSame(first.getMethods().get(0).getFunction(), second.getMethods().get(0).getFunction());
+        Assertions.assertSame(first.getMethods().get(3), second.getMethods().get(3));
+    }
+
+    @Test
+    void testMovedCallee() {
+        //A call to a method that is now defined later must fail, as it does in the Analyzer
+        AnalysisCache cache = new AnalysisCache(new Scope(null));
+        cache.analyze(parse(SOURCE));
+        String edited = String.join("\n",
+                "LET limit: Integer = 10;",
+                "LET label: String = \"square\";",
+                "DEF scaled(x: Integer): Integer DO RETURN x * limit; END",
+                "DEF describe(): Any DO RETURN label; END",
+                "DEF main(): Integer DO print(square(2)); RETURN 0; END",
+                "DEF square(x: Integer): Integer DO RETURN x * x; END"
+        );
+        Assertions.assertThrows(RuntimeException.class, () -> cache.analyze(parse(edited)));
+        cache.analyze(parse(SOURCE));
+        Assertions.assertEquals(0, cache.getAnalyzed());
+    }
+
+    @Test
+    void testRecursiveMethod() {
+        String input = "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\n" +
+                "DEF main(): Integer DO print(fib(10)); RETURN 0; END";
+        AnalysisCache cache = new AnalysisCache(new Scope(null));
+        Ast.Source first = cache.analyze(parse(input));
+        Assertions.assertEquals(2, cache.getAnalyzed());
+        Ast.Source second = cache.analyze(parse(input));
+        Assertions.assertEquals(0, cache.getAnalyzed());
+        Assertions.assertSame(first.getMethods().get(0), second.getMethods().get(0));
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
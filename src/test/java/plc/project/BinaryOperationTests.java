@@ -0,0 +1,95 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class BinaryOperationTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSelect(String test, String operator, Environment.Type left, Environment.Type right, BinaryOperation expected) {
+        Assertions.assertEquals(expected, BinaryOperation.of(operator, left, right));
+    }
+
+    private static Stream<Arguments> testSelect() {
+        return Stream.of(
+                Arguments.of("Integer Addition", "+", Environment.Type.INTEGER, Environment.Type.INTEGER, BinaryOperation.INTEGER_ADD),
+                Arguments.of("Decimal Division", "/", Environment.Type.DECIMAL, Environment.Type.DECIMAL, BinaryOperation.DECIMAL_DIVIDE),
+                Arguments.of("String Concatenation", "+", Environment.Type.STRING, Environment.Type.STRING, BinaryOperation.STRING_CONCAT),
+                Arguments.of("Mixed Concatenation", "+", Environment.Type.STRING, Environment.Type.INTEGER, null),
+                Arguments.of("Comparison", "<=", Environment.Type.CHARACTER, Environment.Type.CHARACTER, BinaryOperation.LESS_EQUAL),
+                Arguments.of("Logical", "OR", Environment.Type.BOOLEAN, Environment.Type.BOOLEAN, BinaryOperation.OR)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInterpret(String test, String input, Object expected) {
+        Ast.Expr expression = new Parser(new Lexer(input).lex()).parseExpression();
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(expression).getValue());
+        new Analyzer(new Scope(null)).visit(expression);
+        Assertions.assertNotNull(((Ast.Expr.Binary) expression).getOperation());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(expression).getValue());
+    }
+
+    private static Stream<Arguments> testInterpret() {
+        return Stream.of(
+                Arguments.of("Integer Arithmetic", "1 + 2 * 3 - 4 / 2", BigInteger.valueOf(5)),
+                Arguments.of("Integer Overflow", "2147483647 * 2147483647 * 2147483647 / 2147483647 / 2147483647", BigInteger.valueOf(Integer.MAX_VALUE)),
+                Arguments.of("Decimal Arithmetic", "1.5 * 2.0 - 0.5", new BigDecimal("2.50")),
+                Arguments.of("Decimal Division", "1.0 / 3.0", new BigDecimal("0.3")),
+                Arguments.of("Concatenation", "\"a\" + \"b\"", "ab"),
+                Arguments.of("Comparison", "'a' < 'b'", true),
+                Arguments.of("Equality", "1 == 2", false),
+                Arguments.of("Short Circuit", "FALSE AND TRUE", false)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEvaluate(String test, BinaryOperation operation, BigInteger left, BigInteger right, Object expected, boolean isLong) {
+        Environment.PlcObject result = operation.evaluate(Environment.create(left), Environment.create(right));
+        Assertions.assertEquals(expected, result.getValue());
+        Assertions.assertEquals(isLong, result.isLong());
+    }
+
+    private static Stream<Arguments> testEvaluate() {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        return Stream.of(
+                Arguments.of("Add", BinaryOperation.INTEGER_ADD, BigInteger.TWO, BigInteger.TEN, BigInteger.valueOf(12), true),
+                Arguments.of("Add Overflow", BinaryOperation.INTEGER_ADD, max, BigInteger.ONE, max.add(BigInteger.ONE), false),
+                Arguments.of("Subtract Overflow", BinaryOperation.INTEGER_SUBTRACT, min, BigInteger.ONE, min.subtract(BigInteger.ONE), false),
+                Arguments.of("Multiply Negative", BinaryOperation.INTEGER_MULTIPLY, BigInteger.valueOf(-3), BigInteger.valueOf(7), BigInteger.valueOf(-21), true),
+                Arguments.of("Multiply Overflow", BinaryOperation.INTEGER_MULTIPLY, max, BigInteger.TWO, max.multiply(BigInteger.TWO), false),
+                Arguments.of("Divide Truncates", BinaryOperation.INTEGER_DIVIDE, BigInteger.valueOf(-7), BigInteger.TWO, BigInteger.valueOf(-3), true),
+                Arguments.of("Divide Overflow", BinaryOperation.INTEGER_DIVIDE, min, BigInteger.ONE.negate(), min.negate(), false),
+                Arguments.of("Big Operand", BinaryOperation.INTEGER_SUBTRACT, max.add(BigInteger.ONE), BigInteger.ONE, max, true),
+                Arguments.of("Compare", BinaryOperation.LESS, min, max, true, false),
+                Arguments.of("Compare Big", BinaryOperation.GREATER, max.shiftLeft(1), max, true, false),
+                Arguments.of("Equal", BinaryOperation.EQUAL, max, max, true, false)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testDivideByZero(String test, String input) {
+        Ast.Expr expression = new Parser(new Lexer(input).lex()).parseExpression();
+        new Analyzer(new Scope(null)).visit(expression);
+        Assertions.assertThrows(RuntimeException.class, () -> new Interpreter(new Scope(null)).visit(expression));
+    }
+
+    private static Stream<Arguments> testDivideByZero() {
+        return Stream.of(
+                Arguments.of("Integer", "1 / 0"),
+                Arguments.of("Decimal", "1.0 / 0.0")
+        );
+    }
+
+}
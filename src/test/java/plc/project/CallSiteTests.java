@@ -0,0 +1,86 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class CallSiteTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInterpret(String test, String input, boolean resolve, Object expected, int misses) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        if (resolve) {
+            new Resolver().visit(source);
+        }
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+        Ast.Stmt.Assignment call = (Ast.Stmt.Assignment) ((Ast.Stmt.While) source.getMethods().get(1).getStatements().get(2)).getStatements().get(0);
+        CallSite site = ((Ast.Expr.Function) call.getValue()).getCallSite();
+        Assertions.assertEquals(misses, site.getMisses());
+        Assertions.assertEquals(100 - misses, site.getHits());
+    }
+
+    private static Stream<Arguments> testInterpret() {
+        String input = "DEF next(n: Integer): Integer DO RETURN n + 2; END\n" +
+                "DEF main(): Integer DO LET i = 0; LET x = 0; WHILE i < 100 DO x = next(x); i = i + 1; END RETURN x; END";
+        return Stream.of(
+                Arguments.of("Resolved", input, true, BigInteger.valueOf(200), 1),
+                Arguments.of("Scopes", input, false, BigInteger.valueOf(200), 1)
+        );
+    }
+
+    @Test
+    void testInvocations() {
+        String input = "DEF inc(n: Integer): Integer DO RETURN n + 1; END\n" +
+                "DEF twice(n: Integer): Integer DO LET m = inc(n); RETURN inc(m); END\n" +
+                "DEF main(): Integer DO LET i = 0; LET x = 0; WHILE i < 50 DO x = twice(x); i = i + 1; END RETURN x; END";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Assertions.assertEquals(BigInteger.valueOf(100), new Interpreter(new Scope(null)).visit(source).getValue());
+        Ast.Stmt.Declaration call = (Ast.Stmt.Declaration) source.getMethods().get(1).getStatements().get(0);
+        CallSite site = ((Ast.Expr.Function) call.getValue().get()).getCallSite();
+        Assertions.assertEquals(1, site.getMisses(), "each invocation calls from a new scope");
+        Assertions.assertEquals(49, site.getHits());
+    }
+
+    @Test
+    void testInterpreters() {
+        String input = "DEF main(): Integer DO RETURN 1; END";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 0, args -> Environment.create(BigInteger.ONE));
+        CallSite site = new CallSite();
+        Scope caller = new Scope(new Interpreter(parent).getScope());
+        site.lookup(caller, "f", 0);
+        new Interpreter(parent).visit(source); //defines functions in scopes of its own
+        site.lookup(caller, "f", 0);
+        Assertions.assertEquals(1, site.getMisses());
+        Assertions.assertEquals(1, site.getHits());
+    }
+
+    @Test
+    void testShadowed() {
+        Environment.PlcObject parentValue = Environment.create("parent");
+        Environment.PlcObject childValue = Environment.create("child");
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 0, args -> parentValue);
+        Scope child = new Scope(parent);
+        CallSite site = new CallSite();
+        Assertions.assertEquals("parent", site.lookup(child, "f", 0).invoke(List.of()).getValue());
+        Assertions.assertEquals("parent", site.lookup(child, "f", 0).invoke(List.of()).getValue());
+        Assertions.assertEquals(1, site.getHits());
+        child.defineFunction("f", 0, args -> childValue);
+        Assertions.assertEquals("child", site.lookup(child, "f", 0).invoke(List.of()).getValue());
+        Assertions.assertEquals("parent", site.lookup(parent, "f", 0).invoke(List.of()).getValue());
+        Assertions.assertEquals(3, site.getMisses());
+    }
+
+}
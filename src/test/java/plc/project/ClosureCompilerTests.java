@@ -0,0 +1,92 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class ClosureCompilerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testCompile(String test, String input, String expected) {
+        Assertions.assertEquals(expected, Sources.run(input, source -> new Interpreter(new Scope(null)).visit(source)));
+        Assertions.assertEquals(expected, Sources.run(input, source -> new ClosureCompiler(new Scope(null)).compile(source).run()));
+    }
+
+    private static Stream<Arguments> testCompile() {
+        return Stream.of(
+                Arguments.of("Arithmetic",
+                        "DEF main(): Integer DO LET x = 7; LET d = 1.5; print(d * 3.0); print(\"a\" + \"b\"); RETURN (x + 3) * 2 - x / 2; END",
+                        "4.50\nab\n17"
+                ),
+                Arguments.of("Branches",
+                        "DEF sign(n: Integer): Integer DO IF n < 0 DO RETURN -1; ELSE IF n > 0 DO RETURN 1; END END RETURN 0; END\n" +
+                        "DEF main(): Integer DO print(sign(-5)); print(sign(0)); RETURN sign(7); END",
+                        "-1\n0\n1"
+                ),
+                Arguments.of("Loops",
+                        "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 5 DO LET j = i; WHILE j < 5 DO sum = sum + i * j; j = j + 1; END i = i + 1; END RETURN sum; END",
+                        "65"
+                ),
+                Arguments.of("Return From Loop",
+                        "DEF find(n: Integer): Integer DO LET i = 0; WHILE TRUE DO IF i * i >= n DO RETURN i; END i = i + 1; END END\n" +
+                        "DEF main(): Integer DO RETURN find(50); END",
+                        "8"
+                ),
+                Arguments.of("Short Circuit",
+                        "DEF main(): Integer DO LET d = 0; IF d != 0 AND 10 / d > 1 DO RETURN 1; END IF d == 0 OR 10 / d > 1 DO RETURN 2; END RETURN 3; END",
+                        "2"
+                ),
+                Arguments.of("Recursion And Fields",
+                        "LET calls: Integer = 0;\n" +
+                        "DEF fib(n: Integer): Integer DO calls = calls + 1; IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\n" +
+                        "DEF main(): Integer DO print(fib(15)); RETURN calls; END",
+                        "610\n1973"
+                ),
+                Arguments.of("Sibling Blocks",
+                        "DEF main(): Integer DO LET n = 0; IF TRUE DO LET a = 1; n = n + a; END IF TRUE DO LET b = 2; n = n + b; END RETURN n; END",
+                        "3"
+                ),
+                Arguments.of("No Return",
+                        "DEF f(): Nil DO print(1); END\nDEF main(): Integer DO f(); RETURN 0; END",
+                        "1\n0"
+                ),
+                Arguments.of("Mixed Concatenation",
+                        "DEF main(): Integer DO LET n = 1; print(\"a\" + n); print(2.5 + \"b\"); print(\"c\" + TRUE); RETURN 0; END",
+                        "a1\n2.5b\nctrue\n0"
+                )
+        );
+    }
+
+    @Test
+    void testFor() {
+        String input = "DEF main(): Integer DO LET sum = 0; FOR i IN range(1, 5) DO sum = sum + i; END RETURN sum; END";
+        Scope scope = new Scope(null);
+        scope.defineFunction("range", 2, args -> {
+            List<Environment.PlcObject> values = new ArrayList<>();
+            for (int i = ((BigInteger) args.get(0).getValue()).intValue(); i < ((BigInteger) args.get(1).getValue()).intValue(); i++) {
+                values.add(Environment.create(BigInteger.valueOf(i)));
+            }
+            return Environment.create(values);
+        });
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Scope types = new Scope(null);
+        types.defineFunction("range", "range", List.of(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(types).visit(source);
+        Assertions.assertEquals(BigInteger.TEN, new ClosureCompiler(scope).compile(source).run().getValue());
+    }
+
+    @Test
+    void testDivideByZero() {
+        Ast.Source source = Sources.analyze("DEF main(): Integer DO LET d = 0; RETURN 1 / d; END");
+        Assertions.assertThrows(RuntimeException.class, () -> new ClosureCompiler(new Scope(null)).compile(source).run());
+    }
+
+}
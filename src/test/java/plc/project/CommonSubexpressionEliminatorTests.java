@@ -0,0 +1,98 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class CommonSubexpressionEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEliminate(String test, String input, String expected, int saved) {
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        Ast.Source source = eliminator.eliminate(Sources.analyze(input));
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(source.getMethods().get(source.getMethods().size() - 1));
+        Assertions.assertEquals(expected, writer.toString().replaceAll("\\s+", " ").trim());
+        Assertions.assertEquals(saved, eliminator.getSaved());
+    }
+
+    private static Stream<Arguments> testEliminate() {
+        return Stream.of(
+                Arguments.of("Repeated",
+                        "DEF main(): Integer DO LET x = 1; LET y = 2; print(x * y + 1); print(x * y + 1); RETURN x * y + 1; END",
+                        "int main() { int x = 1; int y = 2; int c$1 = x * y + 1; System.out.println(c$1); System.out.println(c$1); return c$1; }",
+                        2
+                ),
+                Arguments.of("Subexpression",
+                        "DEF main(): Integer DO LET x = 1; LET y = 2; print(x * y + 1); RETURN (x * y) - 1; END",
+                        "int main() { int x = 1; int y = 2; int c$1 = x * y; System.out.println(c$1 + 1); return c$1 - 1; }",
+                        1
+                ),
+                Arguments.of("Nested Reuse",
+                        "DEF main(): Integer DO LET x = 1; LET y = 2; print(x * y + 1); print(x * y + 1); RETURN x * y; END",
+                        "int main() { int x = 1; int y = 2; int c$1 = x * y; int c$2 = c$1 + 1; System.out.println(c$2); System.out.println(c$2); return c$1; }",
+                        2
+                ),
+                Arguments.of("Assigned",
+                        "DEF main(): Integer DO LET x = 1; print(x + 1); x = 2; RETURN x + 1; END",
+                        "int main() { int x = 1; System.out.println(x + 1); x = 2; return x + 1; }",
+                        0
+                ),
+                Arguments.of("Assigned In Branch",
+                        "DEF main(): Integer DO LET x = 1; print(x + 1); IF x > 0 DO x = 2; END RETURN x + 1; END",
+                        "int main() { int x = 1; System.out.println(x + 1); if (x > 0) { x = 2; } return x + 1; }",
+                        0
+                ),
+                Arguments.of("Field After Call",
+                        "LET n: Integer = 1;\nDEF f(): Integer DO n = 2; RETURN n; END\nDEF main(): Integer DO print(n + 1); f(); RETURN n + 1; END",
+                        "int main() { System.out.println(n + 1); f(); return n + 1; }",
+                        0
+                ),
+                Arguments.of("Local After Call",
+                        "DEF f(): Integer DO RETURN 1; END\nDEF main(): Integer DO LET x = 1; print(x + 1); f(); RETURN x + 1; END",
+                        "int main() { int x = 1; int c$1 = x + 1; System.out.println(c$1); f(); return c$1; }",
+                        1
+                ),
+                Arguments.of("Short Circuit",
+                        "DEF main(): Integer DO LET x = 1; IF x > 1 AND x + 1 > 2 DO print(x + 1); END RETURN x + 1; END",
+                        "int main() { int x = 1; if (x > 1 && x + 1 > 2) { System.out.println(x + 1); } return x + 1; }",
+                        0
+                ),
+                Arguments.of("Failing After Effect",
+                        "DEF f(): Integer DO print(1); RETURN 1; END\nDEF main(): Integer DO LET d = 0; print(f() + 1 / d); RETURN 1 / d; END",
+                        "int main() { int d = 0; System.out.println(f() + 1 / d); return 1 / d; }",
+                        0
+                )
+        );
+    }
+
+    @Test
+    void testInterpret() {
+        String input = String.join("\n",
+                "LET total: Integer = 0;",
+                "DEF add(n: Integer): Integer DO total = total + n; RETURN total; END",
+                "DEF main(): Integer DO",
+                "    LET a = 3;",
+                "    LET b = 4;",
+                "    add(a * b + total);",
+                "    add(a * b + total);",
+                "    LET c = a * b;",
+                "    a = a + 1;",
+                "    RETURN c + a * b + total;",
+                "END"
+        );
+        CommonSubexpressionEliminator eliminator = new CommonSubexpressionEliminator();
+        Ast.Source source = eliminator.eliminate(Sources.analyze(input));
+        Assertions.assertEquals(2, eliminator.getSaved());
+        Assertions.assertEquals(BigInteger.valueOf(12 + 16 + 36), new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+}
@@ -0,0 +1,75 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testExpression(String test, String input, Object expected) {
+        Ast.Source source = fold("DEF main(): Integer DO LET value = " + input + "; RETURN 0; END");
+        Ast.Expr value = ((Ast.Stmt.Declaration) source.getMethods().get(0).getStatements().get(0)).getValue().get();
+        if (expected != null) {
+            Assertions.assertTrue(value instanceof Ast.Expr.Literal, value.toString());
+            Assertions.assertEquals(expected, ((Ast.Expr.Literal) value).getLiteral());
+        } else {
+            Assertions.assertFalse(value instanceof Ast.Expr.Literal, value.toString());
+        }
+    }
+
+    private static Stream<Arguments> testExpression() {
+        return Stream.of(
+                Arguments.of("Multiplication", "60 * 60 * 24", BigInteger.valueOf(86400)),
+                Arguments.of("Concatenation", "\"prefix\" + \"suffix\"", "prefixsuffix"),
+                Arguments.of("Group", "(1 + 2) * 3", BigInteger.valueOf(9)),
+                Arguments.of("Decimal Division", "1.2 / 3.4", new BigDecimal("0.4")),
+                Arguments.of("Comparison", "1 < 2", true),
+                Arguments.of("Short Circuit", "FALSE AND TRUE", false),
+                Arguments.of("Divide By Zero", "1 / 0", null),
+                Arguments.of("Integer Overflow", "2147483647 + 1", null)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testPropagation(String test, String input, boolean propagated) {
+        Ast.Source source = fold(input);
+        Ast.Stmt.If statement = (Ast.Stmt.If) source.getMethods().get(0).getStatements().get(0);
+        Assertions.assertEquals(propagated, statement.getCondition() instanceof Ast.Expr.Literal, statement.toString());
+    }
+
+    private static Stream<Arguments> testPropagation() {
+        return Stream.of(
+                Arguments.of("Never Assigned Field",
+                        "LET x: Integer = 5;\nDEF main(): Integer DO IF x < 10 DO print(x); END RETURN 0; END",
+                        true
+                ),
+                Arguments.of("Assigned Field",
+                        "LET x: Integer = 5;\nDEF main(): Integer DO IF x < 10 DO x = 20; END RETURN 0; END",
+                        false
+                ),
+                Arguments.of("Shadowed Field",
+                        "LET x: Integer = 5;\nDEF main(): Integer DO IF x < 10 DO print(x); END RETURN 0; END\nDEF other(x: Integer): Integer DO x = 1; RETURN x; END",
+                        true
+                ),
+                Arguments.of("Uninitialized Field",
+                        "LET x: Integer;\nDEF main(): Integer DO IF x < 10 DO print(x); END RETURN 0; END",
+                        false
+                )
+        );
+    }
+
+    private static Ast.Source fold(String input) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        return ConstantFolder.fold(source);
+    }
+
+}
@@ -0,0 +1,91 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testEliminate(String test, String input, String expected, int removed) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Source source = eliminator.eliminate(Sources.analyze(input));
+        Assertions.assertEquals(Fingerprint.of(Sources.analyze(expected)), Fingerprint.of(source));
+        Assertions.assertEquals(removed, eliminator.getRemoved());
+    }
+
+    private static Stream<Arguments> testEliminate() {
+        return Stream.of(
+                Arguments.of("After Return",
+                        "DEF main(): Integer DO RETURN 0; print(1); END",
+                        "DEF main(): Integer DO RETURN 0; END",
+                        3
+                ),
+                Arguments.of("After Returning Branches",
+                        "LET x: Integer = 0;\nDEF main(): Integer DO IF x < 1 DO RETURN 1; ELSE RETURN 2; END print(3); END",
+                        "LET x: Integer = 0;\nDEF main(): Integer DO IF x < 1 DO RETURN 1; ELSE RETURN 2; END END",
+                        3
+                ),
+                Arguments.of("If True",
+                        "DEF main(): Integer DO IF TRUE DO print(1); ELSE print(2); END RETURN 0; END",
+                        "DEF main(): Integer DO print(1); RETURN 0; END",
+                        5
+                ),
+                Arguments.of("If False Declaration",
+                        "DEF main(): Integer DO IF FALSE DO print(1); ELSE LET x = 1; print(x); END RETURN 0; END",
+                        "DEF main(): Integer DO IF TRUE DO LET x = 1; print(x); END RETURN 0; END",
+                        3
+                ),
+                Arguments.of("While False",
+                        "DEF main(): Integer DO WHILE FALSE DO print(1); END RETURN 0; END",
+                        "DEF main(): Integer DO RETURN 0; END",
+                        5
+                ),
+                Arguments.of("Unread Variables",
+                        "DEF main(): Integer DO LET x = 1; LET y = x + 1; y = 2; print(2); RETURN 0; END",
+                        "DEF main(): Integer DO print(2); RETURN 0; END",
+                        9
+                ),
+                Arguments.of("Side Effects",
+                        "DEF f(): Integer DO print(1); RETURN 1; END\nDEF main(): Integer DO LET x = f(); x = f(); RETURN 0; END",
+                        "DEF f(): Integer DO print(1); RETURN 1; END\nDEF main(): Integer DO f(); f(); RETURN 0; END",
+                        1
+                ),
+                Arguments.of("Failing Value",
+                        "DEF main(): Integer DO LET x = 1 / 0; RETURN 0; END",
+                        "DEF main(): Integer DO LET x = 1 / 0; RETURN 0; END",
+                        0
+                ),
+                Arguments.of("Uninitialized Operand",
+                        "DEF main(): Integer DO LET n: Integer; LET y = n + 1; RETURN 7; END",
+                        "DEF main(): Integer DO LET n: Integer; LET y = n + 1; RETURN 7; END",
+                        0
+                ),
+                Arguments.of("Uninitialized Copy",
+                        "LET n: Integer;\nDEF main(): Integer DO LET m = 0; m = n; LET y = m * 2; RETURN 7; END",
+                        "LET n: Integer;\nDEF main(): Integer DO LET m = 0; m = n; LET y = m * 2; RETURN 7; END",
+                        0
+                ),
+                Arguments.of("Call Without Return",
+                        "DEF f(): Integer DO print(1); END\nDEF main(): Integer DO LET x = f(); LET y = x + 1; RETURN 0; END",
+                        "DEF f(): Integer DO print(1); END\nDEF main(): Integer DO LET x = f(); LET y = x + 1; RETURN 0; END",
+                        0
+                ),
+                Arguments.of("Copy Of Call Without Return On Every Path",
+                        "DEF f(n: Integer): Integer DO IF n < 1 DO RETURN 1; END END\nDEF main(): Integer DO LET m = 0; m = f(1); LET y = m * 2; RETURN 7; END",
+                        "DEF f(n: Integer): Integer DO IF n < 1 DO RETURN 1; END END\nDEF main(): Integer DO LET m = 0; m = f(1); LET y = m * 2; RETURN 7; END",
+                        0
+                ),
+                Arguments.of("Initialized Operand",
+                        "DEF main(): Integer DO LET n: Integer; n = 1; LET m = 2; LET y = m + 1; RETURN n; END",
+                        "DEF main(): Integer DO LET n: Integer; n = 1; RETURN n; END",
+                        6
+                )
+        );
+    }
+
+}
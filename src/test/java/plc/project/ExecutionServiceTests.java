@@ -0,0 +1,111 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+final class ExecutionServiceTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRun(String test, String input, Object expected) throws Exception {
+        try (ExecutionService service = new ExecutionService(new Scope(null))) {
+            Assertions.assertEquals(expected, service.run(input, 10, TimeUnit.SECONDS).getValue());
+        }
+    }
+
+    private static Stream<Arguments> testRun() {
+        return Stream.of(
+                Arguments.of("Return",
+                        "DEF main(): Integer DO RETURN 1 + 2; END",
+                        BigInteger.valueOf(3)
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\nDEF main(): Integer DO RETURN fib(15); END",
+                        BigInteger.valueOf(610)
+                ),
+                Arguments.of("Globals",
+                        "LET total: Integer = 10;\nDEF add(n: Integer): Nil DO total = total + n; END\nDEF main(): Integer DO add(5); add(7); RETURN total; END",
+                        BigInteger.valueOf(22)
+                )
+        );
+    }
+
+    @Test
+    void testIsolatedGlobals() throws Exception {
+        String input = "LET count: Integer = 0;\nDEF main(): Integer DO LET i = 0; WHILE i < 100 DO count = count + 1; i = i + 1; END RETURN count; END";
+        try (ExecutionService service = new ExecutionService(new Scope(null))) {
+            Assertions.assertSame(service.compile(input), service.compile(input));
+            List<Future<Environment.PlcObject>> runs = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                runs.add(service.submit(input));
+            }
+            for (Future<Environment.PlcObject> run : runs) {
+                Assertions.assertEquals(BigInteger.valueOf(100), ExecutionService.await(run, 10, TimeUnit.SECONDS).getValue());
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testTimeout(String test, String input) throws Exception {
+        Scope parent = new Scope(null);
+        parent.defineFunction("forever", "forever", List.of(), Environment.Type.INTEGER_ITERABLE,
+                args -> Environment.create((Iterable<Environment.PlcObject>) () -> Stream.generate(() -> Environment.create(BigInteger.ONE)).iterator()));
+        try (ExecutionService service = new ExecutionService(parent, Executors.newSingleThreadExecutor())) {
+            Future<Environment.PlcObject> run = service.submit(input);
+            Assertions.assertThrows(TimeoutException.class, () -> ExecutionService.await(run, 50, TimeUnit.MILLISECONDS));
+            Assertions.assertTrue(run.isCancelled());
+            //The only thread is free again once the interrupted run stops
+            Assertions.assertEquals(BigInteger.ONE, service.run("DEF main(): Integer DO RETURN 1; END", 10, TimeUnit.SECONDS).getValue());
+        }
+    }
+
+    private static Stream<Arguments> testTimeout() {
+        return Stream.of(
+                Arguments.of("While", "DEF main(): Integer DO WHILE TRUE DO END RETURN 0; END"),
+                Arguments.of("For", "DEF main(): Integer DO LET sum = 0; FOR i IN forever() DO sum = sum + i; END RETURN sum; END"),
+                Arguments.of("Recursion", "DEF f(n: Integer): Integer DO IF n < 1 DO RETURN 0; END RETURN f(n - 1) + f(n - 1); END\nDEF main(): Integer DO RETURN f(60); END")
+        );
+    }
+
+    @Test
+    void testCacheCapacity() {
+        try (ExecutionService service = new ExecutionService(new Scope(null))) {
+            Ast.Source first = service.compile("DEF main(): Integer DO RETURN 0; END");
+            for (int i = 1; i <= ExecutionService.CAPACITY; i++) {
+                service.compile("DEF main(): Integer DO RETURN " + i + "; END");
+            }
+            Assertions.assertNotSame(first, service.compile("DEF main(): Integer DO RETURN 0; END"), "the least recently used script is evicted");
+            Ast.Source last = service.compile("DEF main(): Integer DO RETURN " + ExecutionService.CAPACITY + "; END");
+            Assertions.assertSame(last, service.compile("DEF main(): Integer DO RETURN " + ExecutionService.CAPACITY + "; END"));
+        }
+    }
+
+    @Test
+    void testErrors() {
+        try (ExecutionService service = new ExecutionService(new Scope(null))) {
+            Assertions.assertThrows(RuntimeException.class, () -> service.submit("DEF main(): Integer DO RETURN TRUE; END"));
+            Assertions.assertThrows(RuntimeException.class, () -> service.run("DEF main(): Integer DO LET d = 0; RETURN 1 / d; END", 10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testVirtualThreads() {
+        try (ExecutionService service = new ExecutionService(new Scope(null))) {
+            Assertions.assertEquals(Runtime.version().feature() >= 21, service.isVirtual());
+        }
+    }
+
+}
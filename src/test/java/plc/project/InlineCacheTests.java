@@ -0,0 +1,149 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class InlineCacheTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testMethod(String test, int types, int hits, int misses, boolean megamorphic) {
+        List<Environment.Type> receivers = new ArrayList<>();
+        for (int i = 0; i < types; i++) {
+            BigInteger id = BigInteger.valueOf(i);
+            Environment.Type type = new Environment.Type("Type" + i, "Type" + i, new Scope(null));
+            type.getScope().defineFunction("id", 1, args -> Environment.create(id));
+            receivers.add(type);
+        }
+        List<Environment.PlcObject> objects = new ArrayList<>();
+        int expected = 0;
+        for (int i = 0; i < 20; i++) {
+            objects.add(new Environment.PlcObject(receivers.get(i % types), new Scope(null), "object"));
+            expected += i % types;
+        }
+        Ast.Source source = parse("DEF main() DO LET sum = 0; FOR o IN objects DO sum = sum + o.id(); END RETURN sum; END");
+        Scope scope = new Scope(null);
+        scope.defineVariable("objects", Environment.create(objects));
+        Assertions.assertEquals(BigInteger.valueOf(expected), new Interpreter(scope).visit(source).getValue());
+
+        InlineCache cache = call(source).getInlineCache();
+        Assertions.assertEquals(hits, cache.getHits());
+        Assertions.assertEquals(misses, cache.getMisses());
+        Assertions.assertEquals(megamorphic, cache.isMegamorphic());
+    }
+
+    private static Stream<Arguments> testMethod() {
+        return Stream.of(
+                Arguments.of("Monomorphic", 1, 19, 1, false),
+                Arguments.of("Polymorphic", InlineCache.LIMIT, 20 - InlineCache.LIMIT, InlineCache.LIMIT, false),
+                Arguments.of("Megamorphic", InlineCache.LIMIT + 1, 0, 20, true)
+        );
+    }
+
+    @Test
+    void testField() {
+        List<Scope> shapes = List.of(new Scope(null), new Scope(null));
+        for (Scope shape : shapes) {
+            shape.defineVariable("x", Environment.create(BigInteger.ZERO));
+        }
+        List<Environment.PlcObject> objects = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            objects.add(new Environment.PlcObject(shapes.get(i % 2), "object"));
+        }
+        Ast.Source source = parse("DEF main() DO FOR o IN objects DO o.x = o.x + 1; END RETURN 0; END");
+        new Resolver().visit(source);
+        Scope scope = new Scope(null);
+        scope.defineVariable("objects", Environment.create(objects));
+        new Interpreter(scope).visit(source);
+        for (Scope shape : shapes) {
+            Assertions.assertEquals(BigInteger.valueOf(5), shape.lookupVariable("x").getValue().getValue());
+        }
+
+        Ast.Stmt.Assignment assignment = (Ast.Stmt.Assignment) ((Ast.Stmt.For) source.getMethods().get(0).getStatements().get(0)).getStatements().get(0);
+        InlineCache cache = ((Ast.Expr.Access) ((Ast.Expr.Binary) assignment.getValue()).getLeft()).getInlineCache();
+        Assertions.assertEquals(8, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testFieldWithLocals() {
+        Scope shape = new Scope(null);
+        shape.defineVariable("x", Environment.create(BigInteger.ZERO));
+        List<Environment.PlcObject> objects = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            objects.add(new Environment.PlcObject(shape, "object"));
+        }
+        Ast.Source source = parse("DEF main() DO FOR o IN objects DO LET y = 1; o.x = o.x + y; END RETURN 0; END");
+        Scope scope = new Scope(null);
+        scope.defineVariable("objects", Environment.create(objects));
+        new Interpreter(scope).visit(source);
+        Assertions.assertEquals(BigInteger.TEN, shape.lookupVariable("x").getValue().getValue());
+
+        Ast.Stmt.Assignment assignment = (Ast.Stmt.Assignment) ((Ast.Stmt.For) source.getMethods().get(0).getStatements().get(0)).getStatements().get(1);
+        InlineCache cache = ((Ast.Expr.Access) ((Ast.Expr.Binary) assignment.getValue()).getLeft()).getInlineCache();
+        Assertions.assertEquals(9, cache.getHits(), "locals of the loop do not invalidate the cache");
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testUnrelatedDefinitions() {
+        Environment.Type type = new Environment.Type("Type", "Type", new Scope(null));
+        type.getScope().defineFunction("id", 1, args -> Environment.NIL);
+        Environment.PlcObject object = new Environment.PlcObject(type, new Scope(null), "object");
+        InlineCache cache = new InlineCache();
+        cache.method(object, "id", 0);
+        new Scope(null).defineFunction("id", 1, args -> Environment.NIL);
+        new Interpreter(new Scope(null));
+        cache.method(object, "id", 0);
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testShadowedMethod() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("id", 1, args -> Environment.create("parent"));
+        Environment.Type type = new Environment.Type("Type", "Type", new Scope(parent));
+        Environment.PlcObject object = new Environment.PlcObject(type, new Scope(null), "object");
+        InlineCache cache = new InlineCache();
+        Assertions.assertEquals("parent", cache.method(object, "id", 0).invoke(List.of(object)).getValue());
+        type.getScope().defineFunction("id", 1, args -> Environment.create("child"));
+        Assertions.assertEquals("child", cache.method(object, "id", 0).invoke(List.of(object)).getValue());
+        Assertions.assertEquals(2, cache.getMisses());
+        Assertions.assertFalse(cache.isMegamorphic());
+    }
+
+    @Test
+    void testShadowedField() {
+        Scope parent = new Scope(null);
+        parent.defineVariable("x", Environment.create("parent"));
+        Scope child = new Scope(parent);
+        Environment.PlcObject object = new Environment.PlcObject(child, "object");
+        InlineCache cache = new InlineCache();
+        Assertions.assertEquals("parent", cache.field(object, "x").getValue().getValue());
+        Assertions.assertEquals("parent", cache.field(object, "x").getValue().getValue());
+        child.defineVariable("x", Environment.create("child"));
+        Assertions.assertEquals("child", cache.field(object, "x").getValue().getValue());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(2, cache.getMisses());
+    }
+
+    private static Ast.Expr.Function call(Ast.Source source) {
+        Ast.Stmt.For loop = (Ast.Stmt.For) source.getMethods().get(0).getStatements().get(1);
+        Ast.Stmt.Assignment assignment = (Ast.Stmt.Assignment) loop.getStatements().get(0);
+        return (Ast.Expr.Function) ((Ast.Expr.Binary) assignment.getValue()).getRight();
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
@@ -0,0 +1,139 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class InlinerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSubstitute(String test, String input, String expected, int inlined) {
+        Inliner inliner = new Inliner(20);
+        Ast.Source source = inliner.inline(analyze(input));
+        Assertions.assertEquals(Fingerprint.of(analyze(expected)), Fingerprint.of(source));
+        Assertions.assertEquals(inlined, inliner.getInlined());
+    }
+
+    private static Stream<Arguments> testSubstitute() {
+        return Stream.of(
+                Arguments.of("Expression",
+                        "DEF square(n: Integer): Integer DO RETURN n * n; END\nDEF main(): Integer DO RETURN square(3) + 1; END",
+                        "DEF square(n: Integer): Integer DO RETURN n * n; END\nDEF main(): Integer DO RETURN (3 * 3) + 1; END",
+                        1
+                ),
+                Arguments.of("Binary Argument",
+                        "DEF twice(n: Integer): Integer DO RETURN 2 * n; END\nDEF main(): Integer DO LET x = 1; RETURN twice(x + 1); END",
+                        "DEF twice(n: Integer): Integer DO RETURN 2 * n; END\nDEF main(): Integer DO LET x = 1; RETURN (2 * (x + 1)); END",
+                        1
+                ),
+                Arguments.of("Nested",
+                        "DEF inc(n: Integer): Integer DO RETURN n + 1; END\nDEF inc2(n: Integer): Integer DO RETURN inc(inc(n)); END\nDEF main(): Integer DO RETURN inc2(0); END",
+                        "DEF inc(n: Integer): Integer DO RETURN n + 1; END\nDEF inc2(n: Integer): Integer DO RETURN ((n + 1) + 1); END\nDEF main(): Integer DO RETURN ((0 + 1) + 1); END",
+                        3
+                ),
+                Arguments.of("Recursive",
+                        "DEF f(n: Integer): Integer DO RETURN f(n - 1); END\nDEF main(): Integer DO RETURN f(1); END",
+                        "DEF f(n: Integer): Integer DO RETURN f(n - 1); END\nDEF main(): Integer DO RETURN f(1); END",
+                        0
+                ),
+                Arguments.of("Over Budget",
+                        "DEF f(n: Integer): Integer DO RETURN n + n + n + n + n + n + n + n + n + n + n + n; END\nDEF main(): Integer DO RETURN f(1); END",
+                        "DEF f(n: Integer): Integer DO RETURN n + n + n + n + n + n + n + n + n + n + n + n; END\nDEF main(): Integer DO RETURN f(1); END",
+                        0
+                ),
+                Arguments.of("Shadowed Global",
+                        "LET x: Integer = 1;\nDEF f(): Integer DO RETURN x; END\nDEF main(): Integer DO LET x = 2; RETURN f(); END",
+                        "LET x: Integer = 1;\nDEF f(): Integer DO RETURN x; END\nDEF main(): Integer DO LET x = 2; RETURN f(); END",
+                        0
+                ),
+                Arguments.of("Early Return",
+                        "DEF f(n: Integer): Integer DO IF n < 0 DO RETURN 0; END RETURN n; END\nDEF main(): Integer DO RETURN f(1); END",
+                        "DEF f(n: Integer): Integer DO IF n < 0 DO RETURN 0; END RETURN n; END\nDEF main(): Integer DO RETURN f(1); END",
+                        0
+                )
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testBody(String test, String input, String expected) {
+        Inliner inliner = new Inliner(20);
+        Ast.Source source = inliner.inline(analyze(input));
+        Assertions.assertEquals(1, inliner.getInlined());
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(source.getMethods().get(source.getMethods().size() - 1));
+        Assertions.assertEquals(expected, writer.toString().replaceAll("\\s+", " ").trim());
+    }
+
+    private static Stream<Arguments> testBody() {
+        return Stream.of(
+                Arguments.of("Declaration",
+                        "DEF f(n: Integer): Integer DO LET m = n + 1; RETURN m * m; END\nDEF main(): Integer DO LET m = f(2); RETURN m; END",
+                        "int main() { int n$1 = 2; int m$1 = n$1 + 1; int m = m$1 * m$1; return m; }"
+                ),
+                Arguments.of("Impure Argument",
+                        "DEF f(n: Integer): Integer DO RETURN n * n; END\nDEF main(): Integer DO RETURN f(read()); END",
+                        "int main() { int n$1 = read(); return n$1 * n$1; }"
+                ),
+                Arguments.of("Expression Statement",
+                        "DEF f(n: Integer): Integer DO print(n); RETURN n / 2; END\nDEF main(): Integer DO f(4); RETURN 0; END",
+                        "int main() { int n$1 = 4; System.out.println(n$1); int result$1 = n$1 / 2; return 0; }"
+                ),
+                Arguments.of("Field Argument",
+                        "LET g: Integer = 1;\nDEF f(v: Integer): Integer DO RETURN v * 2; END\nDEF main(): Integer DO RETURN f(g); END",
+                        "int main() { int v$1 = g; return v$1 * 2; }"
+                ),
+                Arguments.of("Uninitialized Argument",
+                        "DEF f(n: Integer): Integer DO print(n); RETURN n + 1; END\nDEF main(): Integer DO LET u: Integer; f(u); RETURN 0; END",
+                        "int main() { int u; int n$1 = u; System.out.println(n$1); int result$1 = n$1 + 1; return 0; }"
+                )
+        );
+    }
+
+    @Test
+    void testInterpret() {
+        String input = String.join("\n",
+                "LET total: Integer = 0;",
+                "DEF add(n: Integer): Integer DO total = total + n; RETURN total; END",
+                "DEF sum(n: Integer): Integer DO LET s = 0; LET i = 0; WHILE i < n DO s = s + i; i = i + 1; END RETURN s; END",
+                "DEF main(): Integer DO",
+                "    LET s = sum(5);",
+                "    add(s);",
+                "    LET n = add(sum(3));",
+                "    RETURN n * 100 + s;",
+                "END"
+        );
+        Inliner inliner = new Inliner(20);
+        Ast.Source source = inliner.inline(analyze(input));
+        Assertions.assertEquals(4, inliner.getInlined());
+        Assertions.assertEquals(BigInteger.valueOf(1310), new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    @Test
+    void testArgumentOrder() {
+        String input = String.join("\n",
+                "LET g: Integer = 1;",
+                "DEF inc(): Integer DO g = g + 10; RETURN 0; END",
+                "DEF f(v: Integer): Integer DO RETURN inc() + v; END",
+                "DEF main(): Integer DO RETURN f(g); END"
+        );
+        Assertions.assertEquals(BigInteger.ONE, new Interpreter(new Scope(null)).visit(analyze(input)).getValue());
+        Ast.Source source = new Inliner(20).inline(analyze(input));
+        Assertions.assertEquals(BigInteger.ONE, new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    private static Ast.Source analyze(String input) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("read", "read", java.util.List.of(), Environment.Type.INTEGER, args -> Environment.create(BigInteger.ONE));
+        return Sources.analyze(input, scope);
+    }
+
+}
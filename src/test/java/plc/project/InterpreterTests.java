@@ -10,9 +10,14 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -374,6 +379,125 @@ final class InterpreterTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testReturn(String test, String input, Object expected) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+        new Resolver().visit(source);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    private static Stream<Arguments> testReturn() {
+        return Stream.of(
+                Arguments.of("Nested Loops",
+                        "DEF find(n: Integer): Integer DO LET i = 0; WHILE TRUE DO LET j = 0; WHILE j < i DO IF i * j == n DO RETURN i; END j = j + 1; END i = i + 1; END END\n" +
+                        "DEF main(): Integer DO RETURN find(12) * 100 + find(35); END",
+                        BigInteger.valueOf(407)
+                ),
+                Arguments.of("Branch",
+                        "DEF sign(n: Integer): Integer DO IF n < 0 DO RETURN -1; ELSE IF n == 0 DO RETURN 0; END END RETURN 1; END\n" +
+                        "DEF main(): Integer DO RETURN sign(-4) + sign(0) * 10 + sign(9) * 100; END",
+                        BigInteger.valueOf(99)
+                ),
+                Arguments.of("Without Return",
+                        "LET x: Integer = 0;\nDEF f(): Nil DO WHILE x < 3 DO x = x + 1; END END\nDEF main(): Integer DO f(); RETURN x; END",
+                        BigInteger.valueOf(3)
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\nDEF main(): Integer DO RETURN fib(15); END",
+                        BigInteger.valueOf(610)
+                )
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testConcurrentInvocations(String test, boolean resolve, boolean tiered) throws Exception {
+        Ast.Source source = new Parser(new Lexer(String.join("\n",
+                "LET limit: Integer = 2;",
+                "DEF fib(n: Integer): Integer DO IF n < limit DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END",
+                "DEF squares(n: Integer): Integer DO LET total = 0; LET i = 0; WHILE i < n DO LET square = i * i; total = total + square; i = i + 1; END RETURN total; END",
+                "DEF main(): Integer DO RETURN fib(1); END"
+        )).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        if (resolve) {
+            new Resolver().visit(source);
+        }
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        if (tiered) {
+            interpreter.setTiering(new Tiering(50, 20));
+        }
+        interpreter.visit(source);
+        Environment.Function fib = interpreter.getScope().lookupFunction("fib", 1);
+        Environment.Function squares = interpreter.getScope().lookupFunction("squares", 1);
+
+        int threads = 64;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int n = t;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 20; round++) {
+                        int k = (n + round) % 16;
+                        Assertions.assertEquals(BigInteger.valueOf(fib(k)), fib.invoke(List.of(Environment.create(BigInteger.valueOf(k)))).getValue());
+                        int m = n * 3 + round;
+                        Assertions.assertEquals(BigInteger.valueOf((long) (m - 1) * m * (2 * m - 1) / 6), squares.invoke(List.of(Environment.create(BigInteger.valueOf(m)))).getValue());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Stream<Arguments> testConcurrentInvocations() {
+        return Stream.of(
+                Arguments.of("Scopes", false, false),
+                Arguments.of("Resolved", true, false),
+                Arguments.of("Tiered", true, true)
+        );
+    }
+
+    private static long fib(int n) {
+        return n < 2 ? n : fib(n - 1) + fib(n - 2);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testSharedValues(String test, Object value, boolean shared) {
+        Environment.PlcObject object = Environment.create(value);
+        Assertions.assertEquals(value, object.getValue());
+        Assertions.assertEquals(shared, object == Environment.create(value));
+    }
+
+    private static Stream<Arguments> testSharedValues() {
+        return Stream.of(
+                Arguments.of("True", true, true),
+                Arguments.of("False", false, true),
+                Arguments.of("Small Integer", BigInteger.valueOf(-128), true),
+                Arguments.of("Large Integer", BigInteger.valueOf(1024), false),
+                Arguments.of("String", "string", false)
+        );
+    }
+
+    @Test
+    void testLiteralValue() {
+        Ast.Expr.Literal literal = new Ast.Expr.Literal("string");
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Assertions.assertSame(interpreter.visit(literal), interpreter.visit(literal));
+        Assertions.assertSame(Environment.NIL, interpreter.visit(new Ast.Expr.Literal(null)));
+    }
+
     private static Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
@@ -0,0 +1,143 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class IrBuilderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testBuild(String test, String input, String expected) {
+        Ast.Source source = Sources.analyze(input);
+        Ir.Method method = new IrBuilder().build(source.getMethods().get(0));
+        IrVerifier.verify(method);
+        Assertions.assertEquals(expected, method.toString());
+    }
+
+    private static Stream<Arguments> testBuild() {
+        return Stream.of(
+                Arguments.of("Straight Line",
+                        "DEF f(n: Integer): Integer DO LET x = n * 2; x = x + 1; RETURN x; END\nDEF main(): Integer DO RETURN 0; END",
+                        String.join("\n",
+                                "DEF f(%0 n: Integer): Integer",
+                                "b0:",
+                                "    %1: Integer = %0 * 2",
+                                "    %2: Integer = %1 + 1",
+                                "    return %2",
+                                ""
+                        )
+                ),
+                Arguments.of("If",
+                        "DEF f(n: Integer): Integer DO LET x = n; IF x > 10 DO x = x - 10; END RETURN x; END\nDEF main(): Integer DO RETURN 0; END",
+                        String.join("\n",
+                                "DEF f(%0 n: Integer): Integer",
+                                "b0:",
+                                "    %1: Boolean = %0 > 10",
+                                "    branch %1, b1, b2",
+                                "b1: (b0)",
+                                "    %2: Integer = %0 - 10",
+                                "    jump b3",
+                                "b2: (b0)",
+                                "    jump b3",
+                                "b3: (b1, b2)",
+                                "    %3: Integer = phi [b1: %2, b2: %0]",
+                                "    return %3",
+                                ""
+                        )
+                ),
+                Arguments.of("Returning Branches",
+                        "DEF f(n: Integer): Integer DO IF n > 0 DO RETURN 1; ELSE RETURN 2; END END\nDEF main(): Integer DO RETURN 0; END",
+                        String.join("\n",
+                                "DEF f(%0 n: Integer): Integer",
+                                "b0:",
+                                "    %1: Boolean = %0 > 0",
+                                "    branch %1, b1, b2",
+                                "b1: (b0)",
+                                "    return 1",
+                                "b2: (b0)",
+                                "    return 2",
+                                ""
+                        )
+                ),
+                Arguments.of("While",
+                        "DEF main(): Integer DO LET i = 0; WHILE i < 10 DO i = i + 1; END RETURN i; END",
+                        String.join("\n",
+                                "DEF main(): Integer",
+                                "b0:",
+                                "    jump b1",
+                                "b1: (b0, b2)",
+                                "    %0: Integer = phi [b0: 0, b2: %2]",
+                                "    %1: Boolean = %0 < 10",
+                                "    branch %1, b2, b3",
+                                "b2: (b1)",
+                                "    %2: Integer = %0 + 1",
+                                "    jump b1",
+                                "b3: (b1)",
+                                "    return %0",
+                                ""
+                        )
+                ),
+                Arguments.of("Loop Invariant",
+                        "DEF f(n: Integer): Integer DO LET i = 0; WHILE i < n DO i = i + 1; END RETURN n; END\nDEF main(): Integer DO RETURN 0; END",
+                        String.join("\n",
+                                "DEF f(%0 n: Integer): Integer",
+                                "b0:",
+                                "    jump b1",
+                                "b1: (b0, b2)",
+                                "    %1: Integer = phi [b0: 0, b2: %3]",
+                                "    %2: Boolean = %1 < %0",
+                                "    branch %2, b2, b3",
+                                "b2: (b1)",
+                                "    %3: Integer = %1 + 1",
+                                "    jump b1",
+                                "b3: (b1)",
+                                "    return %0",
+                                ""
+                        )
+                ),
+                Arguments.of("Short Circuit",
+                        "DEF f(a: Boolean, b: Boolean): Boolean DO RETURN a OR b; END\nDEF main(): Integer DO RETURN 0; END",
+                        String.join("\n",
+                                "DEF f(%0 a: Boolean, %1 b: Boolean): Boolean",
+                                "b0:",
+                                "    branch %0, b2, b1",
+                                "b1: (b0)",
+                                "    jump b2",
+                                "b2: (b0, b1)",
+                                "    %2: Boolean = phi [b0: %0, b1: %1]",
+                                "    return %2",
+                                ""
+                        )
+                ),
+                Arguments.of("Fields",
+                        "LET total: Integer = 0;\nDEF main(): Integer DO total = total + 1; print(total); END",
+                        String.join("\n",
+                                "DEF main(): Integer",
+                                "b0:",
+                                "    %0: Integer = load total",
+                                "    %1: Integer = %0 + 1",
+                                "    %2: Nil = store total, %1",
+                                "    %3: Integer = load total",
+                                "    %4: Nil = print(%3)",
+                                "    return NIL",
+                                ""
+                        )
+                )
+        );
+    }
+
+    @Test
+    void testFor() {
+        Ast.Source source = new Parser(new Lexer("DEF main(): Integer DO FOR i IN range(0, 3) DO print(i); END RETURN 0; END").lex()).parseSource();
+        Scope scope = new Scope(null);
+        scope.defineFunction("range", "range", java.util.List.of(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(scope).visit(source);
+        Assertions.assertThrows(RuntimeException.class, () -> new IrBuilder().build(source.getMethods().get(0)));
+    }
+
+}
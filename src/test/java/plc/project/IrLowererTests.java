@@ -0,0 +1,75 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class IrLowererTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testLower(String test, String input, Object expected) {
+        Ast.Source source = Sources.analyze(input);
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Ast.Method method : source.getMethods()) {
+            Ir.Method ir = new IrBuilder().build(method);
+            IrVerifier.verify(ir);
+            methods.add(IrLowerer.lower(ir));
+        }
+        Ast.Source lowered = new Ast.Source(source.getFields(), methods);
+        Assertions.assertEquals(expected, run(source));
+        Assertions.assertEquals(expected, run(lowered));
+        new Resolver().visit(lowered);
+        Assertions.assertEquals(expected, run(lowered));
+    }
+
+    private static Stream<Arguments> testLower() {
+        return Stream.of(
+                Arguments.of("Straight Line",
+                        "DEF main(): Integer DO LET x = 2; LET y = x * 3; print(y); RETURN y - x; END",
+                        "6\n4"
+                ),
+                Arguments.of("Branches",
+                        "DEF sign(n: Integer): Integer DO IF n < 0 DO RETURN -1; ELSE IF n > 0 DO RETURN 1; END END RETURN 0; END\n" +
+                        "DEF main(): Integer DO print(sign(-5)); print(sign(0)); RETURN sign(7); END",
+                        "-1\n0\n1"
+                ),
+                Arguments.of("Fibonacci",
+                        "DEF main(): Integer DO LET a = 0; LET b = 1; LET n = 0; WHILE n < 20 DO LET t = a + b; a = b; b = t; n = n + 1; END RETURN a; END",
+                        "6765"
+                ),
+                Arguments.of("Swap",
+                        "DEF main(): Integer DO LET a = 1; LET b = 2; LET n = 0; WHILE n < 3 DO LET t = a; a = b; b = t; n = n + 1; END RETURN a * 10 + b; END",
+                        "21"
+                ),
+                Arguments.of("Short Circuit",
+                        "DEF main(): Integer DO LET d = 0; IF d != 0 AND 10 / d > 1 DO RETURN 1; END IF d == 0 OR 10 / d > 1 DO RETURN 2; END RETURN 3; END",
+                        "2"
+                ),
+                Arguments.of("Recursion And Fields",
+                        "LET calls: Integer = 0;\n" +
+                        "DEF fact(n: Integer): Integer DO calls = calls + 1; IF n <= 1 DO RETURN 1; END RETURN n * fact(n - 1); END\n" +
+                        "DEF main(): Integer DO print(fact(10)); RETURN calls; END",
+                        "3628800\n10"
+                ),
+                Arguments.of("Nested Loops",
+                        "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 5 DO LET j = i; WHILE j < 5 DO sum = sum + i * j; j = j + 1; END i = i + 1; END RETURN sum; END",
+                        "65"
+                )
+        );
+    }
+
+    /**
+     * Runs a source, returning its output followed by the result of main.
+     */
+    private static String run(Ast.Source source) {
+        return Sources.capture(() -> new Interpreter(new Scope(null)).visit(source));
+    }
+
+}
@@ -0,0 +1,119 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+
+final class IrVerifierTests {
+
+    @Test
+    void testValid() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        Ir.Block entry = method.addBlock();
+        Ir.Block exit = method.addBlock();
+        Ir.Binary sum = new Ir.Binary("+", BinaryOperation.INTEGER_ADD, integer(1), integer(2), Environment.Type.INTEGER);
+        entry.getInstructions().add(sum);
+        entry.setTerminator(new Ir.Jump(exit));
+        exit.setTerminator(new Ir.Return(sum));
+        Assertions.assertDoesNotThrow(() -> IrVerifier.verify(method));
+    }
+
+    @Test
+    void testMissingTerminator() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        method.addBlock();
+        assertInvalid(method, "Block b0 has no terminator.");
+    }
+
+    @Test
+    void testPhiOperands() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        Ir.Block entry = method.addBlock();
+        Ir.Block exit = method.addBlock();
+        entry.setTerminator(new Ir.Jump(exit));
+        Ir.Phi phi = new Ir.Phi(exit, Environment.Type.INTEGER);
+        phi.getOperands().addAll(List.of(integer(1), integer(2)));
+        exit.getPhis().add(phi);
+        exit.setTerminator(new Ir.Return(phi));
+        assertInvalid(method, "Phi %-1 has 2 operands but its block has 1 predecessors.");
+    }
+
+    @Test
+    void testNotDominated() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        Ir.Block entry = method.addBlock();
+        Ir.Block left = method.addBlock();
+        Ir.Block right = method.addBlock();
+        Ir.Block exit = method.addBlock();
+        entry.setTerminator(new Ir.Branch(new Ir.Constant(true, Environment.Type.BOOLEAN), left, right));
+        Ir.Binary sum = new Ir.Binary("+", BinaryOperation.INTEGER_ADD, integer(1), integer(2), Environment.Type.INTEGER);
+        sum.setId(0);
+        left.getInstructions().add(sum);
+        left.setTerminator(new Ir.Jump(exit));
+        right.setTerminator(new Ir.Jump(exit));
+        exit.setTerminator(new Ir.Return(sum));
+        assertInvalid(method, "Value %0 used by the terminator of b3 is not defined before it is used.");
+    }
+
+    @Test
+    void testUseBeforeDefinition() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        Ir.Block entry = method.addBlock();
+        Ir.Binary first = new Ir.Binary("+", BinaryOperation.INTEGER_ADD, integer(1), integer(2), Environment.Type.INTEGER);
+        Ir.Binary second = new Ir.Binary("+", BinaryOperation.INTEGER_ADD, first, integer(2), Environment.Type.INTEGER);
+        first.setId(0);
+        second.setId(1);
+        entry.getInstructions().addAll(List.of(second, first));
+        entry.setTerminator(new Ir.Return(second));
+        assertInvalid(method, "Value %0 used by instruction %1 is not defined before it is used.");
+    }
+
+    @Test
+    void testCondition() {
+        Ir.Method method = new Ir.Method("f", List.of(), function());
+        Ir.Block entry = method.addBlock();
+        Ir.Block exit = method.addBlock();
+        entry.setTerminator(new Ir.Branch(integer(1), exit, exit));
+        exit.setTerminator(new Ir.Return(integer(0)));
+        assertInvalid(method, "The branch ending block b0 has a condition that is not Boolean.");
+    }
+
+    @Test
+    void testBuilt() {
+        Ast.Source source = new Parser(new Lexer(String.join("\n",
+                "DEF f(n: Integer): Integer DO",
+                "    LET a = 0;",
+                "    LET b = 1;",
+                "    WHILE n > 0 AND a < 100 DO",
+                "        LET t = a + b;",
+                "        a = b;",
+                "        b = t;",
+                "        IF a > 10 DO print(a); END",
+                "        n = n - 1;",
+                "    END",
+                "    RETURN a;",
+                "END",
+                "DEF main(): Integer DO RETURN f(10); END"
+        )).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        for (Ast.Method method : source.getMethods()) {
+            Assertions.assertDoesNotThrow(() -> IrVerifier.verify(new IrBuilder().build(method)));
+        }
+    }
+
+    private static void assertInvalid(Ir.Method method, String message) {
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> IrVerifier.verify(method));
+        Assertions.assertEquals("Invalid IR for f: " + message, exception.getMessage());
+    }
+
+    private static Ir.Constant integer(int value) {
+        return new Ir.Constant(BigInteger.valueOf(value), Environment.Type.INTEGER);
+    }
+
+    private static Environment.Function function() {
+        return new Environment.Function("f", "f", List.of(), Environment.Type.INTEGER, args -> Environment.NIL);
+    }
+
+}
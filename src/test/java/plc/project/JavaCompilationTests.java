@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.stream.Stream;
+
+final class JavaCompilationTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRun(String test, String input, String expected) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(output));
+            Object result = new JavaCompilation().run(input);
+            Assertions.assertEquals(expected, (output + String.valueOf(result)).replace("\r\n", "\n"));
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static Stream<Arguments> testRun() {
+        return Stream.of(
+                Arguments.of("Loop",
+                        "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 5 DO sum = sum + i; i = i + 1; END print(sum); RETURN 0; END",
+                        "10\n0"
+                ),
+                Arguments.of("Recursion And Fields",
+                        "LET calls: Integer = 0;\n" +
+                        "DEF fib(n: Integer): Integer DO calls = calls + 1; IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\n" +
+                        "DEF main(): Integer DO print(fib(15)); RETURN calls; END",
+                        "610\n1973"
+                )
+        );
+    }
+
+    @Test
+    void testCache() {
+        JavaCompilation compilation = new JavaCompilation();
+        String input = "LET count: Integer = 0;\nDEF main(): Integer DO count = count + 1; RETURN count; END";
+        Assertions.assertEquals(1, compilation.run(input));
+        Assertions.assertEquals(1, compilation.run(input));
+        Assertions.assertSame(compilation.compile(input), compilation.compile(input));
+        Assertions.assertEquals(1, compilation.getCompiled());
+        Assertions.assertEquals(2, compilation.run("DEF main(): Integer DO RETURN 2; END"));
+        Assertions.assertEquals(2, compilation.getCompiled());
+    }
+
+    @Test
+    void testIsolated() {
+        Class<?> main = new JavaCompilation().compile("DEF main(): Integer DO RETURN 0; END");
+        Assertions.assertNotSame(getClass().getClassLoader(), main.getClassLoader());
+        Assertions.assertNotSame(main, new JavaCompilation().compile("DEF main(): Integer DO RETURN 0; END"));
+    }
+
+}
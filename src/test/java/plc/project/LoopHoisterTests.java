@@ -0,0 +1,107 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class LoopHoisterTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testHoist(String test, String input, String expected, int hoisted) {
+        LoopHoister hoister = new LoopHoister();
+        Ast.Source source = hoister.hoist(Sources.analyze(input));
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(source.getMethods().get(source.getMethods().size() - 1));
+        Assertions.assertEquals(expected, writer.toString().replaceAll("\\s+", " ").trim());
+        Assertions.assertEquals(hoisted, hoister.getHoisted());
+    }
+
+    private static Stream<Arguments> testHoist() {
+        return Stream.of(
+                Arguments.of("Condition",
+                        "DEF main(): Integer DO LET i = 0; LET limit = 5; WHILE i < limit * 2 DO i = i + 1; END RETURN i; END",
+                        "int main() { int i = 0; int limit = 5; int t$1 = limit * 2; while (i < t$1) { i = i + 1; } return i; }",
+                        1
+                ),
+                Arguments.of("Body",
+                        "DEF main(): Integer DO LET i = 0; LET n = 0; LET a = 3; WHILE i < 10 DO n = n + (a + 1) * i; i = i + 1; END RETURN n; END",
+                        "int main() { int i = 0; int n = 0; int a = 3; int t$1 = a + 1; while (i < 10) { n = n + t$1 * i; i = i + 1; } return n; }",
+                        1
+                ),
+                Arguments.of("Assigned",
+                        "DEF main(): Integer DO LET i = 0; LET a = 3; WHILE i < a + 1 DO a = a - 1; i = i + 1; END RETURN i; END",
+                        "int main() { int i = 0; int a = 3; while (i < a + 1) { a = a - 1; i = i + 1; } return i; }",
+                        0
+                ),
+                Arguments.of("Declared",
+                        "DEF main(): Integer DO LET i = 0; WHILE i < 10 DO LET a = 3; print(a * 2); i = i + 1; END RETURN i; END",
+                        "int main() { int i = 0; while (i < 10) { int a = 3; System.out.println(a * 2); i = i + 1; } return i; }",
+                        0
+                ),
+                Arguments.of("Division",
+                        "DEF main(): Integer DO LET i = 0; LET d = 0; WHILE i < 1 DO print(1 / d); i = i + 1; END RETURN i; END",
+                        "int main() { int i = 0; int d = 0; while (i < 1) { System.out.println(1 / d); i = i + 1; } return i; }",
+                        0
+                ),
+                Arguments.of("Uninitialized",
+                        "DEF main(): Integer DO LET n: Integer; LET i = 0; WHILE i < 0 DO print(n * 2); i = i + 1; END RETURN 7; END",
+                        "int main() { int n; int i = 0; while (i < 0) { System.out.println(n * 2); i = i + 1; } return 7; }",
+                        0
+                ),
+                Arguments.of("Field With Call",
+                        "LET x: Integer = 1;\nDEF f(): Integer DO x = x + 1; RETURN x; END\nDEF main(): Integer DO LET i = 0; WHILE i < x * 2 DO i = f(); END RETURN i; END",
+                        "int main() { int i = 0; while (i < x * 2) { i = f(); } return i; }",
+                        0
+                ),
+                Arguments.of("Nested",
+                        "DEF main(): Integer DO LET i = 0; LET a = 2; WHILE i < 3 DO LET j = 0; WHILE j < 3 DO print(a * a + j); print(i + a); j = j + 1; END i = i + 1; END RETURN i; END",
+                        "int main() { int i = 0; int a = 2; int t$1 = a * a; while (i < 3) { int j = 0; int t$2 = i + a; while (j < 3) { System.out.println(t$1 + j); System.out.println(t$2); j = j + 1; } i = i + 1; } return i; }",
+                        2
+                )
+        );
+    }
+
+    @Test
+    void testInterpret() {
+        String input = String.join("\n",
+                "DEF main(): Integer DO",
+                "    LET sum = 0;",
+                "    LET i = 0;",
+                "    LET scale = 3;",
+                "    WHILE i < scale * 4 DO",
+                "        LET j = 0;",
+                "        WHILE j < i DO",
+                "            sum = sum + (scale + i) * j;",
+                "            j = j + 1;",
+                "        END",
+                "        i = i + 1;",
+                "    END",
+                "    RETURN sum;",
+                "END"
+        );
+        Object expected = new Interpreter(new Scope(null)).visit(Sources.analyze(input)).getValue();
+        LoopHoister hoister = new LoopHoister();
+        Ast.Source source = hoister.hoist(Sources.analyze(input));
+        Assertions.assertEquals(2, hoister.getHoisted());
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+        new Resolver().visit(source);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+        Assertions.assertEquals(BigInteger.valueOf(2585), expected);
+    }
+
+    @Test
+    void testZeroIterations() {
+        String input = "DEF main(): Integer DO LET n: Integer; LET i = 0; WHILE i < 0 DO print(n * 2); i = i + 1; END RETURN 7; END";
+        Ast.Source source = new LoopHoister().hoist(Sources.analyze(input));
+        Assertions.assertEquals(BigInteger.valueOf(7), new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+}
@@ -0,0 +1,135 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class MemoTableTests {
+
+    private static final String FIB = String.join("\n",
+            "DEF fib(n: Integer): Integer DO",
+            "    IF n < 2 DO",
+            "        RETURN n;",
+            "    END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "DEF main(): Integer DO",
+            "    RETURN fib(60);",
+            "END"
+    );
+
+    @Test
+    void testRecursion() {
+        Ast.Source source = new Parser(new Lexer(FIB).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        new PurityAnalyzer().visit(source);
+
+        MemoTable table = new MemoTable(100);
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setMemoTable(table);
+        Assertions.assertEquals(new BigInteger("1548008755920"), interpreter.visit(source).getValue());
+        Assertions.assertEquals(62, table.getMisses()); //fib(0) to fib(60), and main
+        Assertions.assertEquals(58, table.getHits());
+    }
+
+    @Test
+    void testSharedBetweenRuns() {
+        String input = "LET base: Integer = read();\nDEF f(n: Integer): Integer DO RETURN base + n; END\nDEF main(): Integer DO RETURN f(1); END";
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Scope types = new Scope(null);
+        types.defineFunction("read", "read", List.of(), Environment.Type.INTEGER, args -> Environment.NIL);
+        new Analyzer(types).visit(source);
+        new PurityAnalyzer().visit(source);
+
+        MemoTable table = new MemoTable(100);
+        for (int run = 0; run < 2; run++) {
+            Environment.PlcObject base = Environment.create(BigInteger.valueOf(run * 10));
+            Scope scope = new Scope(null);
+            scope.defineFunction("read", 0, args -> base);
+            Interpreter interpreter = new Interpreter(scope);
+            interpreter.setMemoTable(table);
+            Assertions.assertEquals(BigInteger.valueOf(run * 10 + 1), interpreter.visit(source).getValue());
+        }
+    }
+
+    @Test
+    void testEviction() {
+        MemoTable table = new MemoTable(2);
+        int[] calls = {0};
+        java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function = args -> {
+            calls[0]++;
+            return args.get(0);
+        };
+        for (int i : new int[] {1, 2, 1, 3, 2, 1}) {
+            table.call(function, List.of(Environment.create(BigInteger.valueOf(i))), function);
+        }
+        //1 and 2 are cached, 1 is used again, so 3 evicts 2, which evicts 1
+        Assertions.assertEquals(1, table.getHits());
+        Assertions.assertEquals(5, calls[0]);
+        Assertions.assertEquals(2, table.size());
+    }
+
+    @Test
+    void testUsedResultKept() {
+        MemoTable table = new MemoTable(4);
+        java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function = args -> args.get(0);
+        Environment.PlcObject used = Environment.create(BigInteger.valueOf(-1));
+        for (int i = 0; i < 100; i++) {
+            table.call(function, List.of(used), function);
+            table.call(function, List.of(Environment.create(BigInteger.valueOf(i))), function);
+        }
+        //The used result is passed over by each turn of the hand, evicting only the others
+        Assertions.assertEquals(99, table.getHits());
+        Assertions.assertEquals(4, table.size());
+    }
+
+    @Test
+    void testConcurrentCalls() throws Exception {
+        MemoTable table = new MemoTable(8);
+        java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> square = args -> {
+            BigInteger value = (BigInteger) args.get(0).getValue();
+            return Environment.create(value.multiply(value));
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                int offset = t;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 2000; i++) {
+                        BigInteger value = BigInteger.valueOf((i + offset) % 32);
+                        if (!value.multiply(value).equals(table.call(square, List.of(Environment.create(value)), square).getValue())) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(16 * 2000, table.getHits() + table.getMisses());
+        Assertions.assertTrue(table.size() <= 8);
+    }
+
+    @Test
+    void testMutableArgument() {
+        MemoTable table = new MemoTable(10);
+        Environment.PlcObject object = new Environment.PlcObject(new Scope(null), new Object());
+        table.call("f", List.of(object), args -> Environment.NIL);
+        table.call("f", List.of(object), args -> Environment.NIL);
+        Assertions.assertEquals(0, table.getHits());
+        Assertions.assertEquals(0, table.getMisses());
+        Assertions.assertEquals(0, table.size());
+    }
+
+}
@@ -0,0 +1,82 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+final class PurityAnalyzerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testPure(String test, String input, boolean expected) {
+        Ast.Source source = new Parser(new Lexer(input + "\nDEF main(): Integer DO RETURN 0; END").lex()).parseSource();
+        Scope scope = new Scope(null);
+        scope.defineFunction("read", "read", List.of(), Environment.Type.INTEGER, args -> Environment.NIL);
+        scope.defineVariable("seed", "seed", Environment.Type.INTEGER, Environment.NIL);
+        new Analyzer(scope).visit(source);
+        new PurityAnalyzer().visit(source);
+        Assertions.assertEquals(expected, source.getMethods().get(source.getMethods().size() - 2).isPure());
+    }
+
+    private static Stream<Arguments> testPure() {
+        return Stream.of(
+                Arguments.of("Arithmetic",
+                        "DEF f(x: Integer): Integer DO LET y = x * x; y = y + 1; RETURN y; END",
+                        true
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END",
+                        true
+                ),
+                Arguments.of("Constant Field",
+                        "LET limit: Integer = 10;\nDEF f(x: Integer): Integer DO RETURN x * limit; END",
+                        true
+                ),
+                Arguments.of("Field Of Constant Fields",
+                        "LET a: Integer = 2;\nLET b: Integer = (a + 1) * 5;\nDEF f(x: Integer): Integer DO RETURN x * b; END",
+                        true
+                ),
+                Arguments.of("Uninitialized Field",
+                        "LET limit: Integer;\nDEF f(x: Integer): Integer DO RETURN limit; END",
+                        true
+                ),
+                Arguments.of("Field From Function",
+                        "LET limit: Integer = read();\nDEF f(x: Integer): Integer DO RETURN x * limit; END",
+                        false
+                ),
+                Arguments.of("Field From Enclosing Scope",
+                        "LET a: Integer = seed;\nLET b: Integer = a + 1;\nDEF f(x: Integer): Integer DO RETURN x * b; END",
+                        false
+                ),
+                Arguments.of("Mutable Field",
+                        "LET count: Integer = 0;\nDEF g(): Integer DO count = count + 1; RETURN count; END\nDEF f(x: Integer): Integer DO RETURN x * count; END",
+                        false
+                ),
+                Arguments.of("Assigned Field",
+                        "LET count: Integer = 0;\nDEF f(x: Integer): Integer DO count = x; RETURN x; END",
+                        false
+                ),
+                Arguments.of("Shadowed Field",
+                        "LET count: Integer = 0;\nDEF g(): Integer DO count = 1; RETURN count; END\nDEF f(x: Integer): Integer DO LET count = x; count = count + 1; RETURN count; END",
+                        true
+                ),
+                Arguments.of("Print",
+                        "DEF f(x: Integer): Integer DO print(x); RETURN x; END",
+                        false
+                ),
+                Arguments.of("Impure Callee",
+                        "DEF g(x: Integer): Integer DO print(x); RETURN x; END\nDEF f(x: Integer): Integer DO RETURN g(x); END",
+                        false
+                ),
+                Arguments.of("Impure Recursion",
+                        "DEF f(n: Integer): Integer DO IF n == 0 DO print(n); RETURN 0; END RETURN f(n - 1); END",
+                        false
+                )
+        );
+    }
+
+}
@@ -0,0 +1,96 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class RangeAnalyzerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRange(String test, String statements, String expression, String expected) {
+        Ast.Source source = analyze("DEF main(): Integer DO " + statements + " LET value = " + expression + "; RETURN 0; END");
+        List<Ast.Stmt> body = source.getMethods().get(0).getStatements();
+        Ast.Stmt.Declaration value = (Ast.Stmt.Declaration) body.get(body.size() - 2);
+        Assertions.assertEquals(expected, value.getValue().get().getRange().toString());
+    }
+
+    private static Stream<Arguments> testRange() {
+        return Stream.of(
+                Arguments.of("Literal Arithmetic", "", "(1 + 2) * 3 - 4", "[5, 5]"),
+                Arguments.of("Division", "LET d = 7;", "100 / d", "[14, 14]"),
+                Arguments.of("Refined Branch", "LET d = 0; IF d < 1 DO d = 5; END", "10 / d", "[2, 2]"),
+                Arguments.of("Divisor May Be Zero", "LET d = 0; IF TRUE DO d = 5; END", "10 / d", "[2, 10]"),
+                Arguments.of("Product", "LET n = 2147483647;", "n * n", "[4611686014132420609, 4611686014132420609]"),
+                Arguments.of("Unbounded Product", "LET n = 2147483647; n = n * n;", "n * n", "[9223372036854775807, inf]"),
+                Arguments.of("Call", "", "square(2) + 1", "[-inf, inf]"),
+                Arguments.of("Counted Loop", "LET i = 0; WHILE i < 10 DO i = i + 1; END", "i", "[10, 10]"),
+                Arguments.of("Stepped Loop", "LET x = 0; WHILE x < 100 DO x = x + 3; END", "x", "[100, 102]"),
+                Arguments.of("Inequality Exit", "LET x = 1; WHILE x != 100 DO x = x * 2; END", "x", "[100, 100]")
+        );
+    }
+
+    @Test
+    void testInterpret() {
+        String input = String.join("\n",
+                "DEF main(): Integer DO",
+                "    LET i = 0;",
+                "    LET sum = 0;",
+                "    WHILE i < 10 DO",
+                "        sum = sum + i * i;",
+                "        i = i + 1;",
+                "    END",
+                "    LET big = 2147483647;",
+                "    big = big * big;",
+                "    big = big * big;",
+                "    RETURN sum + big / (big - 1) + big;",
+                "END"
+        );
+        Object expected = new Interpreter(new Scope(null)).visit(analyze(input)).getValue();
+        Assertions.assertEquals(BigInteger.valueOf(2147483647).pow(4).add(BigInteger.valueOf(286)), expected);
+        Ast.Source source = analyze(input);
+        new RangeAnalyzer().visit(source);
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testUnboundedOperand(String test, String input, Object expected) {
+        Ast.Source source = analyze(input); //with ranges, as 0 * n and 5 / n are bounded for any n
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(source).getValue());
+    }
+
+    private static Stream<Arguments> testUnboundedOperand() {
+        return Stream.of(
+                Arguments.of("Zero Product", "DEF f(n: Integer): Integer DO LET z = 0; RETURN z * n; END\nDEF main(): Integer DO RETURN f(2); END", BigInteger.ZERO),
+                Arguments.of("Bounded Quotient", "DEF f(n: Integer): Integer DO LET x = 5; RETURN x / n; END\nDEF main(): Integer DO RETURN f(2); END", BigInteger.valueOf(2))
+        );
+    }
+
+    @Test
+    void testGenerate() {
+        Ast.Source source = analyze("DEF main(): Integer DO LET i = 0; LET n = 0; WHILE i < 10 DO n = n + i; i = i + 1; END RETURN n; END");
+        new RangeAnalyzer().visit(source);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(source);
+        Assertions.assertTrue(writer.toString().contains("n = Math.addExact(n, i);"), writer.toString());
+        Assertions.assertTrue(writer.toString().contains("i = i + 1;"), writer.toString());
+    }
+
+    private static Ast.Source analyze(String input) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("square", "square", List.of(Environment.Type.INTEGER), Environment.Type.INTEGER, args -> args.get(0));
+        Ast.Source source = Sources.analyze(input, scope);
+        new RangeAnalyzer().visit(source);
+        return source;
+    }
+
+}
@@ -0,0 +1,93 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+final class ResolverTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testInterpret(String test, String input, Object expected) {
+        Assertions.assertEquals(expected, interpret(parse(input)));
+        Ast.Source source = parse(input);
+        new Resolver().visit(source);
+        Assertions.assertEquals(expected, interpret(source));
+    }
+
+    private static Stream<Arguments> testInterpret() {
+        return Stream.of(
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer) DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\nDEF main() DO RETURN fib(10); END",
+                        BigInteger.valueOf(55)
+                ),
+                Arguments.of("While",
+                        "DEF main() DO LET i = 0; LET sum = 0; WHILE i < 10 DO LET square = i * i; sum = sum + square; i = i + 1; END RETURN sum; END",
+                        BigInteger.valueOf(285)
+                ),
+                Arguments.of("For",
+                        "DEF main() DO LET sum = 0; FOR num IN list DO LET double = num + num; sum = sum + double; END RETURN sum; END",
+                        BigInteger.valueOf(20)
+                ),
+                Arguments.of("Shadowed Field",
+                        "LET x: Integer = 1;\nDEF main() DO LET y = x; IF TRUE DO LET x = 10; y = y + x; END RETURN y + x; END",
+                        BigInteger.valueOf(12)
+                ),
+                Arguments.of("Sibling Blocks",
+                        "DEF main() DO LET r = 0; IF TRUE DO LET a = 1; r = r + a; END IF TRUE DO LET b = 2; r = r + b; END RETURN r; END",
+                        BigInteger.valueOf(3)
+                ),
+                Arguments.of("Nested Sibling Blocks",
+                        "DEF main() DO LET r = 0; FOR n IN list DO IF n < 2 DO LET a = n; WHILE a < 3 DO LET b = a; r = r + b; a = a + 1; END ELSE LET c = n * 10; r = r + c; END END RETURN r; END",
+                        BigInteger.valueOf(96)
+                ),
+                Arguments.of("Caller Locals",
+                        "DEF square(n: Integer) DO LET result = n * n; RETURN result; END\nDEF main() DO LET result = 3; LET other = square(result); RETURN result + other; END",
+                        BigInteger.valueOf(12)
+                )
+        );
+    }
+
+    @Test
+    void testAddresses() {
+        Ast.Source source = parse("LET x: Integer = 1;\nDEF f(a: Integer, b: Integer) DO LET c = a; IF c < b DO LET d = x; ELSE LET e = b; LET g = e; END END");
+        new Resolver().visit(source);
+        Ast.Method method = source.getMethods().get(0);
+        Assertions.assertEquals(5, method.getFrameSize());
+
+        Ast.Stmt.Declaration c = (Ast.Stmt.Declaration) method.getStatements().get(0);
+        Assertions.assertEquals(2, c.getSlot());
+        Ast.Expr.Access a = (Ast.Expr.Access) c.getValue().get();
+        Assertions.assertEquals(0, a.getSlot());
+
+        Ast.Stmt.If statement = (Ast.Stmt.If) method.getStatements().get(1);
+        Ast.Stmt.Declaration d = (Ast.Stmt.Declaration) statement.getThenStatements().get(0);
+        Assertions.assertEquals(3, d.getSlot());
+        Ast.Expr.Access x = (Ast.Expr.Access) d.getValue().get();
+        Assertions.assertEquals(-1, x.getSlot(), "fields are not resolved");
+        Ast.Stmt.Declaration e = (Ast.Stmt.Declaration) statement.getElseStatements().get(0);
+        Assertions.assertEquals(3, e.getSlot(), "sibling blocks reuse slots");
+        Ast.Stmt.Declaration g = (Ast.Stmt.Declaration) statement.getElseStatements().get(1);
+        Assertions.assertEquals(4, g.getSlot());
+    }
+
+    private static Object interpret(Ast.Source source) {
+        Scope scope = new Scope(null);
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        return new Interpreter(scope).visit(source).getValue();
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
@@ -0,0 +1,56 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Parses, analyzes, and runs sources for tests of the passes and backends
+ * that take an analyzed source.
+ */
+final class Sources {
+
+    private Sources() {}
+
+    /**
+     * Parses and analyzes a source with the standard library.
+     */
+    static Ast.Source analyze(String input) {
+        return analyze(input, new Scope(null));
+    }
+
+    /**
+     * Parses and analyzes a source with the functions defined in a scope.
+     */
+    static Ast.Source analyze(String input, Scope scope) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(scope).visit(source);
+        return source;
+    }
+
+    /**
+     * Analyzes and executes a source, returning its output followed by the
+     * result of main.
+     */
+    static String run(String input, Function<Ast.Source, Environment.PlcObject> execution) {
+        return capture(() -> execution.apply(analyze(input)));
+    }
+
+    /**
+     * Returns what an execution prints followed by the value it returns,
+     * with line separators normalized.
+     */
+    static String capture(Supplier<Environment.PlcObject> execution) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            System.setOut(new PrintStream(output));
+            Object result = execution.get().getValue();
+            return (output + String.valueOf(result)).replace("\r\n", "\n");
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+}
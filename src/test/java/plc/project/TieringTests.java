@@ -0,0 +1,139 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class TieringTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testTiering(String test, String input, String expected, List<String> events) {
+        Assertions.assertEquals(expected, run(input, null));
+        Tiering tiering = new Tiering(3, 5);
+        Assertions.assertEquals(expected, run(input, tiering));
+        Assertions.assertEquals(events, tiering.getEvents().stream().map(Tiering.Event::toString).collect(Collectors.toList()));
+    }
+
+    private static Stream<Arguments> testTiering() {
+        return Stream.of(
+                Arguments.of("Cold",
+                        "DEF f(n: Integer): Integer DO RETURN n * 2; END\nDEF main(): Integer DO RETURN f(f(1)); END",
+                        "4",
+                        List.of()
+                ),
+                Arguments.of("Hot Method",
+                        "LET calls: Integer = 0;\n" +
+                        "DEF fib(n: Integer): Integer DO calls = calls + 1; IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END\n" +
+                        "DEF main(): Integer DO print(fib(15)); RETURN calls; END",
+                        "610\n1973",
+                        List.of("METHOD fib after 3")
+                ),
+                Arguments.of("Loop Replacement",
+                        "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 20 DO sum = sum + i; i = i + 1; END print(i); RETURN sum; END",
+                        "20\n190",
+                        List.of("LOOP WHILE after 5")
+                ),
+                Arguments.of("Return From Replaced Loop",
+                        "DEF find(n: Integer): Integer DO LET i = 0; WHILE TRUE DO IF i * i >= n DO RETURN i; END i = i + 1; END END\n" +
+                        "DEF main(): Integer DO RETURN find(400); END",
+                        "20",
+                        List.of("LOOP WHILE after 5")
+                ),
+                Arguments.of("Nested Loops",
+                        "DEF main(): Integer DO LET sum = 0; LET i = 0; WHILE i < 4 DO LET j = 0; WHILE j < 3 DO sum = sum + i * j; j = j + 1; END i = i + 1; END RETURN sum; END",
+                        "18",
+                        List.of("LOOP WHILE after 5")
+                ),
+                Arguments.of("Loop In Hot Method",
+                        "DEF sum(n: Integer): Integer DO LET s = 0; LET i = 0; WHILE i < n DO s = s + i; i = i + 1; END RETURN s; END\n" +
+                        "DEF main(): Integer DO print(sum(2)); print(sum(6)); print(sum(3)); RETURN sum(10); END",
+                        "1\n15\n3\n45",
+                        List.of("LOOP WHILE after 5", "METHOD sum after 3")
+                )
+        );
+    }
+
+    @Test
+    void testFor() {
+        String input = "DEF main(): Integer DO LET sum = 0; FOR i IN range(0, 20) DO sum = sum + i; END RETURN sum; END";
+        Scope scope = new Scope(null);
+        scope.defineFunction("range", 2, args -> {
+            List<Environment.PlcObject> values = new ArrayList<>();
+            for (int i = ((BigInteger) args.get(0).getValue()).intValue(); i < ((BigInteger) args.get(1).getValue()).intValue(); i++) {
+                values.add(Environment.create(BigInteger.valueOf(i)));
+            }
+            return Environment.create(values);
+        });
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        Scope types = new Scope(null);
+        types.defineFunction("range", "range", List.of(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(types).visit(source);
+        new Resolver().visit(source);
+        Tiering tiering = new Tiering(3, 5);
+        Interpreter interpreter = new Interpreter(scope);
+        interpreter.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(190), interpreter.visit(source).getValue());
+        Ast.Stmt loop = source.getMethods().get(0).getStatements().get(1);
+        Assertions.assertEquals(5, tiering.getBackEdges(loop));
+        Assertions.assertEquals(List.of("LOOP FOR after 5"), tiering.getEvents().stream().map(Tiering.Event::toString).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testMetrics() {
+        Ast.Source source = analyze("DEF f(n: Integer): Integer DO RETURN n + 1; END\nDEF main(): Integer DO LET i = 0; LET x = 0; WHILE i < 3 DO x = f(x); i = i + 1; END RETURN x; END");
+        Tiering tiering = new Tiering(2, 10);
+        List<Tiering.Event> events = new ArrayList<>();
+        tiering.setListener(events::add);
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setTiering(tiering);
+        Assertions.assertEquals(BigInteger.valueOf(3), interpreter.visit(source).getValue());
+        Ast.Method f = source.getMethods().get(0);
+        Assertions.assertEquals(3, tiering.getInvocations(f));
+        Assertions.assertEquals(2, tiering.getCompiledInvocations());
+        Assertions.assertEquals(3, tiering.getBackEdges(source.getMethods().get(1).getStatements().get(2)));
+        Assertions.assertEquals(tiering.getEvents(), events);
+        Assertions.assertEquals(Tiering.Event.Kind.METHOD, events.get(0).getKind());
+        Assertions.assertSame(f, events.get(0).getAst());
+    }
+
+    @Test
+    void testSharedAcrossRuns() {
+        Ast.Source source = analyze("LET count: Integer = 0;\n" +
+                "DEF bump(): Integer DO count = count + 1; RETURN count; END\n" +
+                "DEF main(): Integer DO bump(); bump(); RETURN bump(); END");
+        Tiering tiering = new Tiering(1, 1);
+        for (int run = 0; run < 3; run++) {
+            Interpreter interpreter = new Interpreter(new Scope(null));
+            interpreter.setTiering(tiering);
+            Assertions.assertEquals(BigInteger.valueOf(3), interpreter.visit(source).getValue());
+        }
+        Assertions.assertEquals(9, tiering.getInvocations(source.getMethods().get(0)));
+    }
+
+    /**
+     * Runs a source, returning its output followed by the result of main.
+     */
+    private static String run(String input, Tiering tiering) {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        if (tiering != null) {
+            interpreter.setTiering(tiering);
+        }
+        return Sources.capture(() -> interpreter.visit(analyze(input)));
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source source = Sources.analyze(input);
+        new Resolver().visit(source);
+        return source;
+    }
+
+}
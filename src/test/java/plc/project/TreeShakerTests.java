@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class TreeShakerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testShake(String test, String input, String expected, int removed) {
+        TreeShaker shaker = new TreeShaker();
+        Ast.Source source = shaker.shake(Sources.analyze(input));
+        Assertions.assertEquals(Fingerprint.of(Sources.analyze(expected)), Fingerprint.of(source));
+        Assertions.assertEquals(removed, shaker.getRemoved());
+    }
+
+    private static Stream<Arguments> testShake() {
+        return Stream.of(
+                Arguments.of("Unreachable Method",
+                        "DEF f(): Integer DO RETURN 1; END\nDEF main(): Integer DO RETURN 0; END",
+                        "DEF main(): Integer DO RETURN 0; END",
+                        1
+                ),
+                Arguments.of("Transitive Calls",
+                        "DEF f(): Integer DO RETURN 1; END\nDEF g(): Integer DO RETURN f(); END\nDEF h(): Integer DO RETURN g(); END\nDEF main(): Integer DO RETURN g(); END",
+                        "DEF f(): Integer DO RETURN 1; END\nDEF g(): Integer DO RETURN f(); END\nDEF main(): Integer DO RETURN g(); END",
+                        1
+                ),
+                Arguments.of("Impure Initializer",
+                        "LET x: Any = print(1);\nDEF main(): Integer DO RETURN 0; END",
+                        "LET x: Any = print(1);\nDEF main(): Integer DO RETURN 0; END",
+                        0
+                ),
+                Arguments.of("Unused Fields",
+                        "LET x: Integer = 1;\nLET y: Integer = x + 1;\nLET z: Integer = 2;\nDEF main(): Integer DO RETURN z; END",
+                        "LET z: Integer = 2;\nDEF main(): Integer DO RETURN z; END",
+                        2
+                ),
+                Arguments.of("Assigned Field",
+                        "LET x: Integer = 1;\nDEF main(): Integer DO x = 2; RETURN 0; END",
+                        "LET x: Integer = 1;\nDEF main(): Integer DO x = 2; RETURN 0; END",
+                        0
+                ),
+                Arguments.of("Failing Initializer",
+                        "LET x: Integer = 1 / 0;\nDEF main(): Integer DO RETURN 0; END",
+                        "LET x: Integer = 1 / 0;\nDEF main(): Integer DO RETURN 0; END",
+                        0
+                ),
+                Arguments.of("Field Of Removed Method",
+                        "LET x: Integer = 1;\nDEF f(): Integer DO RETURN x; END\nDEF main(): Integer DO RETURN 0; END",
+                        "DEF main(): Integer DO RETURN 0; END",
+                        2
+                )
+        );
+    }
+
+}
@@ -0,0 +1,84 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+final class VmCompilerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testCompile(String test, String input, String expected) {
+        Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(source);
+        Assertions.assertEquals(expected, new VmCompiler(new Scope(null)).compile(source).disassemble());
+    }
+
+    private static Stream<Arguments> testCompile() {
+        return Stream.of(
+                Arguments.of("Locals",
+                        "DEF main(): Integer DO LET x = 2; LET y = x * 3; RETURN y - x; END",
+                        String.join("\n",
+                                "DEF $init/0 (registers: 0)",
+                                "    0: RETURN_NIL",
+                                "DEF main/0 (registers: 3)",
+                                "    1: LOAD_CONST r0, 2",
+                                "    4: LOAD_CONST r2, 3",
+                                "    7: BINARY r1, INTEGER_MULTIPLY, r0, r2",
+                                "   12: BINARY r2, INTEGER_SUBTRACT, r1, r0",
+                                "   17: RETURN r2",
+                                "   19: RETURN_NIL",
+                                ""
+                        )
+                ),
+                Arguments.of("Fields And Calls",
+                        "LET total: Integer = 1;\nDEF f(n: Integer): Integer DO RETURN n + total; END\nDEF main(): Integer DO total = f(total); print(total); RETURN 0; END",
+                        String.join("\n",
+                                "DEF $init/0 (registers: 1)",
+                                "    0: LOAD_CONST r0, 1",
+                                "    3: SET_GLOBAL total, r0",
+                                "    6: RETURN_NIL",
+                                "DEF f/1 (registers: 3)",
+                                "    7: GET_GLOBAL r2, total",
+                                "   10: BINARY r1, INTEGER_ADD, r0, r2",
+                                "   15: RETURN r1",
+                                "   17: RETURN_NIL",
+                                "DEF main/0 (registers: 2)",
+                                "   18: GET_GLOBAL r1, total",
+                                "   21: CALL r0, f, r1, 1",
+                                "   26: SET_GLOBAL total, r0",
+                                "   29: GET_GLOBAL r1, total",
+                                "   32: CALL_HOST r0, print, r1, 1",
+                                "   37: LOAD_CONST r0, 0",
+                                "   40: RETURN r0",
+                                "   42: RETURN_NIL",
+                                ""
+                        )
+                ),
+                Arguments.of("Loop",
+                        "DEF main(): Integer DO LET i = 0; WHILE i < 10 AND TRUE DO i = i + 1; END RETURN i; END",
+                        String.join("\n",
+                                "DEF $init/0 (registers: 0)",
+                                "    0: RETURN_NIL",
+                                "DEF main/0 (registers: 3)",
+                                "    1: LOAD_CONST r0, 0",
+                                "    4: LOAD_CONST r2, 10",
+                                "    7: BINARY r1, LESS, r0, r2",
+                                "   12: JUMP_IF_FALSE r1, 18",
+                                "   15: LOAD_CONST r1, true",
+                                "   18: JUMP_IF_FALSE r1, 31",
+                                "   21: LOAD_CONST r2, 1",
+                                "   24: BINARY r0, INTEGER_ADD, r0, r2",
+                                "   29: JUMP 4",
+                                "   31: RETURN r0",
+                                "   33: RETURN_NIL",
+                                ""
+                        )
+                )
+        );
+    }
+
+}